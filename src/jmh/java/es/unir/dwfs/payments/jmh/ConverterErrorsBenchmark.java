@@ -0,0 +1,35 @@
+package es.unir.dwfs.payments.jmh;
+
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolución de códigos de error a mensajes (ValidationMessages.properties)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConverterErrorsBenchmark {
+
+    private ConverterErrors converterErrors;
+
+    @Setup
+    public void setUp() {
+        converterErrors = Fixtures.converterErrors();
+    }
+
+    @Benchmark
+    public String messageWithoutArguments() {
+        return converterErrors.getMessage("ORDER_ITEM-011");
+    }
+
+    @Benchmark
+    public String messageWithArgument() {
+        return converterErrors.getMessage("ORDER_BUSINESS-001", 42L);
+    }
+}
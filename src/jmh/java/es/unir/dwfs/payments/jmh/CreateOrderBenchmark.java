@@ -0,0 +1,68 @@
+package es.unir.dwfs.payments.jmh;
+
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.data.OrderJpaRepository;
+import es.unir.dwfs.payments.data.OrderRollup;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.outbox.OrderOutbox;
+import es.unir.dwfs.payments.logging.LogSampler;
+import es.unir.dwfs.payments.metrics.OrderMetrics;
+import es.unir.dwfs.payments.service.CatalogueLookupMode;
+import es.unir.dwfs.payments.service.OrderAssembler;
+import es.unir.dwfs.payments.service.OrderCache;
+import es.unir.dwfs.payments.service.OrderSnapshot;
+import es.unir.dwfs.payments.service.OrderWriter;
+import es.unir.dwfs.payments.service.OrdersServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrdersServiceImpl.createOrder con catálogo y repositorio en memoria: validación, construcción
+ * de items, métricas, trazas del camino caliente y serialización del pedido para la caché
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CreateOrderBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int basketSize;
+
+    @Param({"FAN_OUT", "SEQUENTIAL"})
+    private CatalogueLookupMode lookupMode;
+
+    private OrdersServiceImpl service;
+    private OrderRequest request;
+
+    @Setup
+    public void setUp() {
+        ConverterErrors converterErrors = Fixtures.converterErrors();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OrderMetrics orderMetrics = new OrderMetrics(registry);
+        OrderJpaRepository repository = Fixtures.inMemoryRepository();
+        service = new OrdersServiceImpl(
+                Fixtures.catalogue(Fixtures.books(basketSize)),
+                repository,
+                new OrderWriter(repository, new OrderRollup(null, null, false), new OrderOutbox(null, null, false), event -> {
+                }, null, converterErrors),
+                new OrderAssembler(converterErrors, new LogSampler(0)),
+                converterErrors,
+                orderMetrics,
+                new OrderCache(JsonMapper.builder().build(), orderMetrics, registry, true, DataSize.ofMegabytes(64)));
+        ReflectionTestUtils.setField(service, "lookupMode", lookupMode);
+        request = Fixtures.orderRequest(basketSize);
+    }
+
+    @Benchmark
+    public OrderSnapshot createOrder() {
+        return service.createOrder(request);
+    }
+}
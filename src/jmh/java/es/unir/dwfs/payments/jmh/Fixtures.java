@@ -0,0 +1,119 @@
+package es.unir.dwfs.payments.jmh;
+
+import es.unir.dwfs.payments.config.MessageSourceConfig;
+import es.unir.dwfs.payments.controller.model.OrderItemRequest;
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.data.OrderJpaRepository;
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.facade.BookField;
+import es.unir.dwfs.payments.facade.BooksCatalogueFacade;
+import es.unir.dwfs.payments.facade.model.Book;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Datos y dobles compartidos por los benchmarks
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static ConverterErrors converterErrors() {
+        return new ConverterErrors(new MessageSourceConfig().messageSource());
+    }
+
+    static OrderRequest orderRequest(int items) {
+        List<OrderItemRequest> itemRequests = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            itemRequests.add(OrderItemRequest.builder().bookId((long) i + 1).quantity(1 + i % 3).build());
+        }
+        return OrderRequest.builder().items(itemRequests).build();
+    }
+
+    static List<OrderItem> orderItems(int items) {
+        List<OrderItem> orderItems = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            orderItems.add(OrderItem.builder()
+                    .bookId((long) i + 1)
+                    .quantity(1 + i % 3)
+                    .capturedUnitPrice(new BigDecimal("10.50"))
+                    .build());
+        }
+        return orderItems;
+    }
+
+    static Map<Long, Book> books(int count) {
+        Map<Long, Book> books = new HashMap<>();
+        for (long id = 1; id <= count; id++) {
+            books.put(id, Book.builder()
+                    .id(id)
+                    .title("Libro " + id)
+                    .author("Autor")
+                    .isbn("978-84-0000-" + id)
+                    .price(new BigDecimal("10.50"))
+                    .visible(true)
+                    .build());
+        }
+        return books;
+    }
+
+    /**
+     * Catálogo en memoria: mide el servicio sin red ni caché
+     */
+    static BooksCatalogueFacade catalogue(Map<Long, Book> books) {
+        return new BooksCatalogueFacade(null, null, null, null) {
+
+            @Override
+            public Book getBook(String id) {
+                return books.get(Long.valueOf(id));
+            }
+
+            @Override
+            public Map<Long, Book> getBooks(Collection<Long> ids) {
+                return getBooks(ids, Set.of());
+            }
+
+            @Override
+            public Map<Long, Book> getBooks(Collection<Long> ids, Set<BookField> freshFields) {
+                Map<Long, Book> found = new HashMap<>();
+                for (Long id : ids) {
+                    Book book = books.get(id);
+                    if (book != null) {
+                        found.put(id, book);
+                    }
+                }
+                return found;
+            }
+        };
+    }
+
+    /**
+     * Repositorio que solo asigna IDs en save: mide el servicio sin base de datos
+     */
+    static OrderJpaRepository inMemoryRepository() {
+        AtomicLong ids = new AtomicLong();
+        return (OrderJpaRepository) Proxy.newProxyInstance(
+                OrderJpaRepository.class.getClassLoader(),
+                new Class<?>[]{OrderJpaRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("save")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Order order = (Order) args[0];
+                    order.setId(ids.incrementAndGet());
+                    order.getItems().forEach(item -> item.setId(ids.incrementAndGet()));
+                    return order;
+                });
+    }
+}
@@ -0,0 +1,53 @@
+package es.unir.dwfs.payments.jmh;
+
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.data.model.Order;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserialización de OrderRequest y serialización de Order con Jackson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int basketSize;
+
+    private ObjectMapper objectMapper;
+    private byte[] requestJson;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        objectMapper = JsonMapper.builder().build();
+        requestJson = objectMapper.writeValueAsBytes(Fixtures.orderRequest(basketSize));
+        order = Order.builder().id(1L).orderDate(Instant.now()).totalAmount(BigDecimal.ZERO).itemCount(basketSize).build();
+        order.setItems(Fixtures.orderItems(basketSize));
+        long id = 1;
+        for (var item : order.getItems()) {
+            item.setId(id++);
+            order.setTotalAmount(order.getTotalAmount().add(item.getCapturedUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()))));
+        }
+    }
+
+    @Benchmark
+    public OrderRequest readOrderRequest() {
+        return objectMapper.readValue(requestJson, OrderRequest.class);
+    }
+
+    @Benchmark
+    public byte[] writeOrder() {
+        return objectMapper.writeValueAsBytes(order);
+    }
+}
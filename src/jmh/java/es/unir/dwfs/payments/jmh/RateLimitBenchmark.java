@@ -0,0 +1,73 @@
+package es.unir.dwfs.payments.jmh;
+
+import es.unir.dwfs.payments.limit.ClientRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de la comprobación del límite por cliente (ClientRateLimiter) en el camino de cada
+ * petición: un cliente habitual admitido, un cliente por encima de su límite y 100.000 clientes
+ * distintos. Con muchos clientes domina el acceso a memoria del mapa: mapLookup mide solo la
+ * búsqueda en un ConcurrentHashMap del mismo tamaño. Se ejecuta con 1 y 4 hilos para ver la contención:
+ * mvn -Pjmh verify -Djmh.include=RateLimitBenchmark -Djmh.args="-t 4"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RateLimitBenchmark {
+
+    private static final int CLIENTS = 100_000;
+
+    private ClientRateLimiter admitting;
+    private ClientRateLimiter rejecting;
+    private String[] clients;
+    private Map<String, Long> map;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // Límite que no se alcanza: todas las peticiones se admiten
+        admitting = new ClientRateLimiter("admitting", 1_000_000_000, Duration.ofSeconds(1), 1_000_000,
+                Duration.ofMinutes(10), 2 * CLIENTS, System::nanoTime, registry);
+        // Una petición por hora: tras la primera, todas se rechazan
+        rejecting = new ClientRateLimiter("rejecting", 1, Duration.ofHours(1), 1,
+                Duration.ofMinutes(10), 2 * CLIENTS, System::nanoTime, registry);
+
+        clients = new String[CLIENTS];
+        map = new ConcurrentHashMap<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "ip:10." + (i >> 16) + "." + ((i >> 8) & 0xff) + "." + (i & 0xff);
+            admitting.tryAcquire(clients[i]);
+            map.put(clients[i], (long) i);
+        }
+    }
+
+    @Benchmark
+    public long admittedClient() {
+        return admitting.tryAcquire("key:partner-a");
+    }
+
+    @Benchmark
+    public long rejectedClient() {
+        return rejecting.tryAcquire("key:partner-a");
+    }
+
+    @Benchmark
+    public long manyClients() {
+        return admitting.tryAcquire(clients[ThreadLocalRandom.current().nextInt(CLIENTS)]);
+    }
+
+    @Benchmark
+    public Long mapLookup() {
+        return map.get(clients[ThreadLocalRandom.current().nextInt(CLIENTS)]);
+    }
+}
@@ -0,0 +1,67 @@
+package es.unir.dwfs.payments.jmh;
+
+import es.MsBooksPaymentsApplication;
+import es.unir.dwfs.payments.data.OrderJpaRepository;
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.data.model.OrderItemRow;
+import es.unir.dwfs.payments.service.OrderAssembler;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guardado de pedidos y lectura de un pedido (proyección) con OrderJpaRepository sobre H2 embebido
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RepositoryBenchmark {
+
+    private static final int STORED_ORDERS = 1000;
+
+    @Param({"1", "10", "100"})
+    private int basketSize;
+
+    private ConfigurableApplicationContext context;
+    private OrderJpaRepository repository;
+    private OrderAssembler assembler;
+    private long[] ids;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(MsBooksPaymentsApplication.class).run(
+                "--server.port=0",
+                "--eureka.client.enabled=false",
+                "--spring.datasource.url=jdbc:h2:mem:jmh-" + basketSize,
+                "--logging.level.root=WARN");
+        repository = context.getBean(OrderJpaRepository.class);
+        assembler = context.getBean(OrderAssembler.class);
+
+        ids = new long[STORED_ORDERS];
+        for (int i = 0; i < STORED_ORDERS; i++) {
+            ids[i] = repository.save(assembler.newOrder(Fixtures.orderItems(basketSize))).getId();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Order save() {
+        return repository.save(assembler.newOrder(Fixtures.orderItems(basketSize)));
+    }
+
+    @Benchmark
+    public List<OrderItemRow> findItemRowsByOrderId() {
+        return repository.findItemRowsByOrderId(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+}
@@ -0,0 +1,55 @@
+package es.unir.dwfs.payments.jmh;
+
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean Validation de OrderRequest con sus items (@Valid), válido y con un error por item
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ValidationBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int basketSize;
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private OrderRequest valid;
+    private OrderRequest invalid;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        valid = Fixtures.orderRequest(basketSize);
+        invalid = Fixtures.orderRequest(basketSize);
+        invalid.getItems().forEach(item -> item.setQuantity(0));
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<OrderRequest>> validRequest() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<OrderRequest>> invalidRequest() {
+        return validator.validate(invalid);
+    }
+}
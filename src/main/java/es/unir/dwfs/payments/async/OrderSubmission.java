@@ -0,0 +1,27 @@
+package es.unir.dwfs.payments.async;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import es.unir.dwfs.payments.exception.ErrorResponse;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Estado de un pedido enviado a POST /orders/async
+ *
+ * @param id          ID del envío (no del pedido)
+ * @param status      PENDING, ACCEPTED o REJECTED
+ * @param orderId     ID del pedido creado, si se aceptó
+ * @param message     mensaje del error, si se rechazó
+ * @param errors      detalles del error con los mismos códigos que POST /orders, si se rechazó
+ * @param submittedAt instante en que se encoló
+ * @param completedAt instante en que se aceptó o rechazó
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderSubmission(Long id, SubmissionStatus status, Long orderId, String message,
+                              List<ErrorResponse.ErrorDetail> errors, Instant submittedAt, Instant completedAt) {
+
+    static OrderSubmission pending(Long id, Instant submittedAt) {
+        return new OrderSubmission(id, SubmissionStatus.PENDING, null, null, null, submittedAt, null);
+    }
+}
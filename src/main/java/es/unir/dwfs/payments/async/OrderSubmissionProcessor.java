@@ -0,0 +1,136 @@
+package es.unir.dwfs.payments.async;
+
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.exception.BusinessRuleViolationException;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.exception.ErrorResponse;
+import es.unir.dwfs.payments.facade.BooksCatalogueFacade;
+import es.unir.dwfs.payments.facade.BooksCatalogueFacade.BookLookup;
+import es.unir.dwfs.payments.metrics.OrderMetrics;
+import es.unir.dwfs.payments.metrics.OrderMetrics.Stage;
+import es.unir.dwfs.payments.service.OrderAssembler;
+import es.unir.dwfs.payments.service.OrderWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Procesa un lote de envíos con la misma lógica que POST /orders: los libros de todo el lote se
+ * consultan una sola vez y cada pedido se valida con {@link OrderAssembler}. Cada pedido válido y
+ * el resultado de su envío se guardan en la misma transacción, de modo que un envío nunca queda
+ * ACCEPTED sin pedido ni genera dos pedidos si el proceso se detiene o el lote se reintenta a
+ * mitad. Los envíos con
+ * libros que el catálogo no ha resuelto siguen PENDING para que {@link OrderSubmissionQueue} los
+ * reintente
+ */
+@Component
+@ConditionalOnProperty(name = "orders.async.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class OrderSubmissionProcessor {
+
+    private final BooksCatalogueFacade facade;
+    private final OrderAssembler orderAssembler;
+    private final OrderWriter orderWriter;
+    private final OrderSubmissionStore store;
+    private final ConverterErrors converterErrors;
+    private final OrderMetrics orderMetrics;
+
+    /**
+     * Procesa el lote y completa sus envíos, salvo los que tienen libros que el catálogo no ha resuelto
+     *
+     * @return envíos sin completar, con los libros no resueltos de cada uno
+     */
+    public Map<QueuedOrder, Set<Long>> process(List<QueuedOrder> batch) {
+        Set<Long> bookIds = new LinkedHashSet<>();
+        batch.forEach(queued -> bookIds.addAll(orderAssembler.bookIds(queued.request())));
+        BookLookup books = orderMetrics.time(Stage.CATALOGUE, () -> facade.lookupBooks(bookIds));
+
+        Map<QueuedOrder, Set<Long>> unavailable = new LinkedHashMap<>();
+        Map<QueuedOrder, Order> orders = new LinkedHashMap<>();
+        List<OrderSubmission> rejected = new ArrayList<>();
+        for (QueuedOrder queued : batch) {
+            Set<Long> missing = orderAssembler.bookIds(queued.request()).stream()
+                    .filter(books.unavailable()::contains)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            if (!missing.isEmpty()) {
+                unavailable.put(queued, missing);
+                continue;
+            }
+            try {
+                orders.put(queued, orderAssembler.newOrder(orderAssembler.buildItems(queued.request(), books.books())));
+            } catch (BusinessRuleViolationException e) {
+                e.getErrors().forEach(error -> orderMetrics.countError(error.getCode(), HttpStatus.valueOf(422).value()));
+                rejected.add(rejected(queued, e.getMessage(), e.getErrors()));
+            }
+        }
+
+        if (!rejected.isEmpty()) {
+            store.complete(rejected);
+        }
+        Map<QueuedOrder, OrderWriter.SaveFailure> failures = orderWriter.saveIsolating(orders, saved -> {
+            // Un envío ya completado (por un intento anterior que sí se confirmó) no puede tener otro
+            // pedido: se deshace la transacción y la cola vuelve a consultar cuáles siguen pendientes
+            if (store.complete(saved.entrySet().stream().map(entry -> accepted(entry.getKey(), entry.getValue())).toList())
+                    < saved.size()) {
+                throw new IllegalStateException("Async order submission already completed");
+            }
+        });
+        if (!failures.isEmpty()) {
+            failures.values().forEach(failure -> orderMetrics.countError(failure.code(), failure.status().value()));
+            store.complete(failures.entrySet().stream()
+                    .map(entry -> rejected(entry.getKey(), entry.getValue().description(), entry.getValue().errors()))
+                    .toList());
+        }
+        return unavailable;
+    }
+
+    /**
+     * Rechaza los envíos del lote con GENERIC-005 tras agotar los reintentos
+     */
+    public void fail(List<QueuedOrder> batch) {
+        String description = converterErrors.getMessage("GENERIC-005");
+        List<ErrorResponse.ErrorDetail> errors = List.of(ErrorResponse.ErrorDetail.builder()
+                .code("GENERIC-005")
+                .description(description)
+                .build());
+        store.complete(batch.stream().map(queued -> rejected(queued, description, errors)).toList());
+    }
+
+    /**
+     * Rechaza con GENERIC-006, como el 503 de POST /orders, los envíos cuyos libros el catálogo no
+     * ha resuelto tras agotar los reintentos
+     */
+    public void failUnavailable(Map<QueuedOrder, Set<Long>> unavailable) {
+        List<OrderSubmission> results = new ArrayList<>(unavailable.size());
+        unavailable.forEach((queued, bookIds) -> {
+            String description = converterErrors.getMessage("GENERIC-006",
+                    bookIds.stream().map(String::valueOf).collect(Collectors.joining(", ")));
+            orderMetrics.countError("GENERIC-006", HttpStatus.SERVICE_UNAVAILABLE.value());
+            results.add(rejected(queued, description, List.of(ErrorResponse.ErrorDetail.builder()
+                    .code("GENERIC-006")
+                    .description(description)
+                    .build())));
+        });
+        store.complete(results);
+    }
+
+    private static OrderSubmission accepted(QueuedOrder queued, Order order) {
+        return new OrderSubmission(queued.id(), SubmissionStatus.ACCEPTED, order.getId(), null, null,
+                queued.submittedAt(), Instant.now());
+    }
+
+    private static OrderSubmission rejected(QueuedOrder queued, String message, List<ErrorResponse.ErrorDetail> errors) {
+        return new OrderSubmission(queued.id(), SubmissionStatus.REJECTED, null, message, errors,
+                queued.submittedAt(), Instant.now());
+    }
+}
@@ -0,0 +1,262 @@
+package es.unir.dwfs.payments.async;
+
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.exception.RetryLaterException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cola de POST /orders/async. Cada envío se guarda en order_submissions y se encola en memoria;
+ * orders.async.workers hilos toman lotes de hasta orders.async.batch-size envíos y los procesan
+ * con {@link OrderSubmissionProcessor}. La cola admite como máximo orders.async.capacity envíos
+ * sin completar (en cola o en proceso): por encima se responde 429 con Retry-After. Un lote que
+ * no se puede completar ni rechazar (la base de datos sigue caída) se vuelve a encolar pasado
+ * orders.async.requeue-delay. Al arrancar se vuelven a encolar los envíos que quedaron pendientes
+ */
+@Component
+@ConditionalOnProperty(name = "orders.async.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class OrderSubmissionQueue {
+
+    private final OrderSubmissionStore store;
+    private final OrderSubmissionProcessor processor;
+    private final ConverterErrors converterErrors;
+    private final int capacity;
+    private final int workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration requeueDelay;
+    private final Duration retryAfter;
+    private final Duration retention;
+
+    private final BlockingQueue<QueuedOrder> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private final ScheduledExecutorService requeueScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("order-async-requeue").daemon().factory());
+    private final Timer waitTimer;
+    private volatile boolean running;
+
+    public OrderSubmissionQueue(OrderSubmissionStore store,
+                                OrderSubmissionProcessor processor,
+                                ConverterErrors converterErrors,
+                                MeterRegistry registry,
+                                @Value("${orders.async.capacity:10000}") int capacity,
+                                @Value("${orders.async.workers:4}") int workers,
+                                @Value("${orders.async.batch-size:50}") int batchSize,
+                                @Value("${orders.async.max-attempts:3}") int maxAttempts,
+                                @Value("${orders.async.retry-delay:1s}") Duration retryDelay,
+                                @Value("${orders.async.requeue-delay:30s}") Duration requeueDelay,
+                                @Value("${orders.async.retry-after:5s}") Duration retryAfter,
+                                @Value("${orders.async.retention:24h}") Duration retention) {
+        this.store = store;
+        this.processor = processor;
+        this.converterErrors = converterErrors;
+        this.capacity = capacity;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.requeueDelay = requeueDelay;
+        this.retryAfter = retryAfter;
+        this.retention = retention;
+
+        Gauge.builder("orders.async.queue.depth", depth, AtomicInteger::get)
+                .description("Envíos de POST /orders/async en cola o en proceso")
+                .register(registry);
+        this.waitTimer = Timer.builder("orders.async.queue.wait")
+                .description("Tiempo en cola de los envíos de POST /orders/async hasta que un worker los toma")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        List<QueuedOrder> pending = store.findPending();
+        queue.addAll(pending);
+        depth.set(pending.size());
+        if (!pending.isEmpty()) {
+            log.info("Re-queued {} pending async order submissions", pending.size());
+        }
+
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::work, "order-async-" + i);
+            worker.start();
+            workerThreads.add(worker);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // Los envíos que no terminen siguen PENDING en la tabla y se reanudan al arrancar
+        running = false;
+        requeueScheduler.shutdownNow();
+        workerThreads.forEach(Thread::interrupt);
+        for (Thread worker : workerThreads) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Guarda y encola un envío
+     *
+     * @throws RetryLaterException 429 si la cola está llena
+     */
+    public OrderSubmission submit(OrderRequest request) {
+        if (depth.incrementAndGet() > capacity) {
+            depth.decrementAndGet();
+            throw new RetryLaterException(HttpStatus.TOO_MANY_REQUESTS, "ORDER_ASYNC-001",
+                    converterErrors.getMessage("ORDER_ASYNC-001", capacity), retryAfter);
+        }
+        try {
+            // Precisión de la columna: el estado devuelto ahora coincide con el que se lee después
+            Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+            long id = store.insert(request, now);
+            queue.add(new QueuedOrder(id, request, now));
+            return OrderSubmission.pending(id, now);
+        } catch (RuntimeException e) {
+            depth.decrementAndGet();
+            throw e;
+        }
+    }
+
+    public Optional<OrderSubmission> find(long id) {
+        return store.find(id);
+    }
+
+    @Scheduled(fixedDelayString = "${orders.async.purge-interval:1h}")
+    public void purge() {
+        int purged = store.purgeCompletedBefore(Instant.now().minus(retention));
+        if (purged > 0) {
+            log.info("Purged {} completed async order submissions", purged);
+        }
+    }
+
+    private void work() {
+        while (running) {
+            List<QueuedOrder> batch = new ArrayList<>(batchSize);
+            boolean requeued = false;
+            try {
+                QueuedOrder first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                Instant now = Instant.now();
+                batch.forEach(queued -> waitTimer.record(Duration.between(queued.submittedAt(), now)));
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Ni siquiera se pudo guardar el rechazo: los envíos siguen PENDING y siguen contando en la cola
+                log.error("Async batch of {} orders could not be completed, re-queued in {}: {}",
+                        batch.size(), requeueDelay, e.getMessage());
+                requeued = requeue(batch);
+            } finally {
+                if (!requeued) {
+                    depth.addAndGet(-batch.size());
+                }
+            }
+        }
+    }
+
+    /**
+     * Procesa el lote tras orders.async.retry-delay mientras queden intentos: completo si falla
+     * algo distinto de un rechazo de negocio (base de datos), y solo los envíos pendientes si el
+     * catálogo no ha resuelto alguno de sus libros. Agotados los intentos, los envíos que quedan
+     * se rechazan (GENERIC-005 o GENERIC-006). Antes de cada reintento se vuelve a leer qué envíos
+     * siguen PENDING: un intento fallido puede haber confirmado ya parte de los pedidos
+     */
+    private void process(List<QueuedOrder> batch) throws InterruptedException {
+        List<QueuedOrder> pending = batch;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (attempt > 1) {
+                    pending = stillPending(pending);
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+                }
+                Map<QueuedOrder, Set<Long>> unavailable = processor.process(pending);
+                if (unavailable.isEmpty()) {
+                    return;
+                }
+                log.warn("Catalogue unavailable for {} of {} async orders (attempt {}/{})",
+                        unavailable.size(), pending.size(), attempt, maxAttempts);
+                if (attempt >= maxAttempts) {
+                    processor.failUnavailable(unavailable);
+                    return;
+                }
+                pending = List.copyOf(unavailable.keySet());
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.error("Async batch of {} orders failed (attempt {}/{}): {}", pending.size(), attempt, maxAttempts, e.getMessage());
+                if (attempt >= maxAttempts) {
+                    processor.fail(pending);
+                    return;
+                }
+            }
+            Thread.sleep(retryDelay.toMillis());
+        }
+    }
+
+    /**
+     * Vuelve a encolar el lote pasado orders.async.requeue-delay. Un envío que otro intento haya
+     * completado entretanto no genera otro pedido: {@link OrderSubmissionProcessor} solo completa
+     * envíos PENDING
+     *
+     * @return false si la cola se está deteniendo (los envíos se reanudan al arrancar)
+     */
+    private boolean requeue(List<QueuedOrder> batch) {
+        if (!running) {
+            return false;
+        }
+        List<QueuedOrder> pending = List.copyOf(batch);
+        try {
+            requeueScheduler.schedule(() -> queue.addAll(pending), requeueDelay.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private List<QueuedOrder> stillPending(List<QueuedOrder> batch) {
+        Set<Long> pendingIds = store.findPendingIds(batch.stream().map(QueuedOrder::id).toList());
+        return batch.stream().filter(queued -> pendingIds.contains(queued.id())).toList();
+    }
+}
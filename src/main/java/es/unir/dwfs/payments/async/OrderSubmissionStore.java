@@ -0,0 +1,151 @@
+package es.unir.dwfs.payments.async;
+
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.exception.ErrorResponse;
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Tabla order_submissions: cada envío a POST /orders/async se guarda (con su petición en JSON)
+ * antes de responder 202, de modo que sobrevive a un reinicio. Al completarse se guarda el
+ * resultado en la misma fila
+ */
+@Component
+@ConditionalOnProperty(name = "orders.async.enabled", havingValue = "true", matchIfMissing = true)
+public class OrderSubmissionStore {
+
+    private static final TypeReference<List<ErrorResponse.ErrorDetail>> ERRORS = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OrderSubmissionStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void createTable() {
+        jdbcTemplate.execute("""
+                create table if not exists order_submissions (
+                    id bigint generated by default as identity primary key,
+                    status varchar(10) not null,
+                    request varchar not null,
+                    order_id bigint,
+                    message varchar(500),
+                    errors varchar,
+                    submitted_at timestamp not null,
+                    completed_at timestamp)""");
+        jdbcTemplate.execute("create index if not exists idx_order_submissions_status on order_submissions (status, id)");
+    }
+
+    /**
+     * Guarda un envío pendiente
+     *
+     * @return ID del envío
+     */
+    public long insert(OrderRequest request, Instant submittedAt) {
+        String json = objectMapper.writeValueAsString(request);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "insert into order_submissions (status, request, submitted_at) values (?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            statement.setString(1, SubmissionStatus.PENDING.name());
+            statement.setString(2, json);
+            statement.setTimestamp(3, Timestamp.from(submittedAt));
+            return statement;
+        }, keyHolder);
+        return keyHolder.getKeyAs(Long.class);
+    }
+
+    public Optional<OrderSubmission> find(long id) {
+        return jdbcTemplate.query("""
+                        select id, status, order_id, message, errors, submitted_at, completed_at
+                        from order_submissions where id = ?""",
+                (rs, rowNum) -> {
+                    String errors = rs.getString("errors");
+                    Timestamp completedAt = rs.getTimestamp("completed_at");
+                    return new OrderSubmission(rs.getLong("id"), SubmissionStatus.valueOf(rs.getString("status")),
+                            rs.getObject("order_id", Long.class), rs.getString("message"),
+                            errors != null ? objectMapper.readValue(errors, ERRORS) : null,
+                            rs.getTimestamp("submitted_at").toInstant(),
+                            completedAt != null ? completedAt.toInstant() : null);
+                }, id).stream().findFirst();
+    }
+
+    /**
+     * Envíos pendientes en orden de llegada, para volver a encolarlos al arrancar
+     */
+    public List<QueuedOrder> findPending() {
+        return jdbcTemplate.query("""
+                        select id, request, submitted_at from order_submissions
+                        where status = ? order by id""",
+                (rs, rowNum) -> new QueuedOrder(rs.getLong("id"),
+                        objectMapper.readValue(rs.getString("request"), OrderRequest.class),
+                        rs.getTimestamp("submitted_at").toInstant()),
+                SubmissionStatus.PENDING.name());
+    }
+
+    /**
+     * IDs de los envíos indicados que siguen PENDING
+     */
+    public Set<Long> findPendingIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "select id from order_submissions where status = ? and id in (%s)"
+                        .formatted(String.join(", ", Collections.nCopies(ids.size(), "?"))),
+                Long.class, Stream.concat(Stream.of(SubmissionStatus.PENDING.name()), ids.stream()).toArray()));
+    }
+
+    /**
+     * Marca los envíos como aceptados o rechazados. Se llama en la transacción que guarda sus pedidos.
+     * Solo cambia los que siguen PENDING: un envío ya completado no se sobrescribe
+     *
+     * @return envíos actualizados
+     */
+    public int complete(List<OrderSubmission> results) {
+        int[] counts = jdbcTemplate.batchUpdate("""
+                        update order_submissions
+                        set status = ?, order_id = ?, message = ?, errors = ?, completed_at = ?
+                        where id = ? and status = ?""",
+                results.stream().map(result -> new Object[]{
+                        result.status().name(), result.orderId(), result.message(),
+                        result.errors() != null ? objectMapper.writeValueAsString(result.errors()) : null,
+                        Timestamp.from(result.completedAt()), result.id(), SubmissionStatus.PENDING.name()}).toList());
+        // SUCCESS_NO_INFO: el driver no informa del número de filas
+        return (int) Arrays.stream(counts).filter(count -> count > 0 || count == Statement.SUCCESS_NO_INFO).count();
+    }
+
+    /**
+     * Borra los envíos completados antes del instante indicado
+     *
+     * @return filas borradas
+     */
+    public int purgeCompletedBefore(Instant instant) {
+        return jdbcTemplate.update("delete from order_submissions where status <> ? and completed_at < ?",
+                SubmissionStatus.PENDING.name(), Timestamp.from(instant));
+    }
+}
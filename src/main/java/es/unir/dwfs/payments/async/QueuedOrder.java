@@ -0,0 +1,11 @@
+package es.unir.dwfs.payments.async;
+
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+
+import java.time.Instant;
+
+/**
+ * Envío pendiente en la cola en memoria
+ */
+public record QueuedOrder(long id, OrderRequest request, Instant submittedAt) {
+}
@@ -0,0 +1,19 @@
+package es.unir.dwfs.payments.async;
+
+/**
+ * Estado de un pedido enviado a POST /orders/async
+ */
+public enum SubmissionStatus {
+    /**
+     * En cola, pendiente de validar contra el catálogo
+     */
+    PENDING,
+    /**
+     * Pedido creado (orderId)
+     */
+    ACCEPTED,
+    /**
+     * Pedido rechazado, con los mismos códigos de error que POST /orders
+     */
+    REJECTED
+}
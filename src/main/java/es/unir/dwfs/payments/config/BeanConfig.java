@@ -1,9 +1,19 @@
 package es.unir.dwfs.payments.config;
 
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Configuración de beans
@@ -19,4 +29,58 @@ public class BeanConfig {
     public WebClient.Builder webClient() {
         return WebClient.builder();
     }
+
+    /**
+     * Pool de conexiones al catálogo. Publica en Micrometer las métricas
+     * reactor.netty.connection.provider.* (conexiones activas, ociosas y peticiones pendientes)
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider catalogueConnectionProvider(
+            @Value("${getBook.pool.max-connections:100}") int maxConnections,
+            @Value("${getBook.pool.pending-acquire-max-count:500}") int pendingAcquireMaxCount,
+            @Value("${getBook.pool.pending-acquire-timeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${getBook.pool.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${getBook.pool.max-life-time:5m}") Duration maxLifeTime,
+            @Value("${getBook.pool.evict-interval:30s}") Duration evictInterval) {
+
+        return ConnectionProvider.builder("catalogue")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInterval)
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * WebClient del catálogo, construido una sola vez a partir del builder con LoadBalanced
+     */
+    @Bean
+    public WebClient catalogueWebClient(
+            @LoadBalanced WebClient.Builder webClientBuilder,
+            ConnectionProvider catalogueConnectionProvider,
+            @Value("${getBook.timeouts.connect:1s}") Duration connectTimeout,
+            @Value("${getBook.timeouts.read:3s}") Duration readTimeout,
+            @Value("${getBook.timeouts.response:3s}") Duration responseTimeout,
+            @Value("${getBook.http2:false}") boolean http2,
+            @Value("${getBook.compression:true}") boolean compression) {
+
+        HttpClient httpClient = HttpClient.create(catalogueConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(responseTimeout)
+                .doOnConnected(connection -> connection.addHandlerLast(
+                        new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS)))
+                .compress(compression)
+                .protocol(http2
+                        ? new HttpProtocol[]{HttpProtocol.HTTP11, HttpProtocol.H2C}
+                        : new HttpProtocol[]{HttpProtocol.HTTP11});
+
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
 }
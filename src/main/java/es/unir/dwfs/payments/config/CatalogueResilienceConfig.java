@@ -0,0 +1,72 @@
+package es.unir.dwfs.payments.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+
+/**
+ * Configuración del circuit breaker de las llamadas al catálogo
+ */
+@Configuration
+@Slf4j
+public class CatalogueResilienceConfig {
+
+    /**
+     * Registro de circuit breakers con la configuración del catálogo. Un 404 es una respuesta
+     * válida del catálogo y no cuenta como fallo
+     */
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(
+            @Value("${getBook.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${getBook.circuit-breaker.slow-call-rate-threshold:80}") float slowCallRateThreshold,
+            @Value("${getBook.circuit-breaker.slow-call-duration:2s}") Duration slowCallDuration,
+            @Value("${getBook.circuit-breaker.sliding-window-size:50}") int slidingWindowSize,
+            @Value("${getBook.circuit-breaker.minimum-calls:20}") int minimumCalls,
+            @Value("${getBook.circuit-breaker.wait-in-open:10s}") Duration waitInOpen,
+            @Value("${getBook.circuit-breaker.half-open-calls:5}") int halfOpenCalls,
+            MeterRegistry meterRegistry) {
+
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .waitDurationInOpenState(waitInOpen)
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .ignoreExceptions(WebClientResponseException.NotFound.class)
+                .build();
+
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    /**
+     * Circuit breaker del catálogo. Cada transición de estado se registra en el log y en el
+     * contador catalogue.circuitbreaker.transitions
+     */
+    @Bean
+    public CircuitBreaker catalogueCircuitBreaker(CircuitBreakerRegistry registry, MeterRegistry meterRegistry) {
+        CircuitBreaker circuitBreaker = registry.circuitBreaker("catalogue");
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            log.warn("Catalogue circuit breaker transition: {}", event.getStateTransition());
+            meterRegistry.counter("catalogue.circuitbreaker.transitions",
+                            "from", event.getStateTransition().getFromState().name(),
+                            "to", event.getStateTransition().getToState().name())
+                    .increment();
+        });
+        return circuitBreaker;
+    }
+}
@@ -0,0 +1,34 @@
+package es.unir.dwfs.payments.config;
+
+import es.unir.dwfs.payments.logging.LogSampler;
+import es.unir.dwfs.payments.logging.RateLimitedSqlLogger;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuración de las trazas de alto volumen: muestreo de las trazas por item y SQL con
+ * límite de frecuencia
+ */
+@Configuration
+public class LoggingConfig {
+
+    /**
+     * Muestreo de las trazas DEBUG por item de pedido
+     */
+    @Bean
+    public LogSampler itemLogSampler(@Value("${orders.logging.item-sample-rate:0.01}") double rate) {
+        return new LogSampler(rate);
+    }
+
+    /**
+     * Registra el inspector de sentencias que escribe el SQL a nivel DEBUG con límite de frecuencia
+     */
+    @Bean
+    public HibernatePropertiesCustomizer sqlLoggingCustomizer(
+            @Value("${orders.logging.sql-max-per-second:20}") int maxPerSecond) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new RateLimitedSqlLogger(maxPerSecond));
+    }
+}
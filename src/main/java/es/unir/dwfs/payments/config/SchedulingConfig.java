@@ -0,0 +1,12 @@
+package es.unir.dwfs.payments.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Tareas periódicas (@Scheduled), como el envío de la outbox de pedidos
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
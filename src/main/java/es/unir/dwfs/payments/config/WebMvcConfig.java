@@ -0,0 +1,27 @@
+package es.unir.dwfs.payments.config;
+
+import es.unir.dwfs.payments.limit.ConcurrencyLimitInterceptor;
+import es.unir.dwfs.payments.limit.RateLimitInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Interceptores de Spring MVC, como los límites por cliente y de concurrencia de los endpoints de
+ * pedidos. El límite por cliente va primero, para que sus rechazos no ocupen huecos del de concurrencia
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<RateLimitInterceptor> rateLimitInterceptor;
+    private final ObjectProvider<ConcurrencyLimitInterceptor> concurrencyLimitInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        rateLimitInterceptor.ifAvailable(registry::addInterceptor);
+        concurrencyLimitInterceptor.ifAvailable(registry::addInterceptor);
+    }
+}
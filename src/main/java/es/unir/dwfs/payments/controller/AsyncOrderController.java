@@ -0,0 +1,90 @@
+package es.unir.dwfs.payments.controller;
+
+import es.unir.dwfs.payments.async.OrderSubmission;
+import es.unir.dwfs.payments.async.OrderSubmissionQueue;
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.exception.ErrorResponse;
+import es.unir.dwfs.payments.limit.RateLimited;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+
+/**
+ * Controlador REST de creación asíncrona de pedidos: el pedido se encola y se valida contra el
+ * catálogo en segundo plano, sin mantener abierta la conexión del cliente
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "orders.async.enabled", havingValue = "true", matchIfMissing = true)
+@Tag(name = "Async Orders Controller", description = "API REST de creación asíncrona de pedidos con consulta de estado")
+public class AsyncOrderController {
+
+    private final OrderSubmissionQueue queue;
+    private final ConverterErrors converterErrors;
+
+    @PostMapping("/orders/async")
+    @Operation(summary = "Encolar pedido", description = """
+            Valida el formato del pedido (mismos códigos que POST /orders), lo guarda en una cola persistente y responde
+            202 con la cabecera **Location** del envío. El pedido se valida contra el catálogo y se crea en segundo plano;
+            su estado se consulta en GET /orders/async/{id}
+            """, responses = {
+            @ApiResponse(responseCode = "202", description = "Accepted - Pedido encolado (estado PENDING)"),
+            @ApiResponse(responseCode = "400", description = "Bad Request - Errores de formato o validación, como en POST /orders"),
+            @ApiResponse(responseCode = "429", description = """
+                    Too Many Requests - La cola está llena o el cliente ha superado su límite de peticiones; la cabecera
+                    Retry-After indica cuándo reintentar:
+
+                    - **ORDER_ASYNC-001**: La cola de pedidos está llena
+                    - **ORDER_RATE-001**: Se ha superado el límite de peticiones de este cliente
+                    """)
+    })
+    @RateLimited("async-orders")
+    public ResponseEntity<OrderSubmission> submitOrder(@RequestBody @Valid OrderRequest request) {
+
+        OrderSubmission submission = queue.submit(request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/orders/async/" + submission.id()))
+                .body(submission);
+    }
+
+    @GetMapping("/orders/async/{id}")
+    @Operation(summary = "Estado de un pedido encolado", description = """
+            PENDING mientras está en cola, ACCEPTED con el **orderId** del pedido creado, o REJECTED con **message** y
+            **errors** (mismos códigos que POST /orders, por ejemplo ORDER_BUSINESS-001 u ORDER_BUSINESS-002). Si el
+            catálogo no responde, el envío sigue PENDING y se reintenta; agotados los reintentos se rechaza con GENERIC-006
+            """, responses = {
+            @ApiResponse(responseCode = "200", description = "OK - Estado del envío"),
+            @ApiResponse(responseCode = "404", description = """
+                    Not Found - No existe el envío:
+
+                    - **ORDER_ASYNC-002**: No existe un envío de pedido con el ID especificado
+                    """)
+    })
+    public ResponseEntity<?> getSubmission(@PathVariable Long id, HttpServletRequest request) {
+
+        return queue.find(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(ErrorResponse.builder()
+                        .timestamp(LocalDateTime.now())
+                        .status(HttpStatus.NOT_FOUND.value())
+                        .error(HttpStatus.NOT_FOUND.getReasonPhrase())
+                        .message(converterErrors.getMessage("ORDER_ASYNC-002"))
+                        .path(request.getRequestURI())
+                        .build()));
+    }
+}
@@ -0,0 +1,53 @@
+package es.unir.dwfs.payments.controller;
+
+import es.unir.dwfs.payments.facade.BookCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controlador REST de administración de la caché local de libros
+ */
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Book Cache Controller", description = "API REST de administración de la caché local de libros del catálogo")
+public class BookCacheController {
+
+    private final BookCache bookCache;
+
+    @GetMapping("/admin/book-cache")
+    @Operation(summary = "Estadísticas de la caché", description = "Devuelve el tamaño y los contadores de aciertos, fallos, refrescos y expulsiones de la caché de libros", responses = {
+            @ApiResponse(responseCode = "200", description = "OK - Estadísticas devueltas correctamente")
+    })
+    public ResponseEntity<BookCache.Stats> getStats() {
+        return ResponseEntity.ok(bookCache.stats());
+    }
+
+    @DeleteMapping("/admin/book-cache/{bookId}")
+    @Operation(summary = "Invalidar un libro", description = "Elimina de la caché el libro indicado. La siguiente consulta irá al catálogo", responses = {
+            @ApiResponse(responseCode = "204", description = "No Content - Libro invalidado")
+    })
+    public ResponseEntity<Void> invalidate(@PathVariable Long bookId) {
+        log.info("Invalidating cached book with ID {}", bookId);
+        bookCache.invalidate(bookId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/admin/book-cache")
+    @Operation(summary = "Vaciar la caché", description = "Elimina todos los libros de la caché", responses = {
+            @ApiResponse(responseCode = "204", description = "No Content - Caché vaciada")
+    })
+    public ResponseEntity<Void> invalidateAll() {
+        log.info("Invalidating all cached books");
+        bookCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+}
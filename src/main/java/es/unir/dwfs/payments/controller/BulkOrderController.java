@@ -0,0 +1,204 @@
+package es.unir.dwfs.payments.controller;
+
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.exception.ErrorResponse;
+import es.unir.dwfs.payments.limit.RateLimited;
+import es.unir.dwfs.payments.service.BulkOrderResult;
+import es.unir.dwfs.payments.service.BulkOrdersService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Controlador REST de creación de pedidos en lote para integraciones y reprocesos
+ */
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Orders Controller", description = "API REST para gestión de pedidos de libros. Incluye validación de existencia y visibilidad de libros con manejo robusto de errores")
+public class BulkOrderController {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int STREAM_FLUSH_EVERY = 100;
+
+    private final BulkOrdersService service;
+    private final ConverterErrors converterErrors;
+    private final ObjectMapper objectMapper;
+
+    @Value("${orders.bulk.max-orders:10000}")
+    private int maxOrders;
+
+    @Value("${orders.bulk.timeout:30m}")
+    private Duration timeout;
+
+    @PostMapping(value = "/orders/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON}, produces = NDJSON)
+    @Operation(summary = "Crear pedidos en lote", description = """
+            Recibe un array JSON o un flujo NDJSON de pedidos con el mismo formato que POST /orders.
+            Devuelve en NDJSON una línea por pedido, en el orden del lote, con su **id** si se ha creado o con
+            **status**, **message** y **errors** (mismos códigos que POST /orders) si se ha rechazado.
+            Un pedido erróneo no impide crear el resto. Los pedidos con status **503** (GENERIC-006: catálogo
+            no disponible) pueden reenviarse.
+
+            El lote se procesa por bloques a medida que se lee. Si el cuerpo deja de ser válido o supera el
+            máximo de pedidos después del primer bloque, los pedidos anteriores se procesan y la respuesta
+            termina con una línea status 400 (ORDER_BULK-001 u ORDER_BULK-002) cuyo **index** es el primer
+            pedido no procesado
+            """, responses = {
+            @ApiResponse(responseCode = "200", description = "OK - Resultados por pedido enviados en streaming"),
+            @ApiResponse(responseCode = "400", description = """
+                    Bad Request - El lote no se puede procesar:
+
+                    - **ORDER_BULK-001**: El cuerpo debe ser un array JSON o un flujo NDJSON de pedidos
+                    - **ORDER_BULK-002**: El lote debe contener entre 1 y el máximo configurado de pedidos
+                    """),
+            @ApiResponse(responseCode = "429", description = "Too Many Requests - Límite de peticiones del cliente superado, con cabecera Retry-After (ORDER_RATE-001)")
+    })
+    @RateLimited("bulk-orders")
+    public ResponseEntity<StreamingResponseBody> createOrders(HttpServletRequest request) throws IOException {
+
+        StreamingTimeout.set(request, timeout);
+        OrderReader orders = new OrderReader(request.getInputStream());
+        // El primer pedido se lee antes de responder: un cuerpo vacío o inválido sigue siendo un 400
+        try {
+            if (!orders.hasNext()) {
+                throw new InvalidBulkException("ORDER_BULK-002", converterErrors.getMessage("ORDER_BULK-002", maxOrders));
+            }
+        } catch (InvalidBulkException e) {
+            orders.close();
+            throw e;
+        }
+        log.info("Creating orders in bulk");
+
+        StreamingResponseBody body = outputStream -> {
+            int[] written = {0};
+            try (orders) {
+                service.createOrders(orders, result -> write(outputStream, result, ++written[0]));
+            } catch (InvalidBulkException e) {
+                // La respuesta ya ha empezado: el error se informa en la última línea
+                write(outputStream, BulkOrderResult.rejected(orders.read, HttpStatus.BAD_REQUEST.value(),
+                        e.getReason(), List.of(ErrorResponse.ErrorDetail.builder()
+                                .code(e.code)
+                                .description(e.getReason())
+                                .build())), 0);
+            }
+            outputStream.flush();
+            log.info("Bulk of {} orders processed", written[0]);
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    private void write(OutputStream outputStream, BulkOrderResult result, int written) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(result));
+            outputStream.write('\n');
+            if (written % STREAM_FLUSH_EVERY == 0) {
+                outputStream.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lee un array JSON o una secuencia de objetos JSON separados por saltos de línea, pedido a
+     * pedido, y falla en cuanto el cuerpo deja de ser válido o supera orders.bulk.max-orders. El
+     * siguiente pedido se lee por adelantado en hasNext
+     */
+    private final class OrderReader implements Iterator<OrderRequest>, AutoCloseable {
+
+        private final MappingIterator<OrderRequest> values;
+        private OrderRequest next;
+        private boolean buffered;
+
+        /**
+         * Pedidos leídos sin error, incluido el que está por adelantado
+         */
+        private int read;
+
+        OrderReader(InputStream body) {
+            try {
+                this.values = objectMapper.readerFor(OrderRequest.class).readValues(body);
+            } catch (JacksonException e) {
+                throw invalidBody(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (buffered) {
+                return true;
+            }
+            try {
+                if (!values.hasNextValue()) {
+                    return false;
+                }
+                if (read == maxOrders) {
+                    throw new InvalidBulkException("ORDER_BULK-002", converterErrors.getMessage("ORDER_BULK-002", maxOrders));
+                }
+                next = values.nextValue();
+                read++;
+                buffered = true;
+                return true;
+            } catch (JacksonException e) {
+                throw invalidBody(e);
+            }
+        }
+
+        @Override
+        public OrderRequest next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            buffered = false;
+            return next;
+        }
+
+        @Override
+        public void close() {
+            values.close();
+        }
+
+        private InvalidBulkException invalidBody(JacksonException e) {
+            log.error("Invalid bulk body: {}", e.getOriginalMessage());
+            return new InvalidBulkException("ORDER_BULK-001", converterErrors.getMessage("ORDER_BULK-001"));
+        }
+    }
+
+    /**
+     * Cuerpo del lote no válido (400). Antes de empezar la respuesta lo trata GlobalExceptionHandler
+     */
+    private static class InvalidBulkException extends ResponseStatusException {
+        private static final long serialVersionUID = 1L;
+
+        private final String code;
+
+        InvalidBulkException(String code, String message) {
+            super(HttpStatus.BAD_REQUEST, message);
+            this.code = code;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package es.unir.dwfs.payments.controller;
+
+import es.unir.dwfs.payments.data.model.BookSales;
+import es.unir.dwfs.payments.data.model.OrderTotal;
+import es.unir.dwfs.payments.data.model.RevenueBucket;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.exception.ErrorResponse;
+import es.unir.dwfs.payments.service.BookRanking;
+import es.unir.dwfs.payments.service.OrderAnalyticsService;
+import es.unir.dwfs.payments.service.RevenueGranularity;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Controlador REST de importes y agregados de ventas, calculados en la base de datos
+ */
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Orders Analytics Controller", description = "API REST de importes de pedidos y agregados de ventas calculados en la base de datos")
+public class OrderAnalyticsController {
+
+    private final OrderAnalyticsService service;
+    private final ConverterErrors converterErrors;
+
+    @GetMapping("/orders/{id}/total")
+    @Operation(summary = "Importe de un pedido", description = "Líneas e importe (suma de quantity × capturedUnitPrice) de un pedido, guardados al crearlo", responses = {
+            @ApiResponse(responseCode = "200", description = "OK - Importe devuelto correctamente"),
+            @ApiResponse(responseCode = "404", description = "Not Found - No existe un pedido con el ID especificado")
+    })
+    public ResponseEntity<?> getOrderTotal(@PathVariable String id, HttpServletRequest request) {
+
+        OrderTotal total = service.getOrderTotal(id);
+        if (total != null) {
+            return ResponseEntity.ok(total);
+        }
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.NOT_FOUND.value())
+                .error(HttpStatus.NOT_FOUND.getReasonPhrase())
+                .message(converterErrors.getMessage("ORDER-404-001"))
+                .path(request.getRequestURI())
+                .build();
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+    }
+
+    @GetMapping("/analytics/revenue")
+    @Operation(summary = "Ventas por periodo", description = """
+            Pedidos, unidades e importe por hora (granularity=HOUR) o por día (granularity=DAY), en UTC,
+            dentro del rango [from, to) con fechas ISO-8601 (por ejemplo 2025-01-31T00:00:00Z).
+            Sin fechas se devuelven los últimos días configurados
+            """, responses = {
+            @ApiResponse(responseCode = "200", description = "OK - Ventas devueltas correctamente"),
+            @ApiResponse(responseCode = "400", description = """
+                    Bad Request - Parámetros no válidos:
+
+                    - **ANALYTICS-001**: La fecha 'from' debe ser anterior a 'to'
+                    - **ANALYTICS-002**: El rango de fechas supera el máximo configurado
+                    """)
+    })
+    public ResponseEntity<List<RevenueBucket>> getRevenue(
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "DAY") RevenueGranularity granularity) {
+
+        return ResponseEntity.ok(service.getRevenue(from, to, granularity));
+    }
+
+    @GetMapping("/analytics/top-books")
+    @Operation(summary = "Libros más vendidos", description = "Los libros con más unidades (by=UNITS) o más importe (by=REVENUE) vendidos en el rango [from, to)", responses = {
+            @ApiResponse(responseCode = "200", description = "OK - Ranking devuelto correctamente"),
+            @ApiResponse(responseCode = "400", description = """
+                    Bad Request - Parámetros no válidos:
+
+                    - **ANALYTICS-001**: La fecha 'from' debe ser anterior a 'to'
+                    - **ANALYTICS-002**: El rango de fechas supera el máximo configurado
+                    - **ANALYTICS-003**: El parámetro 'limit' debe estar entre 1 y el máximo configurado
+                    """)
+    })
+    public ResponseEntity<List<BookSales>> getTopBooks(
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "UNITS") BookRanking by,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        return ResponseEntity.ok(service.getTopBooks(from, to, by, limit));
+    }
+}
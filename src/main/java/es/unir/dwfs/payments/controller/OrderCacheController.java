@@ -0,0 +1,42 @@
+package es.unir.dwfs.payments.controller;
+
+import es.unir.dwfs.payments.service.OrderCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controlador REST de administración de la caché local de pedidos
+ */
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Order Cache Controller", description = "API REST de administración de la caché local de pedidos")
+public class OrderCacheController {
+
+    private final OrderCache orderCache;
+
+    @GetMapping("/admin/order-cache")
+    @Operation(summary = "Estadísticas de la caché", description = "Devuelve el número de pedidos, la memoria estimada en bytes, los aciertos, los fallos, la tasa de aciertos y las expulsiones de la caché de pedidos", responses = {
+            @ApiResponse(responseCode = "200", description = "OK - Estadísticas devueltas correctamente")
+    })
+    public ResponseEntity<OrderCache.Stats> getStats() {
+        return ResponseEntity.ok(orderCache.stats());
+    }
+
+    @DeleteMapping("/admin/order-cache")
+    @Operation(summary = "Vaciar la caché", description = "Elimina todos los pedidos de la caché", responses = {
+            @ApiResponse(responseCode = "204", description = "No Content - Caché vaciada")
+    })
+    public ResponseEntity<Void> invalidateAll() {
+        log.info("Invalidating all cached orders");
+        orderCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,103 @@
+package es.unir.dwfs.payments.controller;
+
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.limit.ConcurrencyLimited;
+import es.unir.dwfs.payments.limit.LimitGroup;
+import es.unir.dwfs.payments.limit.RateLimited;
+import es.unir.dwfs.payments.service.OrderSnapshot;
+import es.unir.dwfs.payments.service.OrderView;
+import es.unir.dwfs.payments.service.OrdersService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controlador REST de creación de pedidos en modo bloqueante (orders.execution-mode=blocking)
+ */
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "orders.execution-mode", havingValue = "blocking", matchIfMissing = true)
+@Tag(name = "Orders Controller", description = "API REST para gestión de pedidos de libros. Incluye validación de existencia y visibilidad de libros con manejo robusto de errores")
+public class OrderCreationController {
+
+    private final OrdersService service;
+
+    @PostMapping("/orders")
+    @Operation(summary = "Crear pedido", description = "Crea un nuevo pedido validando que todos los libros existan en el catálogo y estén visibles para la venta. Con la cabecera Idempotency-Key los reintentos del mismo cliente devuelven la respuesta original (cabecera Idempotent-Replayed) sin crear otro pedido; reutilizar la clave con otro cuerpo devuelve 422 (IDEMPOTENCY-003)", responses = {
+            @ApiResponse(responseCode = "200", description = "OK - Pedido creado correctamente",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = OrderView.class))),
+            @ApiResponse(responseCode = "400", description = """
+                    Bad Request - La petición contiene errores de formato, sintaxis o validación de datos que impiden su procesamiento. Los errores por validación de datos vienen detallados en el atributo 'details' de la respuesta y pueden ser:
+
+                    **Campo 'items':**
+                    - **ORDER-001**: El parámetro 'items' es obligatorio y no puede estar vacío
+                    - **ORDER-002**: El pedido debe contener al menos un item
+
+                    **Campo 'bookId' (del item):**
+                    - **ORDER_ITEM-001**: El parámetro 'bookId' es obligatorio y no puede estar vacío
+                    - **ORDER_ITEM-002**: El parámetro 'bookId' debe ser mayor a 0
+
+                    **Campo 'quantity' (del item):**
+                    - **ORDER_ITEM-010**: El parámetro 'quantity' es obligatorio y no puede estar vacío
+                    - **ORDER_ITEM-011**: El parámetro 'quantity' debe ser al menos 1
+                    - **ORDER_ITEM-012**: El parámetro 'quantity' no puede superar 999 unidades
+                    """),
+            @ApiResponse(responseCode = "422", description = """
+                    Unprocessable Entity - La petición está bien formada pero contiene errores de lógica de negocio. Los errores vienen detallados en el atributo 'details' de la respuesta y pueden ser:
+
+                    **Validación de libros:**
+                    - **ORDER_BUSINESS-001**: El libro con ID {0} no existe en el catálogo
+                    - **ORDER_BUSINESS-002**: El libro con ID {0} no está disponible para la venta
+                    - **ORDER_BUSINESS-003**: El libro con ID {0} no tiene precio en el catálogo
+                    """),
+            @ApiResponse(responseCode = "409", description = """
+                    Conflict - Violación de restricción de integridad de datos. Los errores pueden ser:
+
+                    **Errores genéricos:**
+                    - **GENERIC-001**: Ya existe un registro con el mismo identificador
+                    - **GENERIC-002**: Faltan campos obligatorios
+                    - **GENERIC-003**: Error de integridad de datos
+                    - **GENERIC-004**: El registro ya existe en el sistema
+                    """),
+            @ApiResponse(responseCode = "500", description = """
+                    Internal Server Error - Error inesperado del servidor:
+
+                    - **GENERIC-005**: Ha ocurrido un error inesperado. Por favor, contacte al administrador
+                    """),
+            @ApiResponse(responseCode = "429", description = """
+                    Too Many Requests - El cliente (API key o IP) ha superado su límite de peticiones; la cabecera Retry-After indica cuándo reintentar:
+
+                    - **ORDER_RATE-001**: Se ha superado el límite de peticiones de este cliente
+                    """),
+            @ApiResponse(responseCode = "503", description = """
+                    Service Unavailable - El pedido puede repetirse cuando indique la cabecera Retry-After:
+
+                    - **ORDER_LIMIT-001**: El servicio está saturado. Reinténtelo más tarde
+                    - **GENERIC-006**: El catálogo de libros no está disponible (error, plazo agotado o circuit breaker abierto) y no hay copia en caché de los libros indicados
+                    """)
+    })
+    @RateLimited("create-order")
+    @ConcurrencyLimited(LimitGroup.WRITE)
+    public ResponseEntity<byte[]> createOrder(@RequestBody @Valid OrderRequest request) {
+
+        log.debug("Creating order with request: {}", request);
+
+        // El servicio lanza ResponseStatusException si hay error de validación y devuelve el JSON ya serializado
+        OrderSnapshot created = service.createOrder(request);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(created.json());
+    }
+}
@@ -0,0 +1,47 @@
+package es.unir.dwfs.payments.controller;
+
+import es.unir.dwfs.payments.feed.OrderFeed;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * Controlador del feed de pedidos nuevos (Server-Sent Events)
+ */
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Orders Feed Controller", description = "Feed en tiempo real de los pedidos creados, como alternativa a consultar GET /orders periódicamente")
+public class OrderFeedController {
+
+    private final OrderFeed orderFeed;
+
+    @GetMapping(value = "/orders/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Feed de pedidos (SSE)", description = """
+            Envía cada pedido creado como un evento `order` cuyo ID es el ID del pedido y cuyos datos son el JSON
+            de GET /orders/{id}. Para reanudar, la cabecera **Last-Event-ID** (la envía EventSource al reconectar) o el
+            parámetro `after` indican el último ID recibido: primero se envían los pedidos posteriores y después los nuevos.
+            Si el cliente no consume a tiempo, su buffer se llena y se descartan eventos o se cierra la conexión según la
+            configuración del servidor
+            """, responses = {
+            @ApiResponse(responseCode = "200", description = "OK - Stream de eventos"),
+            @ApiResponse(responseCode = "503", description = """
+                    Service Unavailable - Límite de clientes alcanzado:
+
+                    - **FEED-001**: Se ha alcanzado el máximo de clientes conectados al feed
+                    """)
+    })
+    public Flux<ServerSentEvent<String>> feed(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(required = false) Long after) {
+
+        return orderFeed.subscribe(lastEventId != null ? lastEventId : after);
+    }
+}
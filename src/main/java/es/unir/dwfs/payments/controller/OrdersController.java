@@ -1,27 +1,41 @@
 package es.unir.dwfs.payments.controller;
 
-import es.unir.dwfs.payments.controller.model.OrderRequest;
-import es.unir.dwfs.payments.data.model.Order;
 import es.unir.dwfs.payments.exception.ConverterErrors;
 import es.unir.dwfs.payments.exception.ErrorResponse;
+import es.unir.dwfs.payments.limit.ConcurrencyLimited;
+import es.unir.dwfs.payments.limit.LimitGroup;
+import es.unir.dwfs.payments.limit.RateLimited;
+import es.unir.dwfs.payments.service.OrderListMode;
+import es.unir.dwfs.payments.service.OrderSnapshot;
+import es.unir.dwfs.payments.service.OrderView;
+import es.unir.dwfs.payments.service.OrdersPage;
 import es.unir.dwfs.payments.service.OrdersService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
- * Controlador REST para gestión de pedidos
+ * Controlador REST para gestión de pedidos. La creación se publica en
+ * {@link OrderCreationController} o {@link ReactiveOrderCreationController} según orders.execution-mode
  */
 @RestController
 @RequiredArgsConstructor
@@ -29,93 +43,131 @@ import java.util.List;
 @Tag(name = "Orders Controller", description = "API REST para gestión de pedidos de libros. Incluye validación de existencia y visibilidad de libros con manejo robusto de errores")
 public class OrdersController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int STREAM_FLUSH_EVERY = 100;
+
     private final OrdersService service;
     private final ConverterErrors converterErrors;
+    private final ObjectMapper objectMapper;
 
-    @PostMapping("/orders")
-    @Operation(summary = "Crear pedido", description = "Crea un nuevo pedido validando que todos los libros existan en el catálogo y estén visibles para la venta", responses = {
-            @ApiResponse(responseCode = "200", description = "OK - Pedido creado correctamente"),
-            @ApiResponse(responseCode = "400", description = """
-                    Bad Request - La petición contiene errores de formato, sintaxis o validación de datos que impiden su procesamiento. Los errores por validación de datos vienen detallados en el atributo 'details' de la respuesta y pueden ser:
-
-                    **Campo 'items':**
-                    - **ORDER-001**: El parámetro 'items' es obligatorio y no puede estar vacío
-                    - **ORDER-002**: El pedido debe contener al menos un item
+    @Value("${orders.page.default-size:50}")
+    private int defaultPageSize;
 
-                    **Campo 'bookId' (del item):**
-                    - **ORDER_ITEM-001**: El parámetro 'bookId' es obligatorio y no puede estar vacío
-                    - **ORDER_ITEM-002**: El parámetro 'bookId' debe ser mayor a 0
+    @Value("${orders.page.export-timeout:1h}")
+    private Duration exportTimeout;
 
-                    **Campo 'quantity' (del item):**
-                    - **ORDER_ITEM-010**: El parámetro 'quantity' es obligatorio y no puede estar vacío
-                    - **ORDER_ITEM-011**: El parámetro 'quantity' debe ser al menos 1
-                    - **ORDER_ITEM-012**: El parámetro 'quantity' no puede superar 999 unidades
-                    """),
-            @ApiResponse(responseCode = "422", description = """
-                    Unprocessable Entity - La petición está bien formada pero contiene errores de lógica de negocio. Los errores vienen detallados en el atributo 'details' de la respuesta y pueden ser:
+    @GetMapping("/orders")
+    @Operation(summary = "Listar pedidos", description = """
+            Obtiene una página de pedidos ordenados por fecha e ID. Si hay más pedidos, la cabecera
+            **X-Next-Cursor** contiene el cursor que debe enviarse en el parámetro `after` para obtener la siguiente página.
+            Con `view=SUMMARY` se devuelve solo la cabecera de cada pedido (fecha, itemCount y totalAmount), sin leer sus items.
+            Con `Accept: application/x-ndjson` se devuelven todos los pedidos, uno por línea, sin paginar
+            """, responses = {
+            @ApiResponse(responseCode = "200", description = "OK - Página de pedidos devuelta exitosamente"),
+            @ApiResponse(responseCode = "400", description = """
+                    Bad Request - Parámetros de paginación no válidos:
 
-                    **Validación de libros:**
-                    - **ORDER_BUSINESS-001**: El libro con ID {0} no existe en el catálogo
-                    - **ORDER_BUSINESS-002**: El libro con ID {0} no está disponible para la venta
-                    """),
-            @ApiResponse(responseCode = "409", description = """
-                    Conflict - Violación de restricción de integridad de datos. Los errores pueden ser:
-
-                    **Errores genéricos:**
-                    - **GENERIC-001**: Ya existe un registro con el mismo identificador
-                    - **GENERIC-002**: Faltan campos obligatorios
-                    - **GENERIC-003**: Error de integridad de datos
-                    - **GENERIC-004**: El registro ya existe en el sistema
+                    - **ORDER_PAGE-001**: El parámetro 'limit' debe estar entre 1 y el máximo configurado
+                    - **ORDER_PAGE-002**: El cursor 'after' no es válido
                     """),
             @ApiResponse(responseCode = "500", description = """
                     Internal Server Error - Error inesperado del servidor:
 
                     - **GENERIC-005**: Ha ocurrido un error inesperado. Por favor, contacte al administrador
-                    """)
-    })
-    public ResponseEntity<Order> createOrder(@RequestBody @Valid OrderRequest request) {
-
-        log.info("Creating order with request: {}", request);
-
-        // El servicio lanza ResponseStatusException si hay error de validación
-        Order created = service.createOrder(request);
-        return ResponseEntity.ok(created);
-    }
+                    """),
+            @ApiResponse(responseCode = "429", description = """
+                    Too Many Requests - El cliente (API key o IP) ha superado su límite de peticiones; la cabecera Retry-After indica cuándo reintentar:
 
-    @GetMapping("/orders")
-    @Operation(summary = "Listar pedidos", description = "Obtiene todos los pedidos registrados en el sistema", responses = {
-            @ApiResponse(responseCode = "200", description = "OK - Lista de pedidos devuelta exitosamente"),
-            @ApiResponse(responseCode = "500", description = """
-                    Internal Server Error - Error inesperado del servidor:
+                    - **ORDER_RATE-001**: Se ha superado el límite de peticiones de este cliente
+                    """),
+            @ApiResponse(responseCode = "503", description = """
+                    Service Unavailable - Se ha alcanzado el límite de peticiones en curso; la cabecera Retry-After indica cuándo reintentar:
 
-                    - **GENERIC-005**: Ha ocurrido un error inesperado. Por favor, contacte al administrador
+                    - **ORDER_LIMIT-001**: El servicio está saturado. Reinténtelo más tarde
                     """)
     })
-    public ResponseEntity<List<Order>> getOrders() {
-
-        List<Order> orders = service.getOrders();
-        if (orders != null) {
-            return ResponseEntity.ok(orders);
-        } else {
-            return ResponseEntity.ok(Collections.emptyList());
+    @RateLimited("read-orders")
+    @ConcurrencyLimited(LimitGroup.READ)
+    public ResponseEntity<List<?>> getOrders(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "FULL") OrderListMode view) {
+
+        int pageSize = limit != null ? limit : defaultPageSize;
+        OrdersPage<?> page = view == OrderListMode.SUMMARY
+                ? service.getOrderSummaries(pageSize, after)
+                : service.getOrders(pageSize, after);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
         }
+        return response.body(page.orders());
+    }
+
+    @GetMapping(value = "/orders", produces = NDJSON)
+    @Operation(summary = "Exportar pedidos (NDJSON)", description = "Escribe todos los pedidos en la respuesta a medida que se leen de la base de datos, un pedido JSON por línea. Con `view=SUMMARY`, solo las cabeceras", responses = {
+            @ApiResponse(responseCode = "200", description = "OK - Pedidos enviados en streaming"),
+            @ApiResponse(responseCode = "429", description = "Too Many Requests - Límite de peticiones del cliente superado, con cabecera Retry-After (ORDER_RATE-001)")
+    })
+    @RateLimited("export-orders")
+    public ResponseEntity<StreamingResponseBody> streamOrders(
+            @RequestParam(defaultValue = "FULL") OrderListMode view,
+            HttpServletRequest request) {
+
+        StreamingTimeout.set(request, exportTimeout);
+        StreamingResponseBody body = outputStream -> {
+            int[] written = {0};
+            Consumer<Object> writer = order -> {
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(order));
+                    outputStream.write('\n');
+                    if (++written[0] % STREAM_FLUSH_EVERY == 0) {
+                        outputStream.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            if (view == OrderListMode.SUMMARY) {
+                service.streamOrderSummaries(writer::accept);
+            } else {
+                service.streamOrders(writer::accept);
+            }
+            outputStream.flush();
+            log.info("Streamed {} orders", written[0]);
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
     @GetMapping("/orders/{id}")
-    @Operation(summary = "Obtener pedido por ID", description = "Obtiene un pedido específico del sistema mediante su identificador único", responses = {
-            @ApiResponse(responseCode = "200", description = "OK - Pedido encontrado y devuelto exitosamente"),
+    @Operation(summary = "Obtener pedido por ID", description = "Obtiene un pedido específico del sistema mediante su identificador único. Los pedidos no cambian tras crearse, por lo que se sirven desde una caché local con el JSON ya serializado", responses = {
+            @ApiResponse(responseCode = "200", description = "OK - Pedido encontrado y devuelto exitosamente",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = OrderView.class))),
             @ApiResponse(responseCode = "404", description = "Not Found - No existe un pedido con el ID especificado"),
             @ApiResponse(responseCode = "500", description = """
                     Internal Server Error - Error inesperado del servidor:
 
                     - **GENERIC-005**: Ha ocurrido un error inesperado. Por favor, contacte al administrador
+                    """),
+            @ApiResponse(responseCode = "429", description = """
+                    Too Many Requests - El cliente (API key o IP) ha superado su límite de peticiones; la cabecera Retry-After indica cuándo reintentar:
+
+                    - **ORDER_RATE-001**: Se ha superado el límite de peticiones de este cliente
+                    """),
+            @ApiResponse(responseCode = "503", description = """
+                    Service Unavailable - Se ha alcanzado el límite de peticiones en curso; la cabecera Retry-After indica cuándo reintentar:
+
+                    - **ORDER_LIMIT-001**: El servicio está saturado. Reinténtelo más tarde
                     """)
     })
+    @RateLimited("read-orders")
+    @ConcurrencyLimited(LimitGroup.READ)
     public ResponseEntity<?> getOrder(@PathVariable String id, HttpServletRequest request) {
 
-        Order order = service.getOrder(id);
+        OrderSnapshot order = service.getOrder(id);
         if (order != null) {
-            return ResponseEntity.ok(order);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(order.json());
         } else {
             ErrorResponse errorResponse = ErrorResponse.builder()
                     .timestamp(LocalDateTime.now())
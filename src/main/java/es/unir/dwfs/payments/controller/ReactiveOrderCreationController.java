@@ -0,0 +1,60 @@
+package es.unir.dwfs.payments.controller;
+
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.limit.ConcurrencyLimited;
+import es.unir.dwfs.payments.limit.LimitGroup;
+import es.unir.dwfs.payments.limit.RateLimited;
+import es.unir.dwfs.payments.service.OrderView;
+import es.unir.dwfs.payments.service.ReactiveOrdersService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Controlador REST de creación de pedidos en modo reactivo (orders.execution-mode=reactive).
+ * El hilo del servidor se libera mientras se consulta el catálogo; la respuesta se completa de
+ * forma asíncrona con los mismos códigos de error que el modo bloqueante
+ */
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "orders.execution-mode", havingValue = "reactive")
+@Tag(name = "Orders Controller", description = "API REST para gestión de pedidos de libros. Incluye validación de existencia y visibilidad de libros con manejo robusto de errores")
+public class ReactiveOrderCreationController {
+
+    private final ReactiveOrdersService service;
+
+    @PostMapping("/orders")
+    @Operation(summary = "Crear pedido", description = "Crea un nuevo pedido validando que todos los libros existan en el catálogo y estén visibles para la venta. Las consultas al catálogo no bloquean hilos del servidor. Con la cabecera Idempotency-Key los reintentos del mismo cliente devuelven la respuesta original sin crear otro pedido; reutilizar la clave con otro cuerpo devuelve 422 (IDEMPOTENCY-003)", responses = {
+            @ApiResponse(responseCode = "200", description = "OK - Pedido creado correctamente",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = OrderView.class))),
+            @ApiResponse(responseCode = "400", description = "Bad Request - Errores de formato o validación de datos (ORDER-00X, ORDER_ITEM-0XX)"),
+            @ApiResponse(responseCode = "422", description = "Unprocessable Entity - Errores de lógica de negocio (ORDER_BUSINESS-001, ORDER_BUSINESS-002, ORDER_BUSINESS-003)"),
+            @ApiResponse(responseCode = "409", description = "Conflict - Violación de restricción de integridad de datos (GENERIC-001 a GENERIC-004)"),
+            @ApiResponse(responseCode = "500", description = "Internal Server Error - Error inesperado del servidor (GENERIC-005)"),
+            @ApiResponse(responseCode = "429", description = "Too Many Requests - Límite de peticiones del cliente superado, con cabecera Retry-After (ORDER_RATE-001)"),
+            @ApiResponse(responseCode = "503", description = "Service Unavailable - Límite de peticiones en curso alcanzado (ORDER_LIMIT-001) o catálogo no disponible sin copia en caché (GENERIC-006), con cabecera Retry-After")
+    })
+    @RateLimited("create-order")
+    @ConcurrencyLimited(LimitGroup.WRITE)
+    public Mono<ResponseEntity<byte[]>> createOrder(@RequestBody @Valid OrderRequest request) {
+
+        log.debug("Creating order with request: {}", request);
+
+        return service.createOrder(request).map(created -> ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(created.json()));
+    }
+}
@@ -0,0 +1,25 @@
+package es.unir.dwfs.payments.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.time.Duration;
+
+/**
+ * Plazo de una respuesta StreamingResponseBody. Spring la escribe en una petición asíncrona
+ * cuyo plazo por defecto es el del contenedor (30 s en Tomcat), de modo que una exportación o
+ * un lote largos se cortarían a mitad. Debe llamarse desde el método del controlador, antes de
+ * que empiece el procesamiento asíncrono
+ */
+final class StreamingTimeout {
+
+    private StreamingTimeout() {
+    }
+
+    /**
+     * @param timeout plazo de la respuesta; cero para no limitarla
+     */
+    static void set(HttpServletRequest request, Duration timeout) {
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(timeout.toMillis());
+    }
+}
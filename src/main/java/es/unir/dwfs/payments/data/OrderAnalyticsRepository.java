@@ -0,0 +1,65 @@
+package es.unir.dwfs.payments.data;
+
+import es.unir.dwfs.payments.data.model.BookSales;
+import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.data.model.OrderTotal;
+import es.unir.dwfs.payments.data.model.RevenueBucket;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Agregados de ventas calculados con SQL sobre orders y order_items. Los filtros por fecha usan
+ * el índice de orders.order_date y las agrupaciones por libro el de order_items.book_id
+ */
+public interface OrderAnalyticsRepository extends Repository<OrderItem, Long> {
+
+    /**
+     * Lee el importe y las líneas guardados con el pedido: una fila por clave primaria, sin order_items
+     */
+    @Query("""
+            select new es.unir.dwfs.payments.data.model.OrderTotal(o.id, o.itemCount, o.totalAmount)
+            from Order o
+            where o.id = :orderId""")
+    Optional<OrderTotal> findOrderTotal(Long orderId);
+
+    @Query("""
+            select new es.unir.dwfs.payments.data.model.RevenueBucket(
+                truncate(o.orderDate, hour), count(distinct o.id), sum(i.quantity), sum(i.quantity * i.capturedUnitPrice))
+            from Order o join o.items i
+            where o.orderDate >= :from and o.orderDate < :to
+            group by truncate(o.orderDate, hour)
+            order by truncate(o.orderDate, hour)""")
+    List<RevenueBucket> revenueByHour(Instant from, Instant to);
+
+    @Query("""
+            select new es.unir.dwfs.payments.data.model.RevenueBucket(
+                truncate(o.orderDate, day), count(distinct o.id), sum(i.quantity), sum(i.quantity * i.capturedUnitPrice))
+            from Order o join o.items i
+            where o.orderDate >= :from and o.orderDate < :to
+            group by truncate(o.orderDate, day)
+            order by truncate(o.orderDate, day)""")
+    List<RevenueBucket> revenueByDay(Instant from, Instant to);
+
+    @Query("""
+            select new es.unir.dwfs.payments.data.model.BookSales(
+                i.bookId, sum(i.quantity), sum(i.quantity * i.capturedUnitPrice))
+            from OrderItem i join i.order o
+            where o.orderDate >= :from and o.orderDate < :to
+            group by i.bookId
+            order by sum(i.quantity) desc, i.bookId""")
+    List<BookSales> topBooksByUnits(Instant from, Instant to, Limit limit);
+
+    @Query("""
+            select new es.unir.dwfs.payments.data.model.BookSales(
+                i.bookId, sum(i.quantity), sum(i.quantity * i.capturedUnitPrice))
+            from OrderItem i join i.order o
+            where o.orderDate >= :from and o.orderDate < :to
+            group by i.bookId
+            order by sum(i.quantity * i.capturedUnitPrice) desc, i.bookId""")
+    List<BookSales> topBooksByRevenue(Instant from, Instant to, Limit limit);
+}
@@ -1,10 +1,98 @@
 package es.unir.dwfs.payments.data;
 
 import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.data.model.OrderItemRow;
+import es.unir.dwfs.payments.data.model.OrderRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
- * Repositorio JPA para pedidos
+ * Repositorio JPA para pedidos. Las lecturas devuelven proyecciones (records) construidas en la
+ * propia consulta: Hibernate no crea entidades, no las registra en el contexto de persistencia ni
+ * guarda copias para el dirty checking
  */
 public interface OrderJpaRepository extends JpaRepository<Order, Long> {
+
+    /**
+     * Items de un pedido con su cabecera en una sola consulta; vacía si el pedido no existe. Se
+     * llama sin transacción en los fallos de la caché de pedidos: abre la suya, de solo lectura
+     * (el @Transactional de SimpleJpaRepository solo cubre los métodos heredados)
+     */
+    @Transactional(readOnly = true)
+    @Query("""
+            select new es.unir.dwfs.payments.data.model.OrderItemRow(
+                o.id, o.orderDate, o.itemCount, o.totalAmount, i.id, i.bookId, i.quantity, i.capturedUnitPrice)
+            from Order o left join o.items i
+            where o.id = :id
+            order by i.id""")
+    List<OrderItemRow> findItemRowsByOrderId(Long id);
+
+    /**
+     * Items de varios pedidos, para completar una página en una sola consulta
+     */
+    @Query("""
+            select new es.unir.dwfs.payments.data.model.OrderItemRow(
+                o.id, o.orderDate, o.itemCount, o.totalAmount, i.id, i.bookId, i.quantity, i.capturedUnitPrice)
+            from Order o join o.items i
+            where o.id in :orderIds
+            order by i.id""")
+    List<OrderItemRow> findItemRowsByOrderIds(Collection<Long> orderIds);
+
+    /**
+     * Primera página de pedidos en orden estable (orderDate, id)
+     */
+    @Query("""
+            select new es.unir.dwfs.payments.data.model.OrderRow(o.id, o.orderDate, o.itemCount, o.totalAmount)
+            from Order o
+            order by o.orderDate, o.id""")
+    List<OrderRow> findFirstPage(Limit limit);
+
+    /**
+     * Página de pedidos posteriores al cursor (orderDate, id), sin OFFSET
+     */
+    @Query("""
+            select new es.unir.dwfs.payments.data.model.OrderRow(o.id, o.orderDate, o.itemCount, o.totalAmount)
+            from Order o
+            where o.orderDate > :orderDate or (o.orderDate = :orderDate and o.id > :id)
+            order by o.orderDate, o.id""")
+    List<OrderRow> findPageAfter(Instant orderDate, Long id, Limit limit);
+
+    /**
+     * Pedidos con ID mayor que el indicado, en orden de ID, para reanudar el feed de pedidos
+     */
+    @Query("""
+            select new es.unir.dwfs.payments.data.model.OrderRow(o.id, o.orderDate, o.itemCount, o.totalAmount)
+            from Order o
+            where o.id > :id
+            order by o.id""")
+    List<OrderRow> findRowsAfterId(Long id, Limit limit);
+
+    /**
+     * Todos los items con su pedido, agrupados por pedido en orden estable (orderDate, id) y
+     * leídos por bloques de hibernate.jdbc.fetch_size. Debe consumirse dentro de una transacción
+     * y cerrarse al terminar
+     */
+    @Query("""
+            select new es.unir.dwfs.payments.data.model.OrderItemRow(
+                o.id, o.orderDate, o.itemCount, o.totalAmount, i.id, i.bookId, i.quantity, i.capturedUnitPrice)
+            from Order o left join o.items i
+            order by o.orderDate, o.id, i.id""")
+    Stream<OrderItemRow> streamAll();
+
+    /**
+     * Cabeceras de todos los pedidos en orden estable (orderDate, id), sin leer order_items. Debe
+     * consumirse dentro de una transacción y cerrarse al terminar
+     */
+    @Query("""
+            select new es.unir.dwfs.payments.data.model.OrderRow(o.id, o.orderDate, o.itemCount, o.totalAmount)
+            from Order o
+            order by o.orderDate, o.id""")
+    Stream<OrderRow> streamAllRows();
 }
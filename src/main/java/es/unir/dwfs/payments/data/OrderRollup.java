@@ -0,0 +1,258 @@
+package es.unir.dwfs.payments.data;
+
+import es.unir.dwfs.payments.data.model.BookSales;
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.data.model.RevenueBucket;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tablas de ventas por hora (order_revenue_hourly y book_sales_hourly) mantenidas de forma
+ * incremental: cada pedido suma sus unidades e importe con un MERGE en la misma transacción en la
+ * que se guarda, así que los paneles leen unas pocas filas por hora en lugar de recorrer
+ * orders y order_items. Todos los pedidos de una misma hora actualizan la misma fila, que queda
+ * bloqueada hasta el commit: con mucha concurrencia de escritura esa fila serializa las altas.
+ * Las filas se actualizan en orden de clave para que dos transacciones no se bloqueen mutuamente.
+ * <p>
+ * El nodo que crea las tablas las rellena en la misma transacción con los pedidos ya guardados,
+ * de modo que los agregados incluyen el histórico anterior a activar orders.analytics.rollup.enabled.
+ * Si las tablas ya existen no se vuelven a rellenar: los pedidos guardados por nodos con el rollup
+ * desactivado después de crearlas no se cuentan, así que debe activarse en todos los nodos a la vez
+ */
+@Component
+@Slf4j
+public class OrderRollup {
+
+    private static final String CREATE_REVENUE = """
+            create table %s order_revenue_hourly (
+                hour_start timestamp primary key,
+                orders bigint not null,
+                units bigint not null,
+                revenue decimal(19, 2) not null)""";
+
+    private static final String CREATE_BOOK_SALES = """
+            create table %s book_sales_hourly (
+                hour_start timestamp not null,
+                book_id bigint not null,
+                units bigint not null,
+                revenue decimal(19, 2) not null,
+                primary key (hour_start, book_id))""";
+
+    private static final String BACKFILL_REVENUE = """
+            insert into order_revenue_hourly (hour_start, orders, units, revenue)
+            select date_trunc('hour', o.order_date), count(distinct o.id), sum(i.quantity),
+                   coalesce(sum(i.quantity * i.captured_unit_price), 0)
+            from orders o join order_items i on i.order_id = o.id
+            group by date_trunc('hour', o.order_date)""";
+
+    private static final String BACKFILL_BOOK_SALES = """
+            insert into book_sales_hourly (hour_start, book_id, units, revenue)
+            select date_trunc('hour', o.order_date), i.book_id, sum(i.quantity),
+                   coalesce(sum(i.quantity * i.captured_unit_price), 0)
+            from orders o join order_items i on i.order_id = o.id
+            group by date_trunc('hour', o.order_date), i.book_id""";
+
+    private static final String MERGE_REVENUE = """
+            merge into order_revenue_hourly t
+            using (select cast(? as timestamp) hour_start, cast(? as bigint) orders,
+                          cast(? as bigint) units, cast(? as decimal(19, 2)) revenue) s
+            on t.hour_start = s.hour_start
+            when matched then update set
+                orders = t.orders + s.orders, units = t.units + s.units, revenue = t.revenue + s.revenue
+            when not matched then insert (hour_start, orders, units, revenue)
+                values (s.hour_start, s.orders, s.units, s.revenue)""";
+
+    private static final String MERGE_BOOK_SALES = """
+            merge into book_sales_hourly t
+            using (select cast(? as timestamp) hour_start, cast(? as bigint) book_id,
+                          cast(? as bigint) units, cast(? as decimal(19, 2)) revenue) s
+            on t.hour_start = s.hour_start and t.book_id = s.book_id
+            when matched then update set units = t.units + s.units, revenue = t.revenue + s.revenue
+            when not matched then insert (hour_start, book_id, units, revenue)
+                values (s.hour_start, s.book_id, s.units, s.revenue)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    /**
+     * @param transactionTemplate además de la transacción del relleno, garantiza que el esquema
+     *                            JPA (orders y order_items) existe antes de crear las tablas
+     */
+    public OrderRollup(JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${orders.analytics.rollup.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Crea las tablas y las rellena con los pedidos existentes (date_trunc: H2 y PostgreSQL).
+     * Si otro nodo las crea a la vez, su CREATE falla y el relleno lo hace solo el otro nodo
+     */
+    @PostConstruct
+    void createTables() {
+        if (!enabled) {
+            return;
+        }
+        if (tableExists("order_revenue_hourly")) {
+            jdbcTemplate.execute(CREATE_BOOK_SALES.formatted("if not exists"));
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute(CREATE_REVENUE.formatted(""));
+                jdbcTemplate.execute(CREATE_BOOK_SALES.formatted("if not exists"));
+                // Restos de una creación anterior interrumpida: se rellena de nuevo
+                jdbcTemplate.execute("delete from book_sales_hourly");
+                int hours = jdbcTemplate.update(BACKFILL_REVENUE);
+                int bookHours = jdbcTemplate.update(BACKFILL_BOOK_SALES);
+                log.info("Sales rollup created and backfilled: {} hours, {} book hours", hours, bookHours);
+            });
+        } catch (DataAccessException e) {
+            if (!tableExists("order_revenue_hourly")) {
+                throw e;
+            }
+            log.info("Sales rollup created by another node");
+        }
+    }
+
+    private boolean tableExists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // H2 guarda los nombres en mayúsculas y PostgreSQL en minúsculas
+            for (String name : List.of(table, table.toUpperCase())) {
+                try (ResultSet tables = metaData.getTables(null, null, name, new String[]{"TABLE"})) {
+                    if (tables.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Suma los pedidos a las tablas de ventas por hora. Debe llamarse dentro de la transacción
+     * que guarda los pedidos
+     */
+    public void add(Collection<Order> orders) {
+        if (!enabled || orders.isEmpty()) {
+            return;
+        }
+
+        // Se agrupa primero en memoria: una sentencia por hora y por (hora, libro), en orden de clave
+        Map<Instant, Totals> hours = new TreeMap<>();
+        Map<BookHour, Totals> books = new TreeMap<>();
+        for (Order order : orders) {
+            Instant hour = order.getOrderDate().truncatedTo(ChronoUnit.HOURS);
+            Totals hourTotals = hours.computeIfAbsent(hour, key -> new Totals());
+            hourTotals.orders++;
+            for (OrderItem item : order.getItems()) {
+                // Mismo criterio que SUM en las consultas y en el relleno: un precio nulo no suma importe
+                BigDecimal amount = item.getCapturedUnitPrice() != null
+                        ? item.getCapturedUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()))
+                        : BigDecimal.ZERO;
+                hourTotals.add(item.getQuantity(), amount);
+                books.computeIfAbsent(new BookHour(hour, item.getBookId()), key -> new Totals())
+                        .add(item.getQuantity(), amount);
+            }
+        }
+
+        List<Object[]> revenueRows = new ArrayList<>(hours.size());
+        hours.forEach((hour, totals) -> revenueRows.add(new Object[]{
+                Timestamp.from(hour), totals.orders, totals.units, totals.revenue}));
+        List<Object[]> bookRows = new ArrayList<>(books.size());
+        books.forEach((key, totals) -> bookRows.add(new Object[]{
+                Timestamp.from(key.hour()), key.bookId(), totals.units, totals.revenue}));
+
+        jdbcTemplate.batchUpdate(MERGE_REVENUE, revenueRows);
+        jdbcTemplate.batchUpdate(MERGE_BOOK_SALES, bookRows);
+    }
+
+    public List<RevenueBucket> revenueByHour(Instant from, Instant to) {
+        return jdbcTemplate.query("""
+                        select hour_start, orders, units, revenue from order_revenue_hourly
+                        where hour_start >= ? and hour_start < ?
+                        order by hour_start""",
+                (rs, rowNum) -> new RevenueBucket(rs.getTimestamp("hour_start").toInstant(),
+                        rs.getLong("orders"), rs.getLong("units"), rs.getBigDecimal("revenue")),
+                Timestamp.from(floorHour(from)), Timestamp.from(ceilHour(to)));
+    }
+
+    public List<BookSales> topBooksByUnits(Instant from, Instant to, int limit) {
+        return topBooks(from, to, "sum(units) desc", limit);
+    }
+
+    public List<BookSales> topBooksByRevenue(Instant from, Instant to, int limit) {
+        return topBooks(from, to, "sum(revenue) desc", limit);
+    }
+
+    private List<BookSales> topBooks(Instant from, Instant to, String orderBy, int limit) {
+        return jdbcTemplate.query("""
+                        select book_id, sum(units) units, sum(revenue) revenue from book_sales_hourly
+                        where hour_start >= ? and hour_start < ?
+                        group by book_id
+                        order by %s, book_id
+                        fetch first %d rows only""".formatted(orderBy, limit),
+                (rs, rowNum) -> new BookSales(rs.getLong("book_id"), rs.getLong("units"), rs.getBigDecimal("revenue")),
+                Timestamp.from(floorHour(from)), Timestamp.from(ceilHour(to)));
+    }
+
+    /**
+     * Las tablas tienen resolución de una hora: el rango se amplía a horas completas
+     */
+    private static Instant floorHour(Instant instant) {
+        return instant.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static Instant ceilHour(Instant instant) {
+        Instant floor = floorHour(instant);
+        return floor.equals(instant) ? floor : floor.plus(1, ChronoUnit.HOURS);
+    }
+
+    private static class Totals {
+
+        private long orders;
+        private long units;
+        private BigDecimal revenue = BigDecimal.ZERO;
+
+        void add(int quantity, BigDecimal amount) {
+            units += quantity;
+            revenue = revenue.add(amount);
+        }
+    }
+
+    private record BookHour(Instant hour, Long bookId) implements Comparable<BookHour> {
+
+        @Override
+        public int compareTo(BookHour other) {
+            int byHour = hour.compareTo(other.hour);
+            return byHour != 0 ? byHour : bookId.compareTo(other.bookId);
+        }
+    }
+}
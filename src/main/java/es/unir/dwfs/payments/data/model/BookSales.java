@@ -0,0 +1,13 @@
+package es.unir.dwfs.payments.data.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Ventas acumuladas de un libro
+ *
+ * @param bookId  ID del libro
+ * @param units   unidades vendidas
+ * @param revenue importe vendido
+ */
+public record BookSales(Long bookId, Long units, BigDecimal revenue) {
+}
@@ -3,6 +3,7 @@ package es.unir.dwfs.payments.data.model;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
 
@@ -10,7 +11,10 @@ import java.util.List;
  * Entidad JPA para pedidos
  */
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Filtros por fecha de los agregados y paginación por clave (orderDate, id)
+        @Index(name = "idx_orders_order_date", columnList = "order_date, id")
+})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -19,14 +23,41 @@ import java.util.List;
 @ToString
 public class Order {
 
+    /**
+     * Tamaño de bloque de la secuencia: IDs reservados por viaje a la base de datos
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
-    @JoinColumn(name = "order_id")
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<OrderItem> items;
 
     @Column(name = "order_date", nullable = false)
     private Instant orderDate;
+
+    /**
+     * Importe del pedido (suma de quantity × capturedUnitPrice), calculado una vez al crearlo
+     */
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = OrderItem.PRICE_SCALE)
+    private BigDecimal totalAmount;
+
+    /**
+     * Número de items (líneas) del pedido, calculado una vez al crearlo
+     */
+    @Column(name = "item_count", nullable = false)
+    private Integer itemCount;
+
+    /**
+     * Asigna los items y su referencia al pedido, de modo que order_id se escribe en el INSERT
+     */
+    public void setItems(List<OrderItem> items) {
+        this.items = items;
+        if (items != null) {
+            items.forEach(item -> item.setOrder(this));
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package es.unir.dwfs.payments.data.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -9,7 +10,12 @@ import java.math.BigDecimal;
  * Entidad JPA para items de pedido
  */
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = {
+        // Agrupaciones por libro de los agregados
+        @Index(name = "idx_order_items_book_id", columnList = "book_id"),
+        // Carga de los items de un pedido (no todas las bases indexan las claves ajenas)
+        @Index(name = "idx_order_items_order_id", columnList = "order_id")
+})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -18,16 +24,33 @@ import java.math.BigDecimal;
 @ToString
 public class OrderItem {
 
+    /**
+     * Tamaño de bloque de la secuencia: IDs reservados por viaje a la base de datos
+     */
+    public static final int ID_ALLOCATION_SIZE = 500;
+
+    /**
+     * Decimales del precio capturado
+     */
+    public static final int PRICE_SCALE = 2;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "order_id", nullable = false)
+    @JsonIgnore
+    @ToString.Exclude
+    private Order order;
+
     @Column(name = "book_id", nullable = false)
     private Long bookId;
 
     @Column(name = "quantity", nullable = false)
     private Integer quantity;
 
-    @Column(name = "captured_unit_price", nullable = false, precision = 10, scale = 2)
+    @Column(name = "captured_unit_price", nullable = false, precision = 10, scale = PRICE_SCALE)
     private BigDecimal capturedUnitPrice;
 }
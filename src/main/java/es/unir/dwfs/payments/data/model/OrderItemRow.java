@@ -0,0 +1,12 @@
+package es.unir.dwfs.payments.data.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Proyección de solo lectura de un item junto con la cabecera de su pedido (orders join order_items).
+ * Con left join, los campos del item son null si el pedido no tiene items
+ */
+public record OrderItemRow(Long orderId, Instant orderDate, Integer itemCount, BigDecimal totalAmount,
+                           Long id, Long bookId, Integer quantity, BigDecimal capturedUnitPrice) {
+}
@@ -0,0 +1,11 @@
+package es.unir.dwfs.payments.data.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Proyección de solo lectura de la cabecera de un pedido (tabla orders). Incluye el importe y el
+ * número de items guardados al crearlo, de modo que un listado no necesita leer order_items
+ */
+public record OrderRow(Long id, Instant orderDate, Integer itemCount, BigDecimal totalAmount) {
+}
@@ -0,0 +1,13 @@
+package es.unir.dwfs.payments.data.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Importe de un pedido, guardado con el pedido al crearlo
+ *
+ * @param orderId ID del pedido
+ * @param items   líneas del pedido
+ * @param total   suma de quantity × capturedUnitPrice
+ */
+public record OrderTotal(Long orderId, Integer items, BigDecimal total) {
+}
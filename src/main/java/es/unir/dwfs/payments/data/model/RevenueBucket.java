@@ -0,0 +1,15 @@
+package es.unir.dwfs.payments.data.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Ventas de un periodo (hora o día, en UTC)
+ *
+ * @param period  inicio del periodo
+ * @param orders  pedidos
+ * @param units   unidades vendidas
+ * @param revenue importe vendido
+ */
+public record RevenueBucket(Instant period, Long orders, Long units, BigDecimal revenue) {
+}
@@ -0,0 +1,23 @@
+package es.unir.dwfs.payments.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * El catálogo no ha resuelto algunos libros (error, plazo agotado o circuit breaker abierto) y
+ * no hay copia en caché que servir. A diferencia de un 404, el pedido puede repetirse: se
+ * responde 503 (GENERIC-006) con Retry-After
+ */
+@Getter
+public class CatalogueUnavailableException extends RetryAfterException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Set<Long> bookIds;
+
+    public CatalogueUnavailableException(Set<Long> bookIds, Duration retryAfter) {
+        super("Catalogue unavailable for books " + bookIds, retryAfter);
+        this.bookIds = bookIds;
+    }
+}
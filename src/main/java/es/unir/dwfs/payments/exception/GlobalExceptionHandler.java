@@ -1,10 +1,12 @@
 package es.unir.dwfs.payments.exception;
 
+import es.unir.dwfs.payments.metrics.OrderMetrics;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -18,6 +20,7 @@ import org.springframework.web.server.ResponseStatusException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Manejador global de excepciones para la API de pedidos
@@ -28,6 +31,7 @@ import java.util.List;
 public class GlobalExceptionHandler {
 
         private final ConverterErrors converterErrors;
+        private final OrderMetrics orderMetrics;
 
         /**
          * Maneja errores de validación de Bean Validation en request bodies (@Valid)
@@ -47,6 +51,7 @@ public class GlobalExceptionHandler {
                                                 .description(converterErrors.getMessage(error.getDefaultMessage()))
                                                 .build())
                                 .toList();
+                details.forEach(detail -> orderMetrics.countError(detail.getCode(), HttpStatus.BAD_REQUEST.value()));
 
                 ErrorResponse errorResponse = ErrorResponse.builder()
                                 .timestamp(LocalDateTime.now())
@@ -79,6 +84,7 @@ public class GlobalExceptionHandler {
                                         .description(converterErrors.getMessage(violation.getMessage()))
                                         .build();
                         details.add(detail);
+                        orderMetrics.countError(detail.getCode(), HttpStatus.BAD_REQUEST.value());
                 }
 
                 ErrorResponse errorResponse = ErrorResponse.builder()
@@ -147,6 +153,7 @@ public class GlobalExceptionHandler {
                         WebRequest request) {
 
                 log.error("Error de regla de negocio: {}", ex.getMessage());
+                ex.getErrors().forEach(error -> orderMetrics.countError(error.getCode(), HttpStatus.valueOf(422).value()));
 
                 ErrorResponse errorResponse = ErrorResponse.builder()
                                 .timestamp(LocalDateTime.now())
@@ -171,25 +178,27 @@ public class GlobalExceptionHandler {
 
                 log.error("Error de integridad de datos: {}", ex.getMessage(), ex);
 
-                String errorMessage;
+                String code;
                 String exceptionMessage = ex.getMessage() != null ? ex.getMessage().toLowerCase() : "";
 
                 // Detectar violación de clave primaria
                 if (exceptionMessage.contains("primary key") || exceptionMessage.contains("clave primaria")) {
-                        errorMessage = converterErrors.getMessage("GENERIC-001");
+                        code = "GENERIC-001";
                 }
                 // Detectar violación de NOT NULL
                 else if (exceptionMessage.contains("not null") || exceptionMessage.contains("null")) {
-                        errorMessage = converterErrors.getMessage("GENERIC-002");
+                        code = "GENERIC-002";
                 }
                 // Detectar violación de restricción UNIQUE
                 else if (exceptionMessage.contains("unique") || exceptionMessage.contains("unicidad")) {
-                        errorMessage = converterErrors.getMessage("GENERIC-004");
+                        code = "GENERIC-004";
                 }
                 // Violación genérica de integridad
                 else {
-                        errorMessage = converterErrors.getMessage("GENERIC-003");
+                        code = "GENERIC-003";
                 }
+                String errorMessage = converterErrors.getMessage(code);
+                orderMetrics.countError(code, HttpStatus.CONFLICT.value());
 
                 ErrorResponse errorResponse = ErrorResponse.builder()
                                 .timestamp(LocalDateTime.now())
@@ -202,6 +211,68 @@ public class GlobalExceptionHandler {
                 return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
         }
 
+        /**
+         * Maneja los rechazos por capacidad (cola llena, límite de concurrencia o de tasa)
+         * HTTP 429 - Too Many Requests o 503 - Service Unavailable, con cabecera Retry-After
+         */
+        @ExceptionHandler(RetryLaterException.class)
+        public ResponseEntity<ErrorResponse> handleRetryLater(
+                        RetryLaterException ex,
+                        WebRequest request) {
+
+                // Sin traza: con sobrecarga puede haber miles por segundo
+                log.debug("Petición rechazada por capacidad ({}): {}", ex.getCode(), ex.getMessage());
+                orderMetrics.countError(ex.getCode(), ex.getStatus().value());
+
+                ErrorResponse errorResponse = ErrorResponse.builder()
+                                .timestamp(LocalDateTime.now())
+                                .status(ex.getStatus().value())
+                                .error(ex.getStatus().getReasonPhrase())
+                                .message(ex.getMessage())
+                                .path(request.getDescription(false).replace("uri=", ""))
+                                .details(List.of(ErrorResponse.ErrorDetail.builder()
+                                                .code(ex.getCode())
+                                                .description(ex.getMessage())
+                                                .build()))
+                                .build();
+
+                return ResponseEntity.status(ex.getStatus())
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                                .body(errorResponse);
+        }
+
+        /**
+         * Maneja la falta de respuesta del catálogo para libros sin copia en caché
+         * HTTP 503 - Service Unavailable, con cabecera Retry-After: el pedido puede repetirse
+         */
+        @ExceptionHandler(CatalogueUnavailableException.class)
+        public ResponseEntity<ErrorResponse> handleCatalogueUnavailable(
+                        CatalogueUnavailableException ex,
+                        WebRequest request) {
+
+                log.warn("Catálogo no disponible: {}", ex.getMessage());
+                orderMetrics.countError("GENERIC-006", HttpStatus.SERVICE_UNAVAILABLE.value());
+
+                String message = converterErrors.getMessage("GENERIC-006", ex.getBookIds().stream()
+                                .map(String::valueOf)
+                                .collect(Collectors.joining(", ")));
+                ErrorResponse errorResponse = ErrorResponse.builder()
+                                .timestamp(LocalDateTime.now())
+                                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                                .error(HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase())
+                                .message(message)
+                                .path(request.getDescription(false).replace("uri=", ""))
+                                .details(List.of(ErrorResponse.ErrorDetail.builder()
+                                                .code("GENERIC-006")
+                                                .description(message)
+                                                .build()))
+                                .build();
+
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                                .body(errorResponse);
+        }
+
         /**
          * Maneja excepciones de ResponseStatusException lanzadas explícitamente
          */
@@ -232,6 +303,7 @@ public class GlobalExceptionHandler {
                         WebRequest request) {
 
                 log.error("Error inesperado: {}", ex.getMessage(), ex);
+                orderMetrics.countError("GENERIC-005", HttpStatus.INTERNAL_SERVER_ERROR.value());
 
                 ErrorResponse errorResponse = ErrorResponse.builder()
                                 .timestamp(LocalDateTime.now())
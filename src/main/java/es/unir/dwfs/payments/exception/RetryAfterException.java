@@ -0,0 +1,29 @@
+package es.unir.dwfs.payments.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Rechazo que el cliente puede repetir pasado retryAfter, que se envía en la cabecera
+ * Retry-After. Se lanza bajo sobrecarga o con el catálogo caído, así que no captura la traza de
+ * la pila
+ */
+@Getter
+public abstract class RetryAfterException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Duration retryAfter;
+
+    protected RetryAfterException(String message, Duration retryAfter) {
+        super(message, null, false, false);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Segundos enteros para la cabecera Retry-After (al menos 1)
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+}
@@ -0,0 +1,24 @@
+package es.unir.dwfs.payments.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+/**
+ * Rechazo por capacidad (HTTP 429 o 503): la petición es válida y puede repetirse pasado
+ * retryAfter
+ */
+@Getter
+public class RetryLaterException extends RetryAfterException {
+    private static final long serialVersionUID = 1L;
+
+    private final HttpStatus status;
+    private final String code;
+
+    public RetryLaterException(HttpStatus status, String code, String message, Duration retryAfter) {
+        super(message, retryAfter);
+        this.status = status;
+        this.code = code;
+    }
+}
@@ -0,0 +1,192 @@
+package es.unir.dwfs.payments.facade;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import es.unir.dwfs.payments.facade.model.Book;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Caché local de libros del catálogo con límite de entradas y caducidad tras escritura.
+ * Cada llamante indica qué campos necesita frescos; el resto admite el TTL general. Las
+ * entradas se conservan además durante el presupuesto de obsolescencia para poder servirlas
+ * si el catálogo no responde. Los 404 se recuerdan durante un tiempo corto (caché negativa)
+ */
+@Component
+public class BookCache {
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Duration priceTtl;
+    private final Duration visibleTtl;
+    private final Duration refreshAfter;
+    private final LongSupplier clock;
+    private final Cache<Long, CachedBook> cache;
+    private final Cache<Long, Boolean> notFound;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder notFoundHits = new LongAdder();
+
+    @Autowired
+    public BookCache(@Value("${getBook.cache.enabled:true}") boolean enabled,
+                     @Value("${getBook.cache.max-entries:10000}") long maxEntries,
+                     @Value("${getBook.cache.ttl:5m}") Duration ttl,
+                     @Value("${getBook.cache.price-ttl:1m}") Duration priceTtl,
+                     @Value("${getBook.cache.visible-ttl:30s}") Duration visibleTtl,
+                     @Value("${getBook.cache.refresh-after:20s}") Duration refreshAfter,
+                     @Value("${getBook.cache.stale-budget:10m}") Duration staleBudget,
+                     @Value("${getBook.cache.not-found-ttl:30s}") Duration notFoundTtl) {
+        this(enabled, maxEntries, ttl, priceTtl, visibleTtl, refreshAfter, staleBudget, notFoundTtl, System::nanoTime);
+    }
+
+    /**
+     * @param clock reloj en nanosegundos (System.nanoTime), también para la caducidad de Caffeine
+     */
+    BookCache(boolean enabled, long maxEntries, Duration ttl, Duration priceTtl, Duration visibleTtl,
+              Duration refreshAfter, Duration staleBudget, Duration notFoundTtl, LongSupplier clock) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.priceTtl = priceTtl;
+        this.visibleTtl = visibleTtl;
+        this.refreshAfter = refreshAfter;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(enabled ? maxEntries : 0)
+                .expireAfterWrite(ttl.plus(staleBudget))
+                .ticker(clock::getAsLong)
+                .recordStats()
+                .build();
+        this.notFound = Caffeine.newBuilder()
+                .maximumSize(enabled ? maxEntries : 0)
+                .expireAfterWrite(notFoundTtl)
+                .ticker(clock::getAsLong)
+                .build();
+    }
+
+    /**
+     * Obtiene un libro cuya antigüedad respeta el TTL de los campos indicados
+     *
+     * @param id          ID del libro
+     * @param freshFields campos que deben estar frescos
+     * @return entrada de caché o null si no existe o es demasiado antigua
+     */
+    public CachedBook get(Long id, Set<BookField> freshFields) {
+        CachedBook cached = enabled ? cache.getIfPresent(id) : null;
+        if (cached == null || age(cached).compareTo(maxAge(freshFields)) > 0) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached;
+    }
+
+    /**
+     * Obtiene un libro dentro del presupuesto de obsolescencia, para cuando el catálogo falla
+     *
+     * @param id ID del libro
+     * @return Book o null si no hay entrada
+     */
+    public Book getStale(Long id) {
+        CachedBook cached = enabled ? cache.getIfPresent(id) : null;
+        if (cached == null) {
+            return null;
+        }
+        staleHits.increment();
+        return cached.book();
+    }
+
+    /**
+     * Indica si la entrada debe refrescarse en segundo plano antes de que caduque
+     */
+    public boolean needsRefresh(CachedBook cached) {
+        return age(cached).compareTo(refreshAfter) > 0;
+    }
+
+    /**
+     * Cuenta un refresco anticipado. Solo debe llamarse cuando se lanza la consulta, no cuando
+     * ya hay otra en curso para el mismo libro
+     */
+    public void recordRefresh() {
+        refreshes.increment();
+    }
+
+    /**
+     * Indica si el catálogo respondió 404 para el libro hace menos de not-found-ttl
+     */
+    public boolean isNotFound(Long id) {
+        if (!enabled || notFound.getIfPresent(id) == null) {
+            return false;
+        }
+        notFoundHits.increment();
+        return true;
+    }
+
+    public void put(Long id, Book book) {
+        if (enabled) {
+            notFound.invalidate(id);
+            cache.put(id, new CachedBook(book, clock.getAsLong()));
+        }
+    }
+
+    /**
+     * Registra un 404 del catálogo: elimina la copia positiva y recuerda la ausencia
+     */
+    public void putNotFound(Long id) {
+        cache.invalidate(id);
+        if (enabled) {
+            notFound.put(id, Boolean.TRUE);
+        }
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+        notFound.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        notFound.invalidateAll();
+    }
+
+    public Stats stats() {
+        return new Stats(cache.estimatedSize(), hits.sum(), misses.sum(), staleHits.sum(), refreshes.sum(),
+                cache.stats().evictionCount(), notFound.estimatedSize(), notFoundHits.sum());
+    }
+
+    private Duration age(CachedBook cached) {
+        return Duration.ofNanos(clock.getAsLong() - cached.loadedAt());
+    }
+
+    private Duration maxAge(Set<BookField> freshFields) {
+        Duration maxAge = ttl;
+        if (freshFields.contains(BookField.PRICE) && priceTtl.compareTo(maxAge) < 0) {
+            maxAge = priceTtl;
+        }
+        if (freshFields.contains(BookField.VISIBLE) && visibleTtl.compareTo(maxAge) < 0) {
+            maxAge = visibleTtl;
+        }
+        return maxAge;
+    }
+
+    /**
+     * Libro cacheado junto con el instante (System.nanoTime) en que se obtuvo
+     */
+    public record CachedBook(Book book, long loadedAt) {
+    }
+
+    /**
+     * Estadísticas de uso de la caché
+     */
+    public record Stats(long size, long hits, long misses, long staleHits, long refreshes, long evictions,
+                        long notFoundSize, long notFoundHits) {
+    }
+}
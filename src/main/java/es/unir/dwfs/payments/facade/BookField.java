@@ -0,0 +1,17 @@
+package es.unir.dwfs.payments.facade;
+
+/**
+ * Campos de un libro con requisitos de frescura propios en la caché local
+ */
+public enum BookField {
+
+    /**
+     * Precio de venta, capturado en cada pedido
+     */
+    PRICE,
+
+    /**
+     * Visibilidad del libro para la venta
+     */
+    VISIBLE
+}
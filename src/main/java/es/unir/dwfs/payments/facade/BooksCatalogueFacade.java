@@ -1,13 +1,36 @@
 package es.unir.dwfs.payments.facade;
 
+import es.unir.dwfs.payments.exception.CatalogueUnavailableException;
 import es.unir.dwfs.payments.facade.model.Book;
+import es.unir.dwfs.payments.metrics.OrderMetrics;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Facade para comunicación con el microservicio de catálogo
@@ -20,35 +43,362 @@ public class BooksCatalogueFacade {
     @Value("${getBook.url}")
     private String getBookUrl;
 
-    private final WebClient.Builder webClient;
+    @Value("${getBook.batch-url}")
+    private String getBooksUrl;
+
+    @Value("${getBook.batch-enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${getBook.batch-retry-after:5m}")
+    private Duration batchRetryAfter;
+
+    @Value("${getBook.batch-max-ids:100}")
+    private int batchMaxIds;
+
+    @Value("${getBook.concurrency:8}")
+    private int concurrency;
+
+    @Value("${getBook.deadline:5s}")
+    private Duration deadline;
+
+    @Value("${getBook.unavailable-retry-after:5s}")
+    private Duration unavailableRetryAfter;
+
+    @Value("${getBook.coalesce-window:5ms}")
+    private Duration coalesceWindow;
+
+    private final WebClient catalogueWebClient;
+    private final BookCache bookCache;
+    private final CircuitBreaker catalogueCircuitBreaker;
+    private final OrderMetrics orderMetrics;
+
+    /**
+     * Peticiones en curso por ID de libro, compartidas entre pedidos concurrentes
+     */
+    private final Map<Long, CompletableFuture<Book>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Instante (epoch ms) hasta el que no se usa la consulta por lotes, tras una respuesta del
+     * catálogo que indica que no la soporta. Se vuelve a probar pasado getBook.batch-retry-after,
+     * por si el fallo se debió a un despliegue del catálogo
+     */
+    private volatile long batchDisabledUntil;
 
     /**
      * Obtiene un libro del catálogo por su ID
-     * 
+     *
      * @param id ID del libro
      * @return Book DTO o null si no existe
+     * @throws CatalogueUnavailableException si el catálogo no responde y no hay copia en caché
      */
     public Book getBook(String id) {
-        try {
-            String url = String.format(getBookUrl, id);
-            log.info("Getting book with ID {}. Request to {}", id, url);
-
-            return webClient.build()
-                    .get()
-                    .uri(url)
-                    .retrieve()
-                    .bodyToMono(Book.class)
-                    .block();
-
-        } catch (HttpClientErrorException e) {
-            log.error("Client Error: {}, Book with ID {}", e.getStatusCode(), id);
-            return null;
-        } catch (HttpServerErrorException e) {
-            log.error("Server Error: {}, Book with ID {}", e.getStatusCode(), id);
-            return null;
-        } catch (Exception e) {
-            log.error("Error: {}, Book with ID {}", e.getMessage(), id);
-            return null;
+        Long bookId = Long.valueOf(id);
+        return getBooks(List.of(bookId)).get(bookId);
+    }
+
+    /**
+     * Obtiene varios libros exigiendo que todos sus campos estén frescos
+     *
+     * @see #getBooks(Collection, Set)
+     */
+    public Map<Long, Book> getBooks(Collection<Long> ids) {
+        return getBooks(ids, EnumSet.allOf(BookField.class));
+    }
+
+    /**
+     * Obtiene varios libros sin fallar si el catálogo no resuelve alguno: los que no están
+     * disponibles se devuelven aparte, para que un lote pueda rechazar solo los pedidos afectados
+     *
+     * @param ids IDs de los libros (puede contener duplicados)
+     * @return libros que existen e IDs que el catálogo no ha resuelto (sin copia en caché)
+     */
+    public BookLookup lookupBooks(Collection<Long> ids) {
+        BookLookup lookup = lookup(ids, EnumSet.allOf(BookField.class)).block();
+        return lookup != null ? lookup : new BookLookup(Map.of(), Set.of());
+    }
+
+    /**
+     * Versión bloqueante de {@link #findBooks(Collection, Set)}
+     *
+     * @param ids         IDs de los libros (puede contener duplicados)
+     * @param freshFields campos que no pueden servirse desde una entrada caducada
+     * @return Mapa ID -> Book de los libros que existen
+     * @throws CatalogueUnavailableException si el catálogo no resuelve algún libro sin copia en caché
+     */
+    public Map<Long, Book> getBooks(Collection<Long> ids, Set<BookField> freshFields) {
+        Map<Long, Book> books = findBooks(ids, freshFields).block();
+        return books != null ? books : Map.of();
+    }
+
+    /**
+     * Obtiene varios libros, primero de la caché local y después del catálogo con una única
+     * petición por lotes. Si el catálogo no la soporta se recurre a peticiones individuales en
+     * paralelo. Los IDs que ya tienen una petición en curso (de este u otro pedido) reutilizan
+     * su resultado. Los libros con un 404 reciente no se vuelven a consultar. Si el catálogo
+     * falla, o el circuit breaker está abierto, se sirve la copia cacheada aunque esté caducada.
+     * Los libros que no existen no aparecen en el mapa; si alguno no se ha podido resolver (ni
+     * hay copia) el Mono falla con {@link CatalogueUnavailableException}, para no confundir un
+     * catálogo caído con un libro inexistente
+     *
+     * @param ids         IDs de los libros (puede contener duplicados)
+     * @param freshFields campos que no pueden servirse desde una entrada caducada
+     * @return Mono con el mapa ID -> Book de los libros que existen
+     */
+    public Mono<Map<Long, Book>> findBooks(Collection<Long> ids, Set<BookField> freshFields) {
+        return lookup(ids, freshFields).flatMap(lookup -> lookup.unavailable().isEmpty()
+                ? Mono.just(lookup.books())
+                : Mono.error(new CatalogueUnavailableException(lookup.unavailable(), unavailableRetryAfter)));
+    }
+
+    private Mono<BookLookup> lookup(Collection<Long> ids, Set<BookField> freshFields) {
+        return Mono.defer(() -> {
+            Map<Long, Book> books = new HashMap<>();
+            Map<Long, CompletableFuture<Book>> pending = new LinkedHashMap<>();
+            Map<Long, CompletableFuture<Book>> owned = new LinkedHashMap<>();
+
+            for (Long id : new LinkedHashSet<>(ids)) {
+                if (bookCache.isNotFound(id)) {
+                    continue;
+                }
+                BookCache.CachedBook cached = bookCache.get(id, freshFields);
+                if (cached != null) {
+                    books.put(id, cached.book());
+                    if (bookCache.needsRefresh(cached) && !inFlight.containsKey(id)) {
+                        // Refresco anticipado: no se espera al resultado. Solo se cuenta si lo lanza este pedido
+                        register(id, owned);
+                        if (owned.containsKey(id)) {
+                            bookCache.recordRefresh();
+                        }
+                    }
+                    continue;
+                }
+                pending.put(id, register(id, owned));
+            }
+
+            if (!owned.isEmpty()) {
+                fetch(owned);
+            }
+            if (pending.isEmpty()) {
+                return Mono.just(new BookLookup(books, Set.of()));
+            }
+
+            return Flux.fromIterable(pending.entrySet())
+                    .flatMap(entry -> Mono.fromFuture(entry.getValue(), true)
+                            .map(book -> Map.entry(entry.getKey(), book))
+                            .onErrorResume(e -> Mono.empty()))
+                    .take(deadline)
+                    .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                    .map(fetched -> {
+                        books.putAll(fetched);
+                        return new BookLookup(books, serveStale(pending, books));
+                    });
+        });
+    }
+
+    /**
+     * Libros no resueltos por fallo o por plazo (no por 404): se intenta la copia obsoleta
+     *
+     * @return IDs que siguen sin resolver por no haber copia
+     */
+    private Set<Long> serveStale(Map<Long, CompletableFuture<Book>> pending, Map<Long, Book> books) {
+        Set<Long> unavailable = new LinkedHashSet<>();
+        pending.forEach((id, future) -> {
+            if (!books.containsKey(id) && !(future.isDone() && !future.isCompletedExceptionally())) {
+                Book stale = bookCache.getStale(id);
+                if (stale != null) {
+                    log.warn("Catalogue unavailable, serving stale book with ID {}", id);
+                    books.put(id, stale);
+                } else {
+                    unavailable.add(id);
+                }
+            }
+        });
+        return unavailable;
+    }
+
+    /**
+     * Registra la petición de un ID, o devuelve la que ya esté en curso
+     */
+    private CompletableFuture<Book> register(Long id, Map<Long, CompletableFuture<Book>> owned) {
+        CompletableFuture<Book> created = new CompletableFuture<>();
+        CompletableFuture<Book> existing = inFlight.putIfAbsent(id, created);
+        if (existing != null) {
+            return existing;
+        }
+        owned.put(id, created);
+        return created;
+    }
+
+    /**
+     * Lanza las peticiones para los IDs de los que este pedido es responsable. Los IDs que el
+     * catálogo no devuelve se completan como no encontrados, y los que no llegan antes del
+     * plazo máximo como fallidos
+     */
+    private void fetch(Map<Long, CompletableFuture<Book>> owned) {
+        Mono<Void> lookups = batchEnabled && System.currentTimeMillis() >= batchDisabledUntil && owned.size() > 1
+                ? Flux.fromIterable(partition(owned)).flatMap(this::findBooksInBatch, concurrency).then()
+                : findEach(owned);
+
+        lookups.timeout(deadline).subscribe(
+                null,
+                error -> owned.forEach((id, future) -> fail(id, future, error)),
+                () -> owned.forEach((id, future) -> complete(id, future, null)));
+    }
+
+    /**
+     * Divide los IDs en lotes de como máximo getBook.batch-max-ids para acotar la longitud de la URL
+     */
+    private List<Map<Long, CompletableFuture<Book>>> partition(Map<Long, CompletableFuture<Book>> owned) {
+        List<Map<Long, CompletableFuture<Book>>> batches = new ArrayList<>();
+        Map<Long, CompletableFuture<Book>> batch = new LinkedHashMap<>();
+        for (Map.Entry<Long, CompletableFuture<Book>> entry : owned.entrySet()) {
+            if (batch.size() == batchMaxIds) {
+                batches.add(batch);
+                batch = new LinkedHashMap<>();
+            }
+            batch.put(entry.getKey(), entry.getValue());
+        }
+        batches.add(batch);
+        return batches;
+    }
+
+    /**
+     * Completa la petición compartida, actualiza la caché y retira la petición tras la ventana
+     * de agrupación
+     */
+    private void complete(Long id, CompletableFuture<Book> future, Book book) {
+        if (!future.complete(book)) {
+            return;
+        }
+        if (book != null) {
+            bookCache.put(id, book);
+        } else {
+            bookCache.putNotFound(id);
+        }
+        release(id, future);
+    }
+
+    private void fail(Long id, CompletableFuture<Book> future, Throwable error) {
+        if (future.completeExceptionally(error)) {
+            release(id, future);
+        }
+    }
+
+    private void release(Long id, CompletableFuture<Book> future) {
+        if (coalesceWindow.isZero()) {
+            inFlight.remove(id, future);
+        } else {
+            Schedulers.parallel().schedule(() -> inFlight.remove(id, future),
+                    coalesceWindow.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Consulta por lotes. Si el catálogo no la soporta (404, 405 o 501) o ignora el parámetro ids
+     * (devuelve libros no pedidos), se desactiva durante getBook.batch-retry-after y se repite con
+     * peticiones individuales
+     */
+    private Mono<Void> findBooksInBatch(Map<Long, CompletableFuture<Book>> owned) {
+        String url = String.format(getBooksUrl,
+                owned.keySet().stream().map(String::valueOf).collect(Collectors.joining(",")));
+        log.debug("Getting {} books. Request to {}", owned.size(), url);
+
+        return catalogueWebClient
+                .get()
+                .uri(url)
+                .retrieve()
+                .bodyToFlux(Book.class)
+                .transformDeferred(CircuitBreakerOperator.of(catalogueCircuitBreaker))
+                .transform(call -> orderMetrics.timeCatalogue("batch", call))
+                .handle((Book book, SynchronousSink<Book> sink) -> {
+                    if (owned.containsKey(book.getId())) {
+                        sink.next(book);
+                    } else {
+                        sink.error(new UnrequestedBookException(book.getId()));
+                    }
+                })
+                .doOnNext(book -> complete(book.getId(), owned.get(book.getId()), book))
+                .then()
+                .onErrorResume(e -> {
+                    if (e instanceof WebClientResponseException response && isBatchUnsupported(response)) {
+                        disableBatch(response.getStatusCode().toString());
+                    } else if (e instanceof UnrequestedBookException) {
+                        disableBatch(e.getMessage());
+                    } else {
+                        log.error("Batch Error: {}, falling back to single lookups", e.getMessage());
+                    }
+                    return findEach(owned);
+                });
+    }
+
+    private void disableBatch(String reason) {
+        log.warn("Batch lookup not supported by catalogue ({}). Using single lookups for {}", reason, batchRetryAfter);
+        batchDisabledUntil = System.currentTimeMillis() + batchRetryAfter.toMillis();
+    }
+
+    private boolean isBatchUnsupported(WebClientResponseException e) {
+        HttpStatus status = HttpStatus.resolve(e.getStatusCode().value());
+        return status == HttpStatus.NOT_FOUND
+                || status == HttpStatus.METHOD_NOT_ALLOWED
+                || status == HttpStatus.NOT_IMPLEMENTED;
+    }
+
+    /**
+     * Consulta individual en paralelo de cada ID aún no resuelto
+     */
+    private Mono<Void> findEach(Map<Long, CompletableFuture<Book>> owned) {
+        return Flux.fromIterable(owned.entrySet())
+                .filter(entry -> !entry.getValue().isDone())
+                .flatMap(entry -> findBook(entry.getKey().toString())
+                        .doOnNext(book -> complete(entry.getKey(), entry.getValue(), book))
+                        .onErrorResume(e -> {
+                            fail(entry.getKey(), entry.getValue(), e);
+                            return Mono.empty();
+                        }), concurrency)
+                .then();
+    }
+
+    /**
+     * Consulta no bloqueante de un libro. Un 404 se traduce en un Mono vacío; el resto de
+     * errores se propagan para poder distinguir "no existe" de "catálogo no disponible".
+     * Con el circuit breaker abierto falla inmediatamente con CallNotPermittedException
+     */
+    private Mono<Book> findBook(String id) {
+        String url = String.format(getBookUrl, id);
+        log.debug("Getting book with ID {}. Request to {}", id, url);
+
+        return catalogueWebClient
+                .get()
+                .uri(url)
+                .retrieve()
+                .bodyToMono(Book.class)
+                .transformDeferred(CircuitBreakerOperator.of(catalogueCircuitBreaker))
+                .transform(call -> orderMetrics.timeCatalogue("single", call))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    log.debug("Client Error: {}, Book with ID {}", e.getStatusCode(), id);
+                    return Mono.empty();
+                })
+                .doOnError(e -> log.error("Error: {}, Book with ID {}", e.getMessage(), id));
+    }
+
+    /**
+     * Resultado de una consulta de varios libros
+     *
+     * @param books       libros que existen, frescos o servidos desde la copia obsoleta
+     * @param unavailable IDs que el catálogo no ha resuelto (error, plazo o circuit breaker) y sin copia
+     */
+    public record BookLookup(Map<Long, Book> books, Set<Long> unavailable) {
+    }
+
+    /**
+     * El catálogo ha devuelto en la consulta por lotes un libro que no se le ha pedido: no
+     * interpreta el parámetro ids y probablemente devuelve el catálogo completo
+     */
+    private static class UnrequestedBookException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UnrequestedBookException(Long id) {
+            super("unrequested book " + id + " in batch response", null, false, false);
         }
     }
 }
@@ -0,0 +1,16 @@
+package es.unir.dwfs.payments.feed;
+
+/**
+ * Qué hacer cuando un suscriptor del feed no consume los eventos y su buffer se llena
+ */
+public enum FeedOverflowPolicy {
+    /**
+     * Descartar los eventos nuevos para ese suscriptor hasta que haya hueco
+     */
+    DROP,
+    /**
+     * Cerrar la conexión tras enviar lo que tiene en el buffer. El cliente reconecta con
+     * Last-Event-ID y recupera lo que falte de la base de datos
+     */
+    DISCONNECT
+}
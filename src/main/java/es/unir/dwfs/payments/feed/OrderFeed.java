@@ -0,0 +1,193 @@
+package es.unir.dwfs.payments.feed;
+
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.service.OrderView;
+import es.unir.dwfs.payments.service.OrdersCreatedEvent;
+import es.unir.dwfs.payments.service.OrdersService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Feed de pedidos nuevos para GET /orders/feed (Server-Sent Events). Cada pedido confirmado se
+ * serializa una sola vez y se entrega a cada suscriptor a través de un buffer propio acotado
+ * (orders.feed.buffer-size): el alta solo encola, nunca espera a un cliente. Si el buffer de un
+ * suscriptor se llena se aplica orders.feed.overflow-policy.
+ * <p>
+ * El ID de cada evento es el ID del pedido. Al reconectar con Last-Event-ID se reenvían desde la
+ * base de datos, por páginas, los pedidos con ID mayor y después se continúa con los nuevos. Los
+ * IDs crecen en el orden en que se reservan, no en el de confirmación: un pedido confirmado
+ * justo mientras el cliente estaba desconectado puede tener un ID menor que el último recibido.
+ * Los eventos en directo son los de este nodo; la reanudación ve los de todos
+ */
+@Component
+public class OrderFeed {
+
+    private static final String EVENT_TYPE = "order";
+
+    private final OrdersService ordersService;
+    private final ObjectMapper objectMapper;
+    private final ConverterErrors converterErrors;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final int replayPageSize;
+    private final FeedOverflowPolicy overflowPolicy;
+    private final Duration heartbeat;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Counter dropped;
+    private final Counter disconnected;
+
+    public OrderFeed(OrdersService ordersService,
+                     ObjectMapper objectMapper,
+                     ConverterErrors converterErrors,
+                     MeterRegistry registry,
+                     @Value("${orders.feed.buffer-size:256}") int bufferSize,
+                     @Value("${orders.feed.max-subscribers:1000}") int maxSubscribers,
+                     @Value("${orders.feed.replay-page-size:500}") int replayPageSize,
+                     @Value("${orders.feed.overflow-policy:disconnect}") FeedOverflowPolicy overflowPolicy,
+                     @Value("${orders.feed.heartbeat:15s}") Duration heartbeat) {
+        this.ordersService = ordersService;
+        this.objectMapper = objectMapper;
+        this.converterErrors = converterErrors;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.replayPageSize = replayPageSize;
+        this.overflowPolicy = overflowPolicy;
+        this.heartbeat = heartbeat;
+
+        Gauge.builder("orders.feed.subscribers", subscriptions, Set::size)
+                .description("Clientes conectados al feed de pedidos")
+                .register(registry);
+        this.dropped = Counter.builder("orders.feed.dropped")
+                .description("Eventos descartados por tener lleno el buffer del suscriptor")
+                .register(registry);
+        this.disconnected = Counter.builder("orders.feed.disconnected")
+                .description("Suscriptores desconectados por tener lleno su buffer")
+                .register(registry);
+    }
+
+    /**
+     * Suscribe un cliente al feed
+     *
+     * @param lastEventId último ID de pedido recibido, o null para recibir solo los pedidos nuevos
+     * @throws ResponseStatusException 503 si se ha alcanzado orders.feed.max-subscribers
+     */
+    public Flux<ServerSentEvent<String>> subscribe(Long lastEventId) {
+        Subscription subscription = new Subscription();
+        if (!tryAdd(subscription)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    converterErrors.getMessage("FEED-001", maxSubscribers));
+        }
+
+        // El buffer en directo se llena desde ya: los pedidos creados durante la reanudación no se pierden
+        Flux<ServerSentEvent<String>> live = subscription.sink.asFlux();
+        Flux<ServerSentEvent<String>> events;
+        if (lastEventId == null) {
+            events = live;
+        } else {
+            long[] lastReplayed = {lastEventId};
+            events = replay(lastEventId)
+                    .doOnNext(event -> lastReplayed[0] = Long.parseLong(event.id()))
+                    .concatWith(Flux.defer(() -> live.filter(event -> Long.parseLong(event.id()) > lastReplayed[0])));
+        }
+
+        // Los latidos terminan con los eventos. Prefetch 1: el único buffer de eventos es el del suscriptor
+        Sinks.Empty<Void> done = Sinks.empty();
+        Flux<ServerSentEvent<String>> heartbeats = Flux.interval(heartbeat)
+                .map(tick -> ServerSentEvent.<String>builder().comment("heartbeat").build())
+                .takeUntilOther(done.asMono());
+        return Flux.merge(1, events.doOnTerminate(done::tryEmitEmpty), heartbeats)
+                .doFinally(signal -> subscriptions.remove(subscription));
+    }
+
+    /**
+     * Entrega los pedidos a los suscriptores cuando la transacción que los guarda se confirma
+     */
+    @TransactionalEventListener
+    public void onOrdersCreated(OrdersCreatedEvent event) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        List<ServerSentEvent<String>> events = new ArrayList<>(event.orders().size());
+        for (Order order : event.orders()) {
+            events.add(toEvent(OrderView.of(order)));
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(events);
+        }
+    }
+
+    private synchronized boolean tryAdd(Subscription subscription) {
+        return subscriptions.size() < maxSubscribers && subscriptions.add(subscription);
+    }
+
+    /**
+     * Pedidos posteriores a afterId leídos de la base de datos por páginas, fuera de los hilos del servidor
+     */
+    private Flux<ServerSentEvent<String>> replay(long afterId) {
+        return page(afterId)
+                .expand(page -> page.size() < replayPageSize ? Mono.empty() : page(page.getLast().id()))
+                .concatMapIterable(page -> page.stream().map(this::toEvent).toList());
+    }
+
+    private Mono<List<OrderView>> page(long afterId) {
+        return Mono.fromCallable(() -> ordersService.getOrdersAfterId(afterId, replayPageSize))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private ServerSentEvent<String> toEvent(OrderView order) {
+        return ServerSentEvent.builder(objectMapper.writeValueAsString(order))
+                .id(order.id().toString())
+                .event(EVENT_TYPE)
+                .build();
+    }
+
+    /**
+     * Buffer acotado de un suscriptor. Las altas concurrentes se serializan por suscriptor
+     */
+    private final class Subscription {
+
+        private final Sinks.Many<ServerSentEvent<String>> sink =
+                Sinks.many().unicast().onBackpressureBuffer(new ArrayBlockingQueue<>(bufferSize));
+
+        synchronized void offer(List<ServerSentEvent<String>> events) {
+            for (ServerSentEvent<String> event : events) {
+                Sinks.EmitResult result = sink.tryEmitNext(event);
+                if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+                    if (overflowPolicy == FeedOverflowPolicy.DROP) {
+                        dropped.increment();
+                        continue;
+                    }
+                    disconnected.increment();
+                    subscriptions.remove(this);
+                    sink.tryEmitComplete();
+                    return;
+                }
+                if (result.isFailure()) {
+                    // Suscriptor ya terminado o cancelado
+                    subscriptions.remove(this);
+                    return;
+                }
+            }
+        }
+    }
+}
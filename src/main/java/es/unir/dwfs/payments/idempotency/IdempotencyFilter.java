@@ -0,0 +1,310 @@
+package es.unir.dwfs.payments.idempotency;
+
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.exception.ErrorResponse;
+import es.unir.dwfs.payments.limit.ClientKeyResolver;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Filtro de la cabecera Idempotency-Key en las rutas de orders.idempotency.paths (POST). La
+ * primera petición con una clave se procesa y su respuesta se guarda; los duplicados en curso
+ * esperan a esa respuesta y los posteriores la reciben sin volver a ejecutar el controlador.
+ * <p>
+ * Las claves son de cada cliente ({@link ClientKeyResolver}): dos clientes pueden usar la misma
+ * sin ver la respuesta del otro. Con la clave se guarda el SHA-256 del cuerpo, y reutilizarla
+ * con otro cuerpo se rechaza con 422 (IDEMPOTENCY-003). Las respuestas de fallos transitorios
+ * (408, 425, 429, 5xx o cualquiera con Retry-After) no se guardan para que el cliente pueda reintentar
+ */
+@Component
+@ConditionalOnProperty(name = "orders.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final String KEY_ATTRIBUTE = IdempotencyFilter.class.getName() + ".KEY";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Set<Integer> TRANSIENT_STATUSES = Set.of(
+            HttpStatus.REQUEST_TIMEOUT.value(), HttpStatus.TOO_EARLY.value(), HttpStatus.TOO_MANY_REQUESTS.value());
+
+    /**
+     * Bytes del SHA-256 del cliente que se incluyen en la clave: la clave guardada no contiene la
+     * API key y cabe en la columna idem_key
+     */
+    private static final int CLIENT_DIGEST_BYTES = 12;
+
+    private final IdempotencyStore store;
+    private final ClientKeyResolver clientKeyResolver;
+    private final ConverterErrors converterErrors;
+    private final ObjectMapper objectMapper;
+    private final List<String> paths;
+    private final Duration waitTimeout;
+
+    public IdempotencyFilter(IdempotencyStore store,
+                             ClientKeyResolver clientKeyResolver,
+                             ConverterErrors converterErrors,
+                             ObjectMapper objectMapper,
+                             @Value("${orders.idempotency.paths:/orders}") List<String> paths,
+                             @Value("${orders.idempotency.wait-timeout:10s}") Duration waitTimeout) {
+        this.store = store;
+        this.clientKeyResolver = clientKeyResolver;
+        this.converterErrors = converterErrors;
+        this.objectMapper = objectMapper;
+        this.paths = paths;
+        this.waitTimeout = waitTimeout;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null
+                || !paths.contains(request.getRequestURI());
+    }
+
+    /**
+     * La respuesta de los controladores reactivos se completa en el despacho asíncrono
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String key;
+        HttpServletRequest requestToUse = request;
+        HttpServletResponse responseToUse = response;
+        if (isAsyncDispatch(request)) {
+            key = (String) request.getAttribute(KEY_ATTRIBUTE);
+        } else {
+            String header = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+            if (header.isBlank() || header.length() > MAX_KEY_LENGTH) {
+                writeError(request, response, HttpStatus.BAD_REQUEST, converterErrors.getMessage("IDEMPOTENCY-002", MAX_KEY_LENGTH));
+                return;
+            }
+            // El cuerpo se lee antes de reservar la clave para calcular su huella
+            CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+            key = request.getRequestURI() + " " + digest(clientKeyResolver.resolve(request), CLIENT_DIGEST_BYTES) + " " + header;
+            if (!acquire(key, digest(cachedRequest.body, Integer.MAX_VALUE), request, response)) {
+                return;
+            }
+            request.setAttribute(KEY_ATTRIBUTE, key);
+            requestToUse = cachedRequest;
+            responseToUse = new ContentCachingResponseWrapper(response);
+        }
+
+        boolean completed = false;
+        try {
+            filterChain.doFilter(requestToUse, responseToUse);
+            completed = true;
+        } finally {
+            if (!completed) {
+                store.release(key);
+            }
+        }
+
+        if (!isAsyncStarted(request)) {
+            ContentCachingResponseWrapper wrapper = WebUtils.getNativeResponse(responseToUse, ContentCachingResponseWrapper.class);
+            if (wrapper != null) {
+                save(key, wrapper);
+                wrapper.copyBodyToResponse();
+            }
+        }
+    }
+
+    /**
+     * Reserva la clave o responde con la respuesta guardada
+     *
+     * @return true si la petición debe procesarse
+     */
+    private boolean acquire(String key, String fingerprint, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        try {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                if (store.tryAcquire(key, fingerprint)) {
+                    return true;
+                }
+                String reserved = store.fingerprint(key);
+                if (reserved != null && !reserved.equals(fingerprint)) {
+                    log.debug("Idempotency key {} reused with a different body", key);
+                    writeError(request, response, HttpStatus.valueOf(422), converterErrors.getMessage("IDEMPOTENCY-003"));
+                    return false;
+                }
+                StoredResponse stored = store.await(key, waitTimeout);
+                if (stored != null) {
+                    log.debug("Replaying response for idempotency key {}", key);
+                    replay(stored, response);
+                    return false;
+                }
+            }
+        } catch (TimeoutException e) {
+            log.warn("Idempotency key {} still in progress after {}", key, waitTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeError(request, response, HttpStatus.CONFLICT, converterErrors.getMessage("IDEMPOTENCY-001"));
+        return false;
+    }
+
+    private void save(String key, ContentCachingResponseWrapper response) {
+        if (isTransient(response)) {
+            store.release(key);
+        } else {
+            store.complete(key, new StoredResponse(response.getStatus(), response.getContentType(), response.getContentAsByteArray()));
+        }
+    }
+
+    /**
+     * Fallos que pueden no repetirse: el servicio o una dependencia no estaban disponibles
+     */
+    private static boolean isTransient(HttpServletResponse response) {
+        return response.getStatus() >= 500
+                || TRANSIENT_STATUSES.contains(response.getStatus())
+                || response.containsHeader(HttpHeaders.RETRY_AFTER);
+    }
+
+    /**
+     * SHA-256 en hexadecimal, truncado a los bytes indicados
+     */
+    private static String digest(String value, int bytes) {
+        return digest(value.getBytes(StandardCharsets.UTF_8), bytes);
+    }
+
+    private static String digest(byte[] value, int bytes) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value);
+            return HexFormat.of().formatHex(hash, 0, Math.min(bytes, hash.length));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void writeError(HttpServletRequest request, HttpServletResponse response, HttpStatus status, String message)
+            throws IOException {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(status.value())
+                .error(status.getReasonPhrase())
+                .message(message)
+                .path(request.getRequestURI())
+                .build();
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(objectMapper.writeValueAsBytes(errorResponse));
+    }
+
+    /**
+     * Petición con el cuerpo ya leído, para calcular su huella y entregarlo después al controlador
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * El cuerpo ya está en memoria: se notifica de inmediato que hay datos y que se han leído todos
+                 */
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package es.unir.dwfs.payments.idempotency;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Almacén de claves de idempotencia y de las respuestas asociadas. Se elige con
+ * orders.idempotency.store: memory (un solo nodo) o jdbc (compartido entre nodos)
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Reserva la clave si no existe
+     *
+     * @param fingerprint huella del cuerpo de la petición, para detectar la reutilización de la clave
+     * @return true si el llamante debe procesar la petición
+     */
+    boolean tryAcquire(String key, String fingerprint);
+
+    /**
+     * @return huella del cuerpo de la petición que reservó la clave, o null si la clave no existe
+     */
+    String fingerprint(String key);
+
+    /**
+     * Espera la respuesta de la petición que tiene reservada la clave
+     *
+     * @return respuesta guardada, o null si la clave se liberó sin respuesta y puede volver a reservarse
+     * @throws TimeoutException si la petición en curso no termina en el plazo indicado
+     */
+    StoredResponse await(String key, Duration timeout) throws TimeoutException, InterruptedException;
+
+    /**
+     * Guarda la respuesta de la clave reservada y despierta a las peticiones en espera
+     */
+    void complete(String key, StoredResponse response);
+
+    /**
+     * Libera la clave reservada sin guardar respuesta (error transitorio)
+     */
+    void release(String key);
+}
@@ -0,0 +1,143 @@
+package es.unir.dwfs.payments.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Almacén en memoria para un solo nodo. Caché acotada de futuros: la reserva es un putIfAbsent
+ * y las peticiones duplicadas en curso esperan al mismo futuro. Las reservas en curso pesan 0,
+ * así que el límite de entradas solo desaloja respuestas ya guardadas: desalojar una reserva
+ * dejaría pasar un duplicado mientras se procesa el original. En su lugar, las reservas caducan
+ * a los orders.idempotency.in-progress-timeout (la petición que la hizo no terminó: se perdió su
+ * despacho asíncrono o el cliente se fue) y las respuestas guardadas a los orders.idempotency.ttl
+ */
+@Component
+@ConditionalOnProperty(name = "orders.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, Entry> entries;
+
+    @Autowired
+    public InMemoryIdempotencyStore(@Value("${orders.idempotency.max-entries:10000}") long maxEntries,
+                                    @Value("${orders.idempotency.ttl:24h}") Duration ttl,
+                                    @Value("${orders.idempotency.in-progress-timeout:1m}") Duration inProgressTimeout) {
+        this(maxEntries, ttl, inProgressTimeout, ForkJoinPool.commonPool(), Ticker.systemTicker());
+    }
+
+    /**
+     * @param executor ejecutor del mantenimiento de la caché (desalojos)
+     * @param ticker   reloj de las caducidades
+     */
+    InMemoryIdempotencyStore(long maxEntries, Duration ttl, Duration inProgressTimeout, Executor executor, Ticker ticker) {
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxEntries)
+                .weigher((String key, Entry entry) -> entry.response().isDone() ? 1 : 0)
+                .expireAfter(new EntryExpiry(ttl.toNanos(), inProgressTimeout.toNanos()))
+                // Una reserva caducada despierta a sus duplicados en espera para que puedan reservar la clave
+                .removalListener((String key, Entry entry, RemovalCause cause) -> {
+                    if (entry != null && cause == RemovalCause.EXPIRED) {
+                        entry.response().complete(null);
+                    }
+                })
+                .executor(executor)
+                .ticker(ticker)
+                .build();
+    }
+
+    @Override
+    public boolean tryAcquire(String key, String fingerprint) {
+        return entries.asMap().putIfAbsent(key, new Entry(fingerprint, new CompletableFuture<>())) == null;
+    }
+
+    @Override
+    public String fingerprint(String key) {
+        Entry entry = entries.getIfPresent(key);
+        return entry != null ? entry.fingerprint() : null;
+    }
+
+    @Override
+    public StoredResponse await(String key, Duration timeout) throws TimeoutException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            Entry entry = entries.getIfPresent(key);
+            if (entry == null) {
+                return null;
+            }
+            // La espera se corta al caducar la reserva: la petición que la hizo ya no va a responder
+            long remaining = deadline - System.nanoTime();
+            long expiresIn = entries.policy().expireVariably()
+                    .map(policy -> policy.getExpiresAfter(key, TimeUnit.NANOSECONDS).orElse(0))
+                    .orElse(remaining);
+            try {
+                return entry.response().get(Math.max(0, Math.min(remaining, expiresIn)), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | CancellationException e) {
+                return null;
+            } catch (TimeoutException e) {
+                if (System.nanoTime() - deadline >= 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void complete(String key, StoredResponse response) {
+        // El peso se calcula al escribir: se vuelve a escribir la entrada para que pase a pesar 1
+        entries.asMap().computeIfPresent(key, (k, entry) -> {
+            entry.response().complete(response);
+            return new Entry(entry.fingerprint(), entry.response());
+        });
+    }
+
+    @Override
+    public void release(String key) {
+        Entry entry = entries.asMap().remove(key);
+        if (entry != null) {
+            entry.response().complete(null);
+        }
+    }
+
+    /**
+     * Caducidad según el estado de la entrada, recalculada en cada escritura: complete() vuelve a
+     * escribirla con la respuesta y pasa de la caducidad de la reserva a la de la respuesta
+     */
+    private record EntryExpiry(long ttlNanos, long inProgressNanos) implements Expiry<String, Entry> {
+
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            return entry.response().isDone() ? ttlNanos : inProgressNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Reserva de una clave: huella del cuerpo y respuesta, pendiente mientras se procesa
+     */
+    private record Entry(String fingerprint, CompletableFuture<StoredResponse> response) {
+    }
+}
@@ -0,0 +1,151 @@
+package es.unir.dwfs.payments.idempotency;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Almacén en la tabla idempotency_keys, compartido por todos los nodos. La reserva es un INSERT
+ * sobre la clave primaria; las peticiones duplicadas en curso consultan la fila hasta que tiene
+ * respuesta. La reserva caduca a los orders.idempotency.in-progress-timeout, de modo que otra
+ * petición puede tomar la clave si el nodo que la reservó cae; la respuesta guardada, a los
+ * orders.idempotency.ttl. Las filas caducadas se borran al reservar su clave y periódicamente
+ */
+@Component
+@ConditionalOnProperty(name = "orders.idempotency.store", havingValue = "jdbc")
+@Slf4j
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private final JdbcClient jdbcClient;
+    private final Duration ttl;
+    private final Duration inProgressTimeout;
+    private final Duration pollInterval;
+    private final boolean initializeSchema;
+    private final AtomicLong nextPurge = new AtomicLong(System.nanoTime());
+
+    public JdbcIdempotencyStore(JdbcClient jdbcClient,
+                                @Value("${orders.idempotency.ttl:24h}") Duration ttl,
+                                @Value("${orders.idempotency.in-progress-timeout:1m}") Duration inProgressTimeout,
+                                @Value("${orders.idempotency.poll-interval:50ms}") Duration pollInterval,
+                                @Value("${orders.idempotency.jdbc.initialize-schema:true}") boolean initializeSchema) {
+        this.jdbcClient = jdbcClient;
+        this.ttl = ttl;
+        this.inProgressTimeout = inProgressTimeout;
+        this.pollInterval = pollInterval;
+        this.initializeSchema = initializeSchema;
+    }
+
+    @PostConstruct
+    void createTable() {
+        if (initializeSchema) {
+            jdbcClient.sql("""
+                    create table if not exists idempotency_keys (
+                        idem_key varchar(300) primary key,
+                        request_hash varchar(64) not null,
+                        status integer,
+                        content_type varchar(255),
+                        body bytea,
+                        expires_at timestamp not null)""").update();
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(String key, String fingerprint) {
+        Instant now = Instant.now();
+        purgeExpired(now);
+        // Respuesta caducada o reserva de una petición que no terminó (su nodo cayó)
+        jdbcClient.sql("delete from idempotency_keys where idem_key = ? and expires_at < ?")
+                .params(key, Timestamp.from(now))
+                .update();
+        try {
+            jdbcClient.sql("insert into idempotency_keys (idem_key, request_hash, expires_at) values (?, ?, ?)")
+                    .params(key, fingerprint, Timestamp.from(now.plus(inProgressTimeout)))
+                    .update();
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String fingerprint(String key) {
+        return jdbcClient.sql("select request_hash from idempotency_keys where idem_key = ?")
+                .param(key)
+                .query(String.class)
+                .optional()
+                .orElse(null);
+    }
+
+    @Override
+    public StoredResponse await(String key, Duration timeout) throws TimeoutException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            Optional<Row> row = jdbcClient
+                    .sql("select status, content_type, body, expires_at from idempotency_keys where idem_key = ?")
+                    .param(key)
+                    .query((rs, rowNum) -> new Row(
+                            new StoredResponse(rs.getInt("status"), rs.getString("content_type"), rs.getBytes("body")),
+                            rs.getTimestamp("expires_at").toInstant()))
+                    .optional();
+            if (row.isEmpty()) {
+                return null;
+            }
+            if (row.get().response().status() != 0) {
+                return row.get().response();
+            }
+            if (row.get().expiresAt().isBefore(Instant.now())) {
+                // La petición que reservó la clave no va a responder: el llamante puede reservarla
+                return null;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new TimeoutException("Idempotency key still in progress: " + key);
+            }
+            Thread.sleep(pollInterval);
+        }
+    }
+
+    @Override
+    public void complete(String key, StoredResponse response) {
+        jdbcClient.sql("update idempotency_keys set status = ?, content_type = ?, body = ?, expires_at = ? where idem_key = ?")
+                .params(response.status(), response.contentType(), response.body(), Timestamp.from(Instant.now().plus(ttl)), key)
+                .update();
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcClient.sql("delete from idempotency_keys where idem_key = ? and status is null")
+                .param(key)
+                .update();
+    }
+
+    /**
+     * Borra las filas caducadas como mucho una vez por minuto y por nodo
+     */
+    private void purgeExpired(Instant now) {
+        long due = nextPurge.get();
+        if (System.nanoTime() - due < 0 || !nextPurge.compareAndSet(due, System.nanoTime() + Duration.ofMinutes(1).toNanos())) {
+            return;
+        }
+        int purged = jdbcClient.sql("delete from idempotency_keys where expires_at < ?")
+                .param(Timestamp.from(now))
+                .update();
+        log.debug("Purged {} expired idempotency keys", purged);
+    }
+
+    /**
+     * Fila leída mientras se espera: respuesta (estado 0 si está en curso) y caducidad
+     */
+    private record Row(StoredResponse response, Instant expiresAt) {
+    }
+}
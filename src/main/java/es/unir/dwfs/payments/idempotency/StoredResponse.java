@@ -0,0 +1,11 @@
+package es.unir.dwfs.payments.idempotency;
+
+/**
+ * Respuesta guardada para una clave de idempotencia
+ *
+ * @param status      código HTTP
+ * @param contentType tipo de contenido, o null
+ * @param body        cuerpo de la respuesta
+ */
+public record StoredResponse(int status, String contentType, byte[] body) {
+}
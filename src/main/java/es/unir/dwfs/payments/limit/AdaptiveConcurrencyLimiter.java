@@ -0,0 +1,152 @@
+package es.unir.dwfs.payments.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Límite adaptativo de peticiones en curso de un {@link LimitGroup}. La admisión es un CAS sobre
+ * el contador de peticiones en curso, sin colas ni bloqueos: lo que no cabe se rechaza al momento.
+ * Al terminar, cada petición aporta su latencia a una ventana de windowSize muestras y, al
+ * completarse la ventana, {@link LimitAlgorithm} recalcula el límite entre minLimit y maxLimit.
+ * Las muestras se acumulan sin bloqueos; solo el cálculo del límite al cerrar una ventana toma el
+ * monitor del limitador
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final LimitAlgorithm algorithm;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int windowSize;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final Counter rejected;
+    private volatile int limit;
+    private volatile Window window = new Window();
+
+    // Protegido por el monitor del limitador
+    private double exactLimit;
+
+    public AdaptiveConcurrencyLimiter(LimitGroup group, LimitAlgorithm algorithm, int initialLimit,
+                                      int minLimit, int maxLimit, int windowSize, MeterRegistry registry) {
+        this.algorithm = algorithm;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowSize = windowSize;
+        this.exactLimit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.limit = (int) exactLimit;
+
+        String tag = group.key();
+        Gauge.builder("orders.limiter.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Límite actual de peticiones en curso")
+                .tag("group", tag)
+                .register(registry);
+        Gauge.builder("orders.limiter.inflight", inflight, AtomicInteger::get)
+                .description("Peticiones en curso admitidas por el limitador")
+                .tag("group", tag)
+                .register(registry);
+        this.rejected = Counter.builder("orders.limiter.rejected")
+                .description("Peticiones rechazadas por superar el límite de concurrencia")
+                .tag("group", tag)
+                .register(registry);
+    }
+
+    /**
+     * Reserva un hueco para una petición
+     *
+     * @return Permit que debe liberarse al terminar la petición, o null si se ha alcanzado el límite
+     */
+    public Permit tryAcquire() {
+        int current;
+        do {
+            current = inflight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return null;
+            }
+        } while (!inflight.compareAndSet(current, current + 1));
+        return new Permit(current + 1, System.nanoTime());
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    void onSample(long rttNanos, int inflightAtStart, boolean didDrop) {
+        while (true) {
+            Window current = window;
+            int slot = current.claimed.incrementAndGet();
+            if (slot > windowSize) {
+                // Ventana llena: quien tomó la última muestra está instalando la siguiente
+                Thread.onSpinWait();
+                continue;
+            }
+            if (slot == windowSize) {
+                window = new Window();
+            }
+
+            current.rttSum.add(rttNanos);
+            current.maxInflight.accumulateAndGet(inflightAtStart, Math::max);
+            if (didDrop) {
+                current.dropped = true;
+            }
+            // La última muestra registrada (no la última reservada) cierra la ventana: así incluye todas
+            if (current.recorded.incrementAndGet() == windowSize) {
+                updateLimit(current);
+            }
+            return;
+        }
+    }
+
+    private synchronized void updateLimit(Window closed) {
+        long rtt = closed.rttSum.sum() / windowSize;
+        exactLimit = Math.clamp(algorithm.update(exactLimit, rtt, closed.maxInflight.get(), closed.dropped), minLimit, maxLimit);
+        limit = (int) exactLimit;
+    }
+
+    /**
+     * Muestras de una ventana. Cada una reserva primero su hueco (claimed) y, ya registrada, lo
+     * confirma (recorded)
+     */
+    private static final class Window {
+
+        private final AtomicInteger claimed = new AtomicInteger();
+        private final AtomicInteger recorded = new AtomicInteger();
+        private final LongAdder rttSum = new LongAdder();
+        private final AtomicInteger maxInflight = new AtomicInteger();
+        private volatile boolean dropped;
+    }
+
+    /**
+     * Hueco reservado por una petición. release puede llamarse más de una vez (por ejemplo, al
+     * terminar el despacho asíncrono y al cerrarse la petición): solo cuenta la primera
+     */
+    public final class Permit {
+
+        private final int inflightAtStart;
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inflightAtStart, long startNanos) {
+            this.inflightAtStart = inflightAtStart;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * @param didDrop si la petición terminó con error del servidor
+         */
+        public void release(boolean didDrop) {
+            if (released.compareAndSet(false, true)) {
+                inflight.decrementAndGet();
+                onSample(System.nanoTime() - startNanos, inflightAtStart, didDrop);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package es.unir.dwfs.payments.limit;
+
+import java.time.Duration;
+
+/**
+ * Límite AIMD: suma uno por ventana mientras la latencia media no supera latencyThreshold y se
+ * multiplica por backoffRatio si la supera o alguna petición falla con error del servidor. Más
+ * predecible que {@link GradientLimit}, pero el umbral debe ajustarse a la latencia del catálogo
+ */
+public class AimdLimit implements LimitAlgorithm {
+
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    public AimdLimit(Duration latencyThreshold, double backoffRatio) {
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+    }
+
+    @Override
+    public double update(double limit, long rttNanos, int inflight, boolean dropped) {
+        if (dropped || rttNanos > latencyThresholdNanos) {
+            return limit * backoffRatio;
+        }
+        // Solo crece si el límite se está usando
+        return inflight * 2 >= limit ? limit + 1 : limit;
+    }
+}
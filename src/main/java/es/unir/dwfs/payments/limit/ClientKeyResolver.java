@@ -0,0 +1,45 @@
+package es.unir.dwfs.payments.limit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * Identifica al cliente de una petición: el usuario autenticado si lo hay, si no la cabecera
+ * orders.rate-limit.api-key-header y en último caso la IP. Detrás del gateway, la IP es la de
+ * X-Forwarded-For si la conexión viene de server.tomcat.remoteip.internal-proxies; si no, todos
+ * los clientes anónimos compartirían la IP del gateway. La API key no se valida aquí: debe
+ * hacerlo el gateway.
+ * Lo comparten el límite de peticiones y las claves de idempotencia
+ */
+@Component
+public class ClientKeyResolver {
+
+    /**
+     * Las claves más largas no se usan: se identifica al cliente por IP
+     */
+    private static final int MAX_API_KEY_LENGTH = 128;
+
+    private final String apiKeyHeader;
+
+    public ClientKeyResolver(@Value("${orders.rate-limit.api-key-header:X-API-Key}") String apiKeyHeader) {
+        this.apiKeyHeader = apiKeyHeader;
+    }
+
+    /**
+     * @return "user:{nombre}", "key:{API key}" o "ip:{dirección}"
+     */
+    public String resolve(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "user:" + principal.getName();
+        }
+        String apiKey = request.getHeader(apiKeyHeader);
+        if (apiKey != null && !apiKey.isBlank() && apiKey.length() <= MAX_API_KEY_LENGTH) {
+            return "key:" + apiKey;
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,107 @@
+package es.unir.dwfs.payments.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Límite de peticiones por cliente de una ruta: limit peticiones cada period, con ráfagas de hasta
+ * burst. Cada cliente tiene un {@link TokenBucket} en un ConcurrentHashMap, que se lee sin
+ * bloqueos, así que la comprobación de un cliente conocido es una lectura del mapa y un CAS.
+ * <p>
+ * {@link #evictIdle()} borra los cubos sin uso durante idleTimeout: un cubo inactivo está lleno,
+ * así que olvidarlo no cambia el límite. Entre dos barridos el mapa admite como máximo maxClients
+ * clientes; con el mapa lleno, los clientes nuevos comparten un único cubo hasta el siguiente
+ * barrido, de modo que millones de claves distintas no agotan la memoria ni esquivan el límite
+ */
+public class ClientRateLimiter {
+
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final long idleNanos;
+    private final int maxClients;
+    private final LongSupplier clock;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final TokenBucket overflow;
+    private final Counter rejected;
+
+    public ClientRateLimiter(String route, int limit, Duration period, int burst, Duration idleTimeout,
+                             int maxClients, LongSupplier clock, MeterRegistry registry) {
+        this.intervalNanos = Math.max(1, period.toNanos() / limit);
+        this.capacityNanos = intervalNanos * burst;
+        // Un cubo solo está lleno cuando ha pasado el tiempo de recarga completa
+        this.idleNanos = Math.max(idleTimeout.toNanos(), capacityNanos);
+        this.maxClients = maxClients;
+        this.clock = clock;
+        this.overflow = new TokenBucket(clock.getAsLong());
+
+        // Un limitador por ruta (la etiqueta identifica el gauge). Referencia fuerte: el gauge no
+        // depende de que otro objeto mantenga vivo el contador
+        Gauge.builder("orders.rate-limit.clients", size, AtomicInteger::get)
+                .description("Clientes con estado de límite de peticiones")
+                .tag("route", route)
+                .strongReference(true)
+                .register(registry);
+        this.rejected = Counter.builder("orders.rate-limit.rejected")
+                .description("Peticiones rechazadas por superar el límite del cliente")
+                .tag("route", route)
+                .register(registry);
+    }
+
+    /**
+     * Consume un token del cliente
+     *
+     * @param client API key o IP del cliente
+     * @return 0 si se admite la petición o, si no, nanosegundos hasta el siguiente token
+     */
+    public long tryAcquire(String client) {
+        long now = clock.getAsLong();
+        TokenBucket bucket = buckets.get(client);
+        if (bucket == null) {
+            bucket = newBucket(client, now);
+        }
+        long waitNanos = bucket.tryConsume(now, intervalNanos, capacityNanos);
+        if (waitNanos > 0) {
+            rejected.increment();
+        }
+        return waitNanos;
+    }
+
+    private TokenBucket newBucket(String client, long now) {
+        if (size.get() >= maxClients) {
+            return overflow;
+        }
+        return buckets.computeIfAbsent(client, key -> {
+            size.incrementAndGet();
+            return new TokenBucket(now);
+        });
+    }
+
+    /**
+     * Borra los cubos de los clientes sin peticiones durante idleTimeout
+     *
+     * @return cubos borrados
+     */
+    public int evictIdle() {
+        long cutoff = clock.getAsLong() - idleNanos;
+        int evicted = 0;
+        for (Map.Entry<String, TokenBucket> entry : buckets.entrySet()) {
+            if (entry.getValue().idleSince(cutoff) && buckets.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        size.addAndGet(-evicted);
+        return evicted;
+    }
+
+    public int clients() {
+        return size.get();
+    }
+}
@@ -0,0 +1,129 @@
+package es.unir.dwfs.payments.limit;
+
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.exception.RetryLaterException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Limita las peticiones en curso de los endpoints anotados con {@link ConcurrencyLimited}, con un
+ * {@link AdaptiveConcurrencyLimiter} por grupo. Sin límite, bajo sobrecarga las peticiones se
+ * acumulan en Tomcat esperando al catálogo y la latencia crece para todas; con él, lo que excede
+ * la capacidad se rechaza al momento con 503 y Retry-After (ORDER_LIMIT-001), y las admitidas
+ * mantienen su latencia. El algoritmo se elige con orders.limiter.algorithm (gradient o aimd).
+ * <p>
+ * El hueco se libera al terminar la petición; en los controladores reactivos, al terminar el
+ * despacho asíncrono o, si no llega a producirse, al cerrarse la petición
+ */
+@Component
+@ConditionalOnProperty(name = "orders.limiter.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+    private static final String PREFIX = "orders.limiter.";
+
+    private final ConverterErrors converterErrors;
+    private final Duration retryAfter;
+    private final Map<LimitGroup, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(LimitGroup.class);
+
+    public ConcurrencyLimitInterceptor(ConverterErrors converterErrors,
+                                       MeterRegistry registry,
+                                       Environment environment,
+                                       @Value("${orders.limiter.retry-after:1s}") Duration retryAfter,
+                                       @Value("${orders.limiter.window-size:20}") int windowSize) {
+        this.converterErrors = converterErrors;
+        this.retryAfter = retryAfter;
+        for (LimitGroup group : LimitGroup.values()) {
+            String prefix = PREFIX + group.key() + ".";
+            limiters.put(group, new AdaptiveConcurrencyLimiter(group, algorithm(environment),
+                    environment.getProperty(prefix + "initial-limit", Integer.class, group.defaultInitialLimit()),
+                    environment.getProperty(prefix + "min-limit", Integer.class, group.defaultMinLimit()),
+                    environment.getProperty(prefix + "max-limit", Integer.class, group.defaultMaxLimit()),
+                    windowSize, registry));
+        }
+    }
+
+    private static LimitAlgorithm algorithm(Environment environment) {
+        String name = environment.getProperty(PREFIX + "algorithm", "gradient");
+        return switch (name) {
+            case "gradient" -> new GradientLimit(
+                    environment.getProperty(PREFIX + "gradient.tolerance", Double.class, 1.5),
+                    environment.getProperty(PREFIX + "gradient.smoothing", Double.class, 0.2),
+                    environment.getProperty(PREFIX + "gradient.long-window", Integer.class, 100));
+            case "aimd" -> new AimdLimit(
+                    environment.getProperty(PREFIX + "aimd.latency-threshold", Duration.class, Duration.ofMillis(500)),
+                    environment.getProperty(PREFIX + "aimd.backoff-ratio", Double.class, 0.9));
+            default -> throw new IllegalStateException("Algoritmo de límite de concurrencia desconocido: " + name);
+        };
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // En el despacho asíncrono la petición ya tiene su hueco
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        ConcurrencyLimited limited = method.getMethodAnnotation(ConcurrencyLimited.class);
+        if (limited == null) {
+            return true;
+        }
+
+        AdaptiveConcurrencyLimiter limiter = limiters.get(limited.value());
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            throw new RetryLaterException(HttpStatus.SERVICE_UNAVAILABLE, "ORDER_LIMIT-001",
+                    converterErrors.getMessage("ORDER_LIMIT-001", limiter.getLimit()), retryAfter);
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof AdaptiveConcurrencyLimiter.Permit permit) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    permit.release(false);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                    permit.release(true);
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    permit.release(true);
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                    // Sin acción: el hueco sigue reservado
+                }
+            });
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof AdaptiveConcurrencyLimiter.Permit permit) {
+            permit.release(ex != null || response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value());
+        }
+    }
+}
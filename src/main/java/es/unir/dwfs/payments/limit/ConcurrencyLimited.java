@@ -0,0 +1,20 @@
+package es.unir.dwfs.payments.limit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca un endpoint cuyas peticiones en curso limita {@link ConcurrencyLimitInterceptor}. No debe
+ * usarse en endpoints de larga duración (streaming, SSE): ocuparían un hueco del límite durante
+ * toda la conexión y su duración falsearía la latencia con la que se ajusta
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ConcurrencyLimited {
+
+    LimitGroup value();
+}
@@ -0,0 +1,48 @@
+package es.unir.dwfs.payments.limit;
+
+/**
+ * Límite por gradiente de latencia: compara la latencia de la ventana con una media móvil de
+ * largo plazo. Mientras la latencia no supera tolerance veces esa media el límite crece en
+ * sqrt(limit) (margen de cola); si la supera, se reduce en proporción, hasta la mitad. No
+ * necesita un umbral de latencia fijo, porque la referencia se aprende del propio tráfico
+ */
+public class GradientLimit implements LimitAlgorithm {
+
+    private final double tolerance;
+    private final double smoothing;
+    private final int longWindow;
+    private double longRtt;
+
+    /**
+     * @param tolerance  cociente entre latencia actual y de referencia a partir del cual el límite baja
+     * @param smoothing  peso del nuevo límite frente al anterior (0-1)
+     * @param longWindow ventanas que abarca la media de latencia de referencia
+     */
+    public GradientLimit(double tolerance, double smoothing, int longWindow) {
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.longWindow = longWindow;
+    }
+
+    @Override
+    public double update(double limit, long rttNanos, int inflight, boolean dropped) {
+        if (longRtt == 0) {
+            longRtt = rttNanos;
+        } else {
+            longRtt += (rttNanos - longRtt) / longWindow;
+        }
+        // Tras una sobrecarga larga la referencia queda inflada: se acerca antes a la latencia normal
+        if (longRtt > 2.0 * rttNanos) {
+            longRtt *= 0.95;
+        }
+
+        // Con menos de la mitad del límite en uso la latencia no dice nada de la capacidad
+        if (inflight < limit / 2) {
+            return limit;
+        }
+
+        double gradient = Math.clamp(tolerance * longRtt / Math.max(1, rttNanos), 0.5, 1.0);
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        return limit * (1 - smoothing) + newLimit * smoothing;
+    }
+}
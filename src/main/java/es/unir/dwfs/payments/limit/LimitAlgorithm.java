@@ -0,0 +1,18 @@
+package es.unir.dwfs.payments.limit;
+
+/**
+ * Algoritmo que recalcula el límite de concurrencia con las muestras de una ventana. Cada
+ * {@link AdaptiveConcurrencyLimiter} tiene su propia instancia y la llama con su monitor, así que
+ * las implementaciones pueden guardar estado sin sincronizar
+ */
+public interface LimitAlgorithm {
+
+    /**
+     * @param limit    límite actual (con decimales, para que los ajustes pequeños se acumulen)
+     * @param rttNanos latencia media de las peticiones de la ventana
+     * @param inflight máximo de peticiones en curso observado en la ventana
+     * @param dropped  si alguna petición de la ventana terminó con error del servidor
+     * @return nuevo límite, antes de acotarlo al mínimo y máximo configurados
+     */
+    double update(double limit, long rttNanos, int inflight, boolean dropped);
+}
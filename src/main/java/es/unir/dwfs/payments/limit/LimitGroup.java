@@ -0,0 +1,40 @@
+package es.unir.dwfs.payments.limit;
+
+/**
+ * Grupos de endpoints con límite de concurrencia propio, configurado en
+ * orders.limiter.{read|write}. Las escrituras consultan el catálogo y son mucho más lentas que las
+ * lecturas, así que un límite común dejaría que una ráfaga de altas bloquease las consultas
+ */
+public enum LimitGroup {
+
+    READ("read", 50, 5, 500),
+    WRITE("write", 20, 2, 200);
+
+    private final String key;
+    private final int defaultInitialLimit;
+    private final int defaultMinLimit;
+    private final int defaultMaxLimit;
+
+    LimitGroup(String key, int defaultInitialLimit, int defaultMinLimit, int defaultMaxLimit) {
+        this.key = key;
+        this.defaultInitialLimit = defaultInitialLimit;
+        this.defaultMinLimit = defaultMinLimit;
+        this.defaultMaxLimit = defaultMaxLimit;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public int defaultInitialLimit() {
+        return defaultInitialLimit;
+    }
+
+    public int defaultMinLimit() {
+        return defaultMinLimit;
+    }
+
+    public int defaultMaxLimit() {
+        return defaultMaxLimit;
+    }
+}
@@ -0,0 +1,95 @@
+package es.unir.dwfs.payments.limit;
+
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.exception.RetryLaterException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limita las peticiones de cada cliente a los endpoints anotados con {@link RateLimited}, para que
+ * un cliente no acapare la capacidad del servicio. El cliente se identifica con
+ * {@link ClientKeyResolver}: la API key no se valida aquí y debe hacerlo el gateway, o un cliente
+ * podría repartir sus peticiones entre claves inventadas. Por encima del límite se responde 429
+ * con Retry-After (ORDER_RATE-001).
+ * <p>
+ * Cada ruta se configura en orders.rate-limit.routes.{ruta} (limit, period, burst); las que no
+ * tienen configuración usan orders.rate-limit.default
+ */
+@Component
+@ConditionalOnProperty(name = "orders.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String PREFIX = "orders.rate-limit.";
+
+    private final ConverterErrors converterErrors;
+    private final MeterRegistry registry;
+    private final Environment environment;
+    private final ClientKeyResolver clientKeyResolver;
+    private final Duration idleTimeout;
+    private final int maxClients;
+    private final Map<String, ClientRateLimiter> limiters = new ConcurrentHashMap<>();
+
+    public RateLimitInterceptor(ConverterErrors converterErrors,
+                                MeterRegistry registry,
+                                Environment environment,
+                                ClientKeyResolver clientKeyResolver,
+                                @Value("${orders.rate-limit.idle-timeout:10m}") Duration idleTimeout,
+                                @Value("${orders.rate-limit.max-clients:100000}") int maxClients) {
+        this.converterErrors = converterErrors;
+        this.registry = registry;
+        this.environment = environment;
+        this.clientKeyResolver = clientKeyResolver;
+        this.idleTimeout = idleTimeout;
+        this.maxClients = maxClients;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        RateLimited rateLimited = method.getMethodAnnotation(RateLimited.class);
+        if (rateLimited == null) {
+            return true;
+        }
+
+        long waitNanos = limiters.computeIfAbsent(rateLimited.value(), this::createLimiter).tryAcquire(clientKeyResolver.resolve(request));
+        if (waitNanos > 0) {
+            throw new RetryLaterException(HttpStatus.TOO_MANY_REQUESTS, "ORDER_RATE-001",
+                    converterErrors.getMessage("ORDER_RATE-001"), Duration.ofNanos(waitNanos));
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${orders.rate-limit.eviction-interval:1m}")
+    public void evictIdleClients() {
+        limiters.values().forEach(ClientRateLimiter::evictIdle);
+    }
+
+    private ClientRateLimiter createLimiter(String route) {
+        String prefix = PREFIX + "routes." + route + ".";
+        String defaults = PREFIX + "default.";
+        return new ClientRateLimiter(route,
+                environment.getProperty(prefix + "limit", Integer.class,
+                        environment.getProperty(defaults + "limit", Integer.class, 50)),
+                environment.getProperty(prefix + "period", Duration.class,
+                        environment.getProperty(defaults + "period", Duration.class, Duration.ofSeconds(1))),
+                environment.getProperty(prefix + "burst", Integer.class,
+                        environment.getProperty(defaults + "burst", Integer.class, 100)),
+                idleTimeout, maxClients, System::nanoTime, registry);
+    }
+}
@@ -0,0 +1,22 @@
+package es.unir.dwfs.payments.limit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca un endpoint con límite de peticiones por cliente, aplicado por {@link RateLimitInterceptor}.
+ * Los endpoints con la misma ruta comparten cubos y se configuran en orders.rate-limit.routes.{ruta}
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RateLimited {
+
+    /**
+     * Nombre de la ruta en la configuración, por ejemplo create-order
+     */
+    String value();
+}
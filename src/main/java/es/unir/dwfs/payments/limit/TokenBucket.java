@@ -0,0 +1,53 @@
+package es.unir.dwfs.payments.limit;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Token bucket sin bloqueos, implementado como GCRA: en lugar de tokens y fecha de recarga se
+ * guarda un único instante (theoretical arrival time, TAT) en un campo long. Cada petición
+ * adelanta el TAT un intervalo; se admite mientras el TAT no quede más de burst intervalos por
+ * delante del reloj. Equivale a un cubo de burst tokens que recupera uno cada intervalo, y se
+ * actualiza con un solo CAS. El campo se actualiza con un AtomicLongFieldUpdater en lugar de un
+ * AtomicLong para ahorrar un objeto (y un acceso a memoria) por cliente
+ */
+public class TokenBucket {
+
+    private static final AtomicLongFieldUpdater<TokenBucket> THEORETICAL_ARRIVAL =
+            AtomicLongFieldUpdater.newUpdater(TokenBucket.class, "theoreticalArrival");
+
+    private volatile long theoreticalArrival;
+
+    public TokenBucket(long nowNanos) {
+        // TAT en el pasado o en el presente: cubo lleno
+        this.theoreticalArrival = nowNanos;
+    }
+
+    /**
+     * Consume un token si hay disponible
+     *
+     * @param nowNanos       instante actual (System.nanoTime)
+     * @param intervalNanos  tiempo de recarga de un token
+     * @param capacityNanos  burst × intervalNanos
+     * @return 0 si se ha consumido el token o, si no, nanosegundos que faltan para el siguiente
+     */
+    public long tryConsume(long nowNanos, long intervalNanos, long capacityNanos) {
+        while (true) {
+            long current = theoreticalArrival;
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            long ahead = next - nowNanos;
+            if (ahead > capacityNanos) {
+                return ahead - capacityNanos;
+            }
+            if (THEORETICAL_ARRIVAL.compareAndSet(this, current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Si el cubo estaba lleno en cutoffNanos y no se ha usado desde entonces
+     */
+    public boolean idleSince(long cutoffNanos) {
+        return theoreticalArrival - cutoffNanos <= 0;
+    }
+}
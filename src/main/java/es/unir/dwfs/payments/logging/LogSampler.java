@@ -0,0 +1,23 @@
+package es.unir.dwfs.payments.logging;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decide si se escribe una traza de diagnóstico de alto volumen (por ejemplo una por item)
+ * con la tasa indicada. Debe consultarse después de comprobar que el nivel está activo
+ */
+public class LogSampler {
+
+    private final double rate;
+
+    /**
+     * @param rate fracción de trazas que se escriben, entre 0 (ninguna) y 1 (todas)
+     */
+    public LogSampler(double rate) {
+        this.rate = rate;
+    }
+
+    public boolean sample() {
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+}
@@ -0,0 +1,51 @@
+package es.unir.dwfs.payments.logging;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sustituye a spring.jpa.show-sql: escribe el SQL en el logger es.unir.dwfs.payments.sql a nivel
+ * DEBUG, como mucho max-per-second sentencias por segundo. Con DEBUG desactivado solo cuesta
+ * la comprobación de nivel
+ */
+@Slf4j(topic = "es.unir.dwfs.payments.sql")
+public class RateLimitedSqlLogger implements StatementInspector {
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final int maxPerSecond;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger logged = new AtomicInteger();
+    private final AtomicInteger suppressed = new AtomicInteger();
+
+    public RateLimitedSqlLogger(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (!log.isDebugEnabled()) {
+            return sql;
+        }
+
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            logged.set(0);
+            int dropped = suppressed.getAndSet(0);
+            if (dropped > 0) {
+                log.debug("{} SQL statements not logged in the last second", dropped);
+            }
+        }
+
+        if (logged.incrementAndGet() <= maxPerSecond) {
+            log.debug("{}", sql);
+        } else {
+            suppressed.incrementAndGet();
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,142 @@
+package es.unir.dwfs.payments.metrics;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Métricas del flujo de creación de pedidos. Todas las etiquetas tienen un conjunto de valores
+ * cerrado (etapa, operación, resultado, código de error); nunca IDs de libro o de pedido
+ */
+@Component
+public class OrderMetrics {
+
+    /**
+     * Etapas de la creación de un pedido
+     */
+    public enum Stage {
+        CATALOGUE, VALIDATION, PERSISTENCE, SERIALIZATION
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> catalogueTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> errorCounters = new ConcurrentHashMap<>();
+    private final DistributionSummary itemsPerOrder;
+
+    public OrderMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.itemsPerOrder = DistributionSummary.builder("orders.items")
+                .description("Items por pedido creado")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1000.0)
+                .register(registry);
+    }
+
+    /**
+     * Ejecuta y mide una etapa de la creación del pedido
+     */
+    public <T> T time(Stage stage, Supplier<T> step) {
+        long start = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            record(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Registra la duración acumulada de una etapa medida por el llamante
+     */
+    public void record(Stage stage, long nanos) {
+        stageTimers.computeIfAbsent(stage, key -> Timer.builder("orders.create.stage")
+                        .description("Duración de cada etapa de la creación de pedidos")
+                        .tag("stage", key.name().toLowerCase())
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(10))
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordItems(int items) {
+        itemsPerOrder.record(items);
+    }
+
+    /**
+     * Cuenta un error devuelto al cliente por su código (ORDER_BUSINESS-001, GENERIC-003...)
+     */
+    public void countError(String code, int status) {
+        errorCounters.computeIfAbsent(code + ":" + status, key -> Counter.builder("orders.errors")
+                        .description("Errores devueltos por código")
+                        .tag("code", code)
+                        .tag("status", String.valueOf(status))
+                        .register(registry))
+                .increment();
+    }
+
+    /**
+     * Mide una llamada al catálogo desde la suscripción hasta su fin
+     *
+     * @param operation single o batch
+     */
+    public <T> Mono<T> timeCatalogue(String operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnEach(signal -> recordCatalogue(operation, signal, start))
+                    .doOnCancel(() -> recordCatalogue(operation, "cancelled", start));
+        });
+    }
+
+    public <T> Flux<T> timeCatalogue(String operation, Flux<T> call) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnEach(signal -> recordCatalogue(operation, signal, start))
+                    .doOnCancel(() -> recordCatalogue(operation, "cancelled", start));
+        });
+    }
+
+    private void recordCatalogue(String operation, Signal<?> signal, long start) {
+        if (signal.isOnComplete()) {
+            recordCatalogue(operation, "success", start);
+        } else if (signal.isOnError()) {
+            recordCatalogue(operation, outcome(signal.getThrowable()), start);
+        }
+    }
+
+    private void recordCatalogue(String operation, String outcome, long start) {
+        catalogueTimers.computeIfAbsent(operation + ":" + outcome, key -> Timer.builder("catalogue.requests")
+                        .description("Latencia de las peticiones al catálogo")
+                        .tag("operation", operation)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(10))
+                        .register(registry))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private String outcome(Throwable error) {
+        if (error instanceof WebClientResponseException.NotFound) {
+            return "not_found";
+        }
+        if (error instanceof CallNotPermittedException) {
+            return "rejected";
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,45 @@
+package es.unir.dwfs.payments.outbox;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Publicador para pruebas locales: guarda en memoria los últimos eventos publicados
+ */
+@Component
+@ConditionalOnProperty(name = "orders.outbox.publisher", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOrderEventPublisher implements OrderEventPublisher {
+
+    private final int maxEvents;
+    private final Deque<OrderEvent> events = new ArrayDeque<>();
+
+    public InMemoryOrderEventPublisher(@Value("${orders.outbox.memory.max-events:10000}") int maxEvents) {
+        this.maxEvents = maxEvents;
+    }
+
+    @Override
+    public synchronized void publish(List<OrderEvent> batch) {
+        for (OrderEvent event : batch) {
+            if (events.size() == maxEvents) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+        }
+    }
+
+    /**
+     * Eventos publicados, del más antiguo al más reciente
+     */
+    public synchronized List<OrderEvent> events() {
+        return List.copyOf(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
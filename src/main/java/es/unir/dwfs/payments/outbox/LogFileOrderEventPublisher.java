@@ -0,0 +1,57 @@
+package es.unir.dwfs.payments.outbox;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Publicador en un fichero NDJSON (un evento por línea), para pruebas locales o para que otro
+ * proceso lo consuma. Cada lote se escribe con una sola llamada y se fuerza a disco antes de
+ * confirmarlo, de modo que un evento borrado de la outbox ya está en el fichero
+ */
+@Component
+@ConditionalOnProperty(name = "orders.outbox.publisher", havingValue = "log")
+public class LogFileOrderEventPublisher implements OrderEventPublisher {
+
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+
+    public LogFileOrderEventPublisher(ObjectMapper objectMapper,
+                                      @Value("${orders.outbox.log.file:order-events.ndjson}") Path file) throws IOException {
+        this.objectMapper = objectMapper;
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized void publish(List<OrderEvent> events) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(events.size() * 256);
+        for (OrderEvent event : events) {
+            lines.write(objectMapper.writeValueAsBytes(event));
+            lines.write('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        channel.close();
+    }
+}
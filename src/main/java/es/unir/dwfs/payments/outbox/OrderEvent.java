@@ -0,0 +1,19 @@
+package es.unir.dwfs.payments.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+
+/**
+ * Evento de la tabla order_outbox
+ *
+ * @param id        posición en la outbox; crece en el orden en que se escriben los eventos
+ * @param orderId   pedido al que se refiere el evento
+ * @param type      tipo de evento (ORDER_CREATED)
+ * @param createdAt instante en que se escribió el evento, en la transacción del pedido
+ * @param payload   JSON del pedido, con el mismo formato que GET /orders/{id}
+ */
+public record OrderEvent(long id, Long orderId, String type, Instant createdAt, @JsonRawValue String payload) {
+
+    public static final String ORDER_CREATED = "ORDER_CREATED";
+}
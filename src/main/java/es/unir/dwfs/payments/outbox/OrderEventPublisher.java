@@ -0,0 +1,17 @@
+package es.unir.dwfs.payments.outbox;
+
+import java.util.List;
+
+/**
+ * Destino de los eventos de la outbox. Se elige con orders.outbox.publisher: memory (pruebas
+ * locales) o log (fichero NDJSON)
+ */
+public interface OrderEventPublisher {
+
+    /**
+     * Publica un lote de eventos en orden. Si termina sin excepción, el lote se da por entregado y
+     * se borra de la outbox; si lanza una excepción, el lote completo se reintenta en la siguiente
+     * pasada, por lo que un consumidor puede recibir duplicados (entrega al menos una vez)
+     */
+    void publish(List<OrderEvent> events) throws Exception;
+}
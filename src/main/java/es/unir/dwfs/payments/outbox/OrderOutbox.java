@@ -0,0 +1,125 @@
+package es.unir.dwfs.payments.outbox;
+
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.service.OrderView;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Outbox transaccional de eventos de pedidos (tabla order_outbox). El evento ORDER_CREATED se
+ * escribe en la misma transacción que el pedido: si la transacción se deshace no queda evento, y
+ * si se confirma el evento acabará publicándose aunque el proceso se detenga justo después.
+ * {@link OutboxRelay} lee los eventos en orden de id, los publica y después los borra. Con varios
+ * nodos, los relays se turnan con un arrendamiento (tabla order_outbox_lease, una sola fila): solo
+ * publica el nodo que lo tiene y, si se detiene sin liberarlo, otro lo toma al expirar
+ */
+@Component
+public class OrderOutbox {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public OrderOutbox(JdbcTemplate jdbcTemplate,
+                       ObjectMapper objectMapper,
+                       @Value("${orders.outbox.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    void createTable() {
+        if (enabled) {
+            jdbcTemplate.execute("""
+                    create table if not exists order_outbox (
+                        id bigint generated by default as identity primary key,
+                        order_id bigint not null,
+                        event_type varchar(50) not null,
+                        created_at timestamp not null,
+                        payload varchar not null)""");
+            jdbcTemplate.execute("""
+                    create table if not exists order_outbox_lease (
+                        id int primary key,
+                        owner varchar(100),
+                        expires_at timestamp not null)""");
+            try {
+                jdbcTemplate.update("insert into order_outbox_lease (id, owner, expires_at) values (1, null, ?)",
+                        Timestamp.from(Instant.EPOCH));
+            } catch (DuplicateKeyException e) {
+                // Ya creada por otro nodo o por un arranque anterior
+            }
+        }
+    }
+
+    /**
+     * Toma o renueva el arrendamiento del relay hasta now + duration. Se concede si está libre,
+     * expirado o ya es de este propietario: una sola actualización condicional, atómica entre nodos.
+     * Las horas son las de cada nodo, así que la duración debe superar con holgura su desfase
+     *
+     * @return true si owner tiene el arrendamiento
+     */
+    public boolean tryLease(String owner, Instant now, Duration duration) {
+        return jdbcTemplate.update("""
+                        update order_outbox_lease set owner = ?, expires_at = ?
+                        where id = 1 and (owner = ? or owner is null or expires_at < ?)""",
+                owner, Timestamp.from(now.plus(duration)), owner, Timestamp.from(now)) == 1;
+    }
+
+    /**
+     * Libera el arrendamiento si sigue siendo de owner, para que otro nodo no espere a que expire
+     */
+    public void releaseLease(String owner) {
+        jdbcTemplate.update("update order_outbox_lease set owner = null where id = 1 and owner = ?", owner);
+    }
+
+    /**
+     * Escribe un evento ORDER_CREATED por pedido. Debe llamarse dentro de la transacción que
+     * guarda los pedidos, ya con sus IDs asignados
+     */
+    public void add(Collection<Order> orders) {
+        if (!enabled || orders.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> rows = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            rows.add(new Object[]{order.getId(), OrderEvent.ORDER_CREATED, now,
+                    objectMapper.writeValueAsString(OrderView.of(order))});
+        }
+        jdbcTemplate.batchUpdate(
+                "insert into order_outbox (order_id, event_type, created_at, payload) values (?, ?, ?, ?)", rows);
+    }
+
+    /**
+     * Eventos pendientes más antiguos, en orden de id
+     */
+    public List<OrderEvent> nextBatch(int limit) {
+        return jdbcTemplate.query("""
+                        select id, order_id, event_type, created_at, payload from order_outbox
+                        order by id
+                        fetch first %d rows only""".formatted(limit),
+                (rs, rowNum) -> new OrderEvent(rs.getLong("id"), rs.getLong("order_id"), rs.getString("event_type"),
+                        rs.getTimestamp("created_at").toInstant(), rs.getString("payload")));
+    }
+
+    /**
+     * Borra los eventos ya publicados. Se borra por id y no por rango: un evento con id menor
+     * puede confirmarse después de leer el lote (transacciones concurrentes) y sigue pendiente
+     */
+    public void delete(List<OrderEvent> events) {
+        jdbcTemplate.batchUpdate("delete from order_outbox where id = ?",
+                events.stream().map(event -> new Object[]{event.id()}).toList());
+    }
+}
@@ -0,0 +1,118 @@
+package es.unir.dwfs.payments.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Vacía la outbox en segundo plano: cada orders.outbox.poll-interval lee lotes de
+ * orders.outbox.batch-size eventos en orden de id, los publica y los borra, hasta dejarla vacía.
+ * <ul>
+ *     <li>Al menos una vez: un evento se borra solo después de publicarse; si el publicador falla
+ *     o el proceso se detiene antes del borrado, el lote se vuelve a publicar</li>
+ *     <li>Orden por pedido: los eventos de un pedido se escriben en su transacción y se publican en
+ *     orden de id por un único hilo. Con varios nodos, el relay puede activarse en todos: solo
+ *     publica el que tiene el arrendamiento de la outbox (orders.outbox.relay.lease), que se renueva
+ *     antes de cada lote. Un nodo que no lo tiene lo intenta de nuevo en el siguiente ciclo</li>
+ *     <li>orders.outbox.relay.enabled=false deja el nodo escribiendo eventos sin publicarlos</li>
+ * </ul>
+ */
+@Component
+@ConditionalOnProperty(name = {"orders.outbox.enabled", "orders.outbox.relay.enabled"}, havingValue = "true")
+@Slf4j
+public class OutboxRelay {
+
+    private final OrderOutbox outbox;
+    private final OrderEventPublisher publisher;
+    private final int batchSize;
+    private final Duration leaseDuration;
+    private final String owner = UUID.randomUUID().toString();
+    private final Counter published;
+    private final Counter failures;
+    private final Timer lag;
+
+    public OutboxRelay(OrderOutbox outbox,
+                       OrderEventPublisher publisher,
+                       MeterRegistry registry,
+                       @Value("${orders.outbox.batch-size:100}") int batchSize,
+                       @Value("${orders.outbox.relay.lease:30s}") Duration leaseDuration) {
+        this.outbox = outbox;
+        this.publisher = publisher;
+        this.batchSize = batchSize;
+        this.leaseDuration = leaseDuration;
+        this.published = Counter.builder("orders.outbox.published")
+                .description("Eventos de la outbox publicados")
+                .register(registry);
+        this.failures = Counter.builder("orders.outbox.failures")
+                .description("Lotes de la outbox que el publicador no pudo entregar")
+                .register(registry);
+        this.lag = Timer.builder("orders.outbox.lag")
+                .description("Tiempo desde que se escribe un evento hasta que se publica")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${orders.outbox.poll-interval:1s}")
+    public void poll() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            log.warn("Error draining order outbox: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void releaseLease() {
+        try {
+            outbox.releaseLease(owner);
+        } catch (RuntimeException e) {
+            log.debug("Could not release outbox lease: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Publica todos los eventos pendientes si este nodo tiene (o toma) el arrendamiento
+     *
+     * @return número de eventos publicados
+     */
+    public synchronized int drain() {
+        int count = 0;
+        while (true) {
+            // Renovado antes de cada lote: si otro nodo lo ha tomado (este se pausó más que el
+            // arrendamiento), se deja de publicar
+            if (!outbox.tryLease(owner, Instant.now(), leaseDuration)) {
+                return count;
+            }
+            List<OrderEvent> batch = outbox.nextBatch(batchSize);
+            if (batch.isEmpty()) {
+                return count;
+            }
+            try {
+                publisher.publish(batch);
+            } catch (Exception e) {
+                failures.increment();
+                log.warn("Error publishing {} order events, retrying on next poll: {}", batch.size(), e.getMessage());
+                return count;
+            }
+            outbox.delete(batch);
+
+            Instant now = Instant.now();
+            batch.forEach(event -> lag.record(Duration.between(event.createdAt(), now)));
+            published.increment(batch.size());
+            count += batch.size();
+            if (batch.size() < batchSize) {
+                return count;
+            }
+        }
+    }
+}
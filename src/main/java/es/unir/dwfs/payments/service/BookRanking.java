@@ -0,0 +1,9 @@
+package es.unir.dwfs.payments.service;
+
+/**
+ * Criterio de ordenación del ranking de libros más vendidos
+ */
+public enum BookRanking {
+    UNITS,
+    REVENUE
+}
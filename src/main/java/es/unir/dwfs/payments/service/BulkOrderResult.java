@@ -0,0 +1,29 @@
+package es.unir.dwfs.payments.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import es.unir.dwfs.payments.exception.ErrorResponse;
+
+import java.util.List;
+
+/**
+ * Resultado de un pedido de un envío en lote
+ *
+ * @param index   posición del pedido en el lote (desde 0)
+ * @param status  código HTTP equivalente al de POST /orders
+ * @param id      ID del pedido creado, o null si fue rechazado
+ * @param message mensaje del error, o null si se creó
+ * @param errors  detalles del error con los mismos códigos que ErrorResponse
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkOrderResult(int index, int status, Long id, String message,
+                              List<ErrorResponse.ErrorDetail> errors) {
+
+    public static BulkOrderResult created(int index, Long id) {
+        return new BulkOrderResult(index, 200, id, null, null);
+    }
+
+    public static BulkOrderResult rejected(int index, int status, String message,
+                                           List<ErrorResponse.ErrorDetail> errors) {
+        return new BulkOrderResult(index, status, null, message, errors);
+    }
+}
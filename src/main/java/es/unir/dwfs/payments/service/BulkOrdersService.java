@@ -0,0 +1,21 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Interfaz del servicio de creación de pedidos en lote
+ */
+public interface BulkOrdersService {
+
+    /**
+     * Valida y guarda los pedidos. Un pedido erróneo no impide guardar el resto. Los pedidos se
+     * leen del iterador a medida que se procesan, de modo que el lote no tiene que estar en memoria
+     *
+     * @param requests pedidos del lote; si falla al leer, se procesan los ya leídos y se propaga el error
+     * @param results  recibe el resultado de cada pedido, en el orden del lote
+     */
+    void createOrders(Iterator<OrderRequest> requests, Consumer<BulkOrderResult> results);
+}
@@ -0,0 +1,169 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.exception.BusinessRuleViolationException;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.exception.ErrorResponse;
+import es.unir.dwfs.payments.facade.BooksCatalogueFacade;
+import es.unir.dwfs.payments.facade.BooksCatalogueFacade.BookLookup;
+import es.unir.dwfs.payments.metrics.OrderMetrics;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Implementación del servicio de pedidos en lote. Los pedidos se leen, validan y guardan por
+ * bloques de orders.bulk.chunk-size: los libros de cada bloque se resuelven con una consulta (y
+ * su propio plazo getBook.deadline), el bloque se guarda en su propia transacción y sus
+ * resultados se emiten antes de leer el siguiente. Los pedidos con libros que el catálogo no ha
+ * resuelto se rechazan con 503 (GENERIC-006), para que el cliente pueda reenviarlos
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkOrdersServiceImpl implements BulkOrdersService {
+
+    private final BooksCatalogueFacade facade;
+    private final OrderWriter orderWriter;
+    private final OrderAssembler orderAssembler;
+    private final Validator validator;
+    private final ConverterErrors converterErrors;
+    private final OrderMetrics orderMetrics;
+
+    @Value("${orders.bulk.chunk-size:100}")
+    private int chunkSize;
+
+    @Override
+    public void createOrders(Iterator<OrderRequest> requests, Consumer<BulkOrderResult> results) {
+        int start = 0;
+        while (requests.hasNext()) {
+            List<OrderRequest> chunk = new ArrayList<>(chunkSize);
+            try {
+                while (chunk.size() < chunkSize && requests.hasNext()) {
+                    chunk.add(requests.next());
+                }
+            } catch (RuntimeException e) {
+                // Cuerpo inválido o demasiado largo: los pedidos anteriores al error sí se procesan
+                processChunk(start, chunk, results);
+                throw e;
+            }
+            processChunk(start, chunk, results);
+            start += chunk.size();
+        }
+    }
+
+    private void processChunk(int start, List<OrderRequest> requests, Consumer<BulkOrderResult> results) {
+        BulkOrderResult[] chunk = new BulkOrderResult[requests.size()];
+        Set<Long> bookIds = new LinkedHashSet<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            List<ErrorResponse.ErrorDetail> errors = validate(requests.get(i));
+            if (errors.isEmpty()) {
+                bookIds.addAll(orderAssembler.bookIds(requests.get(i)));
+            } else {
+                chunk[i] = BulkOrderResult.rejected(start + i, HttpStatus.BAD_REQUEST.value(), "Error de validación", errors);
+            }
+        }
+
+        BookLookup books = bookIds.isEmpty() ? new BookLookup(Map.of(), Set.of()) : facade.lookupBooks(bookIds);
+        log.info("Bulk chunk of {} orders from {}: {} distinct books, {} found, {} unavailable",
+                requests.size(), start, bookIds.size(), books.books().size(), books.unavailable().size());
+
+        Map<Integer, Order> orders = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (chunk[i] != null) {
+                continue;
+            }
+            Set<Long> unavailable = orderAssembler.bookIds(requests.get(i)).stream()
+                    .filter(books.unavailable()::contains)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            if (!unavailable.isEmpty()) {
+                chunk[i] = unavailable(start + i, unavailable);
+                continue;
+            }
+            try {
+                orders.put(start + i, orderAssembler.newOrder(orderAssembler.buildItems(requests.get(i), books.books())));
+            } catch (BusinessRuleViolationException e) {
+                chunk[i] = BulkOrderResult.rejected(start + i, HttpStatus.valueOf(422).value(),
+                        e.getMessage(), e.getErrors());
+            }
+        }
+
+        for (Map.Entry<Integer, BulkOrderResult> saved : save(orders).entrySet()) {
+            chunk[saved.getKey() - start] = saved.getValue();
+        }
+        for (BulkOrderResult result : chunk) {
+            if (result.errors() != null) {
+                result.errors().forEach(error -> orderMetrics.countError(error.getCode(), result.status()));
+            }
+            results.accept(result);
+        }
+    }
+
+    /**
+     * Pedido con libros que el catálogo no ha resuelto: 503 como en POST /orders, se puede reenviar
+     */
+    private BulkOrderResult unavailable(int index, Set<Long> bookIds) {
+        String description = converterErrors.getMessage("GENERIC-006",
+                bookIds.stream().map(String::valueOf).collect(Collectors.joining(", ")));
+        return BulkOrderResult.rejected(index, HttpStatus.SERVICE_UNAVAILABLE.value(), description,
+                List.of(ErrorResponse.ErrorDetail.builder()
+                        .code("GENERIC-006")
+                        .description(description)
+                        .build()));
+    }
+
+    /**
+     * Valida el pedido con Bean Validation, con los mismos códigos que POST /orders
+     */
+    private List<ErrorResponse.ErrorDetail> validate(OrderRequest request) {
+        if (request == null) {
+            return List.of(ErrorResponse.ErrorDetail.builder()
+                    .element("items")
+                    .code("ORDER-001")
+                    .description(converterErrors.getMessage("ORDER-001"))
+                    .build());
+        }
+        List<ErrorResponse.ErrorDetail> errors = new ArrayList<>();
+        for (ConstraintViolation<OrderRequest> violation : validator.validate(request)) {
+            errors.add(ErrorResponse.ErrorDetail.builder()
+                    .element(violation.getPropertyPath().toString())
+                    .code(violation.getMessage())
+                    .description(converterErrors.getMessage(violation.getMessage()))
+                    .build());
+        }
+        return errors;
+    }
+
+    /**
+     * Guarda los pedidos del bloque en una transacción. Si falla, se repite pedido a pedido
+     * para aislar los que no se pueden guardar
+     */
+    private Map<Integer, BulkOrderResult> save(Map<Integer, Order> orders) {
+        Map<Integer, OrderWriter.SaveFailure> failures = orderWriter.saveIsolating(orders, saved -> {
+        });
+        Map<Integer, BulkOrderResult> results = new LinkedHashMap<>();
+        orders.forEach((i, order) -> {
+            OrderWriter.SaveFailure failure = failures.get(i);
+            results.put(i, failure == null
+                    ? BulkOrderResult.created(i, order.getId())
+                    : BulkOrderResult.rejected(i, failure.status().value(), failure.description(), failure.errors()));
+        });
+        return results;
+    }
+}
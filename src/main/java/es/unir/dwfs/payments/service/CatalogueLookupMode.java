@@ -0,0 +1,23 @@
+package es.unir.dwfs.payments.service;
+
+/**
+ * Estrategia de consulta al catálogo para resolver los libros de un pedido
+ */
+public enum CatalogueLookupMode {
+
+    /**
+     * Una petición bloqueante por item, en el orden del pedido
+     */
+    SEQUENTIAL,
+
+    /**
+     * Todas las peticiones en paralelo, una por cada bookId distinto
+     */
+    FAN_OUT,
+
+    /**
+     * Una subtarea por bookId distinto, cada una en su propio hilo virtual. El pedido espera
+     * a que terminen todas antes de validar
+     */
+    VIRTUAL_THREADS
+}
@@ -0,0 +1,29 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.data.model.BookSales;
+import es.unir.dwfs.payments.data.model.OrderTotal;
+import es.unir.dwfs.payments.data.model.RevenueBucket;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Interfaz del servicio de agregados de ventas
+ */
+public interface OrderAnalyticsService {
+
+    /**
+     * @return importe del pedido o null si no existe
+     */
+    OrderTotal getOrderTotal(String id);
+
+    /**
+     * Ventas por hora o por día en [from, to). Sin fechas, los últimos orders.analytics.default-range
+     */
+    List<RevenueBucket> getRevenue(Instant from, Instant to, RevenueGranularity granularity);
+
+    /**
+     * Los limit libros más vendidos en [from, to), por unidades o por importe
+     */
+    List<BookSales> getTopBooks(Instant from, Instant to, BookRanking ranking, int limit);
+}
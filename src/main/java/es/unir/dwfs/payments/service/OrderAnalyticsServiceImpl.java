@@ -0,0 +1,113 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.data.OrderAnalyticsRepository;
+import es.unir.dwfs.payments.data.OrderRollup;
+import es.unir.dwfs.payments.data.model.BookSales;
+import es.unir.dwfs.payments.data.model.OrderTotal;
+import es.unir.dwfs.payments.data.model.RevenueBucket;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Implementación del servicio de agregados de ventas. Con orders.analytics.rollup.enabled las
+ * ventas se leen de las tablas por hora mantenidas en cada alta (resolución de una hora); si no,
+ * se agregan con SQL sobre orders y order_items
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderAnalyticsServiceImpl implements OrderAnalyticsService {
+
+    private final OrderAnalyticsRepository repository;
+    private final OrderRollup orderRollup;
+    private final ConverterErrors converterErrors;
+
+    @Value("${orders.analytics.default-range:7d}")
+    private Duration defaultRange;
+
+    @Value("${orders.analytics.max-range:366d}")
+    private Duration maxRange;
+
+    @Value("${orders.analytics.max-top:100}")
+    private int maxTop;
+
+    @Override
+    public OrderTotal getOrderTotal(String id) {
+        return repository.findOrderTotal(Long.valueOf(id)).orElse(null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RevenueBucket> getRevenue(Instant from, Instant to, RevenueGranularity granularity) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(defaultRange);
+        checkRange(start, end);
+
+        if (orderRollup.isEnabled()) {
+            List<RevenueBucket> hours = orderRollup.revenueByHour(start, end);
+            return granularity == RevenueGranularity.HOUR ? hours : byDay(hours);
+        }
+        return granularity == RevenueGranularity.HOUR
+                ? repository.revenueByHour(start, end)
+                : repository.revenueByDay(start, end);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookSales> getTopBooks(Instant from, Instant to, BookRanking ranking, int limit) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(defaultRange);
+        checkRange(start, end);
+        if (limit < 1 || limit > maxTop) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    converterErrors.getMessage("ANALYTICS-003", maxTop));
+        }
+
+        if (orderRollup.isEnabled()) {
+            return ranking == BookRanking.UNITS
+                    ? orderRollup.topBooksByUnits(start, end, limit)
+                    : orderRollup.topBooksByRevenue(start, end, limit);
+        }
+        return ranking == BookRanking.UNITS
+                ? repository.topBooksByUnits(start, end, Limit.of(limit))
+                : repository.topBooksByRevenue(start, end, Limit.of(limit));
+    }
+
+    private void checkRange(Instant from, Instant to) {
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, converterErrors.getMessage("ANALYTICS-001"));
+        }
+        if (Duration.between(from, to).compareTo(maxRange) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    converterErrors.getMessage("ANALYTICS-002", maxRange.toDays()));
+        }
+    }
+
+    /**
+     * Suma las filas por hora de cada día (UTC). Las ventas de un pedido no se reparten entre
+     * días, así que el número de pedidos del día es la suma de los de sus horas
+     */
+    private static List<RevenueBucket> byDay(List<RevenueBucket> hours) {
+        Map<Instant, RevenueBucket> days = new TreeMap<>();
+        for (RevenueBucket hour : hours) {
+            days.merge(hour.period().truncatedTo(ChronoUnit.DAYS),
+                    new RevenueBucket(hour.period().truncatedTo(ChronoUnit.DAYS), hour.orders(), hour.units(), hour.revenue()),
+                    (a, b) -> new RevenueBucket(a.period(), a.orders() + b.orders(), a.units() + b.units(),
+                            a.revenue().add(b.revenue())));
+        }
+        return new ArrayList<>(days.values());
+    }
+}
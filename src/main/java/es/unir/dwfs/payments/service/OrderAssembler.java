@@ -0,0 +1,169 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.controller.model.OrderItemRequest;
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.exception.BusinessRuleViolationException;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.exception.ErrorResponse;
+import es.unir.dwfs.payments.facade.model.Book;
+import es.unir.dwfs.payments.logging.LogSampler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validación de reglas de negocio y construcción de pedidos a partir de los libros del
+ * catálogo. Compartido por las implementaciones bloqueante y reactiva del servicio
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderAssembler {
+
+    private final ConverterErrors converterErrors;
+    private final LogSampler itemLogSampler;
+
+    /**
+     * IDs de libro del pedido, en el orden de los items
+     */
+    public List<Long> bookIds(OrderRequest request) {
+        return request.getItems().stream().map(OrderItemRequest::getBookId).toList();
+    }
+
+    /**
+     * Valida un item y construye su OrderItem
+     *
+     * @throws BusinessRuleViolationException si el libro no existe, no es visible o no tiene precio
+     */
+    public OrderItem buildItem(OrderItemRequest itemRequest, Book book) {
+        BusinessRuleViolationException violation = checkBook(itemRequest.getBookId(), book);
+        if (violation != null) {
+            throw violation;
+        }
+        return toOrderItem(itemRequest, book);
+    }
+
+    /**
+     * Valida todos los items con los libros ya resueltos. Los errores se acumulan en el orden
+     * de los items del pedido, una sola vez por libro
+     *
+     * @throws BusinessRuleViolationException con todos los errores encontrados
+     */
+    public List<OrderItem> buildItems(OrderRequest request, Map<Long, Book> books) {
+        List<OrderItem> orderItems = new ArrayList<>();
+        List<ErrorResponse.ErrorDetail> errors = new ArrayList<>();
+        Set<Long> rejectedBookIds = new HashSet<>();
+        String message = null;
+
+        for (OrderItemRequest itemRequest : request.getItems()) {
+            Book book = books.get(itemRequest.getBookId());
+
+            BusinessRuleViolationException violation = checkBook(itemRequest.getBookId(), book);
+            if (violation == null) {
+                orderItems.add(toOrderItem(itemRequest, book));
+            } else if (rejectedBookIds.add(itemRequest.getBookId())) {
+                message = message != null ? message : violation.getMessage();
+                errors.addAll(violation.getErrors());
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            throw new BusinessRuleViolationException(message, errors);
+        }
+        return orderItems;
+    }
+
+    /**
+     * Construye un pedido nuevo (sin persistir) con los items indicados. Fecha y precios se
+     * redondean a la precisión de sus columnas para que el pedido en memoria (el que se cachea
+     * al crearlo) coincida con el que se lee después de la base de datos. El importe y el número
+     * de items se calculan aquí, una sola vez, y se guardan con la cabecera del pedido
+     *
+     * @throws IllegalArgumentException si algún item no tiene precio capturado (checkBook rechaza
+     *                                  antes los libros sin precio)
+     */
+    public Order newOrder(List<OrderItem> orderItems) {
+        BigDecimal totalAmount = BigDecimal.ZERO.setScale(OrderItem.PRICE_SCALE);
+        for (OrderItem item : orderItems) {
+            if (item.getCapturedUnitPrice() == null) {
+                throw new IllegalArgumentException("Order item without captured price, book " + item.getBookId());
+            }
+            totalAmount = totalAmount.add(item.getCapturedUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+
+        Order order = Order.builder()
+                .orderDate(Instant.now().truncatedTo(ChronoUnit.MICROS)) // Timestamp en UTC
+                .totalAmount(totalAmount)
+                .itemCount(orderItems.size())
+                .build();
+        order.setItems(orderItems);
+        return order;
+    }
+
+    /**
+     * Comprueba que el libro existe, es visible y tiene precio. Un libro null es un libro que el catálogo no
+     * tiene (404 o caché negativa): si el catálogo no responde, la fachada lanza antes
+     * CatalogueUnavailableException (503) en lugar de devolver null
+     *
+     * @return la excepción a lanzar o null si el libro es válido
+     */
+    private BusinessRuleViolationException checkBook(Long bookId, Book book) {
+        // Validar que existe
+        if (book == null) {
+            log.debug("Book with ID {} not found", bookId);
+            return new BusinessRuleViolationException(
+                    "Libro no encontrado",
+                    "ORDER_BUSINESS-001",
+                    converterErrors.getMessage("ORDER_BUSINESS-001", bookId));
+        }
+
+        // Validar que es visible
+        if (Boolean.FALSE.equals(book.getVisible())) {
+            log.debug("Book with ID {} is not visible", bookId);
+            return new BusinessRuleViolationException(
+                    "Libro no disponible",
+                    "ORDER_BUSINESS-002",
+                    converterErrors.getMessage("ORDER_BUSINESS-002", bookId));
+        }
+
+        // Validar que tiene precio: se captura en el item y el importe del pedido depende de él
+        if (book.getPrice() == null) {
+            log.debug("Book with ID {} has no price", bookId);
+            return new BusinessRuleViolationException(
+                    "Libro sin precio",
+                    "ORDER_BUSINESS-003",
+                    converterErrors.getMessage("ORDER_BUSINESS-003", bookId));
+        }
+        return null;
+    }
+
+    /**
+     * Crea el OrderItem con precio capturado del catálogo
+     */
+    private OrderItem toOrderItem(OrderItemRequest itemRequest, Book book) {
+        OrderItem item = OrderItem.builder()
+                .bookId(itemRequest.getBookId())
+                .quantity(itemRequest.getQuantity())
+                .capturedUnitPrice(book.getPrice().setScale(OrderItem.PRICE_SCALE, RoundingMode.HALF_UP))
+                .build();
+
+        // Traza muestreada: una por item sería la mayor parte de la E/S de log con carga
+        if (log.isDebugEnabled() && itemLogSampler.sample()) {
+            log.debug("Added item: Book '{}' (ID: {}), quantity: {}, price: {}",
+                    book.getTitle(), book.getId(), itemRequest.getQuantity(), book.getPrice());
+        }
+        return item;
+    }
+}
@@ -0,0 +1,134 @@
+package es.unir.dwfs.payments.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.metrics.OrderMetrics;
+import es.unir.dwfs.payments.metrics.OrderMetrics.Stage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Caché local de pedidos. Los pedidos no cambian tras crearse, así que las entradas no caducan:
+ * solo se expulsan al superar orders.cache.max-size. Cada entrada guarda la vista inmutable y el
+ * JSON ya serializado, de modo que una lectura en caché no usa la base de datos ni Jackson. El
+ * tamaño se limita por peso: bytes del JSON más una estimación de los objetos de la vista
+ */
+@Component
+public class OrderCache {
+
+    /**
+     * Estimación de la memoria de la entrada, la vista, el array y su lista, sin contar los items
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    /**
+     * Estimación de la memoria de cada OrderItemView con sus Long, Integer y BigDecimal
+     */
+    private static final int ITEM_OVERHEAD_BYTES = 120;
+
+    private final boolean enabled;
+    private final ObjectMapper objectMapper;
+    private final OrderMetrics orderMetrics;
+    private final Cache<Long, OrderSnapshot> cache;
+
+    @Autowired
+    public OrderCache(ObjectMapper objectMapper,
+                      OrderMetrics orderMetrics,
+                      MeterRegistry registry,
+                      @Value("${orders.cache.enabled:true}") boolean enabled,
+                      @Value("${orders.cache.max-size:64MB}") DataSize maxSize) {
+        this(objectMapper, orderMetrics, registry, enabled, maxSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor ejecutor del mantenimiento de la caché (desalojos)
+     */
+    OrderCache(ObjectMapper objectMapper, OrderMetrics orderMetrics, MeterRegistry registry, boolean enabled,
+               DataSize maxSize, Executor executor) {
+        this.enabled = enabled;
+        this.objectMapper = objectMapper;
+        this.orderMetrics = orderMetrics;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(enabled ? maxSize.toBytes() : 0)
+                .weigher((Long id, OrderSnapshot snapshot) -> weight(snapshot))
+                .recordStats()
+                .executor(executor)
+                .build();
+
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size...
+        CaffeineCacheMetrics.monitor(registry, cache, "orders");
+        Gauge.builder("orders.cache.weight", this, OrderCache::weightedSize)
+                .description("Memoria estimada de la caché de pedidos")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Obtiene un pedido de la caché o, si no está, lo carga y lo guarda
+     *
+     * @param id     ID del pedido
+     * @param loader carga el pedido con sus items de la base de datos
+     * @return OrderSnapshot o null si el pedido no existe
+     */
+    public OrderSnapshot get(Long id, Function<Long, Optional<OrderView>> loader) {
+        if (!enabled) {
+            return loader.apply(id).map(this::snapshot).orElse(null);
+        }
+        return cache.get(id, key -> loader.apply(key).map(this::snapshot).orElse(null));
+    }
+
+    /**
+     * Serializa un pedido recién creado y lo guarda en la caché
+     *
+     * @param order pedido persistido, con ID e items
+     * @return OrderSnapshot con el JSON de la respuesta
+     */
+    public OrderSnapshot put(Order order) {
+        OrderSnapshot snapshot = orderMetrics.time(Stage.SERIALIZATION, () -> snapshot(OrderView.of(order)));
+        if (enabled) {
+            cache.put(order.getId(), snapshot);
+        }
+        return snapshot;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Stats stats() {
+        CacheStats stats = cache.stats();
+        return new Stats(cache.estimatedSize(), weightedSize(), stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.evictionCount());
+    }
+
+    private OrderSnapshot snapshot(OrderView view) {
+        return new OrderSnapshot(view, objectMapper.writeValueAsBytes(view));
+    }
+
+    private long weightedSize() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    private static int weight(OrderSnapshot snapshot) {
+        return ENTRY_OVERHEAD_BYTES + snapshot.json().length + snapshot.view().items().size() * ITEM_OVERHEAD_BYTES;
+    }
+
+    /**
+     * Estadísticas de uso de la caché
+     */
+    public record Stats(long size, long weightBytes, long hits, long misses, double hitRate, long evictions) {
+    }
+}
@@ -0,0 +1,38 @@
+package es.unir.dwfs.payments.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Cursor opaco de paginación por clave (orderDate, id). Se serializa en Base64 URL-safe
+ *
+ * @param orderDate fecha del último pedido devuelto
+ * @param id        ID del último pedido devuelto
+ */
+public record OrderCursor(Instant orderDate, Long id) {
+
+    public String encode() {
+        String raw = orderDate.getEpochSecond() + ":" + orderDate.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException si el cursor no tiene el formato esperado o la fecha está
+     *                                  fuera del rango de Instant
+     */
+    public static OrderCursor decode(String cursor) {
+        String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        try {
+            return new OrderCursor(
+                    Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                    Long.valueOf(parts[2]));
+        } catch (DateTimeException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
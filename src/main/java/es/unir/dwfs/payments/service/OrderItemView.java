@@ -0,0 +1,20 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.data.model.OrderItemRow;
+
+import java.math.BigDecimal;
+
+/**
+ * Vista inmutable de un item de pedido, independiente de la sesión de Hibernate
+ */
+public record OrderItemView(Long id, Long bookId, Integer quantity, BigDecimal capturedUnitPrice) {
+
+    public static OrderItemView of(OrderItem item) {
+        return new OrderItemView(item.getId(), item.getBookId(), item.getQuantity(), item.getCapturedUnitPrice());
+    }
+
+    public static OrderItemView of(OrderItemRow row) {
+        return new OrderItemView(row.id(), row.bookId(), row.quantity(), row.capturedUnitPrice());
+    }
+}
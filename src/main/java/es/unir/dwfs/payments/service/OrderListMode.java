@@ -0,0 +1,15 @@
+package es.unir.dwfs.payments.service;
+
+/**
+ * Contenido de cada pedido en los listados
+ */
+public enum OrderListMode {
+    /**
+     * Pedido con sus items
+     */
+    FULL,
+    /**
+     * Solo la cabecera: fecha, número de items e importe. No lee order_items
+     */
+    SUMMARY
+}
@@ -0,0 +1,10 @@
+package es.unir.dwfs.payments.service;
+
+/**
+ * Pedido inmutable junto con su representación JSON ya serializada
+ *
+ * @param view pedido
+ * @param json cuerpo de la respuesta; no debe modificarse
+ */
+public record OrderSnapshot(OrderView view, byte[] json) {
+}
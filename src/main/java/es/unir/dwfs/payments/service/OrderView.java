@@ -0,0 +1,47 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.data.model.OrderItemRow;
+import es.unir.dwfs.payments.data.model.OrderRow;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Vista inmutable de un pedido con sus items ya cargados. Se serializa con el mismo JSON que la entidad
+ */
+public record OrderView(Long id, List<OrderItemView> items, Instant orderDate, Integer itemCount,
+                        BigDecimal totalAmount) {
+
+    public OrderView {
+        items = items != null ? List.copyOf(items) : List.of();
+    }
+
+    public static OrderView of(Order order) {
+        List<OrderItemView> items = order.getItems() != null
+                ? order.getItems().stream().map(OrderItemView::of).toList()
+                : List.of();
+        return new OrderView(order.getId(), items, order.getOrderDate(), order.getItemCount(), order.getTotalAmount());
+    }
+
+    /**
+     * Construye el pedido a partir de su cabecera y sus items
+     */
+    public static OrderView of(OrderRow order, List<OrderItemView> items) {
+        return new OrderView(order.id(), items, order.orderDate(), order.itemCount(), order.totalAmount());
+    }
+
+    /**
+     * Construye el pedido a partir de sus filas, todas del mismo pedido. Las filas sin item
+     * (left join de un pedido vacío) se ignoran
+     */
+    public static OrderView fromRows(List<OrderItemRow> rows) {
+        OrderItemRow first = rows.getFirst();
+        List<OrderItemView> items = rows.stream()
+                .filter(row -> row.id() != null)
+                .map(OrderItemView::of)
+                .toList();
+        return new OrderView(first.orderId(), items, first.orderDate(), first.itemCount(), first.totalAmount());
+    }
+}
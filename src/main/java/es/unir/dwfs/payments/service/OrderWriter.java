@@ -0,0 +1,129 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.data.OrderJpaRepository;
+import es.unir.dwfs.payments.data.OrderRollup;
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.exception.ErrorResponse;
+import es.unir.dwfs.payments.outbox.OrderOutbox;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Alta de pedidos: guarda el pedido y, en la misma transacción, actualiza las tablas de ventas
+ * por hora (orders.analytics.rollup.enabled) y escribe su evento en la outbox (orders.outbox.enabled).
+ * Publica además un {@link OrdersCreatedEvent} para los oyentes en proceso, como el feed de pedidos
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderWriter {
+
+    private final OrderJpaRepository repository;
+    private final OrderRollup orderRollup;
+    private final OrderOutbox orderOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ConverterErrors converterErrors;
+
+    @Transactional
+    public Order save(Order order) {
+        Order saved = repository.save(order);
+        orderRollup.add(List.of(saved));
+        orderOutbox.add(List.of(saved));
+        eventPublisher.publishEvent(new OrdersCreatedEvent(List.of(saved)));
+        return saved;
+    }
+
+    @Transactional
+    public List<Order> saveAll(Collection<Order> orders) {
+        List<Order> saved = repository.saveAll(orders);
+        orderRollup.add(saved);
+        orderOutbox.add(saved);
+        eventPublisher.publishEvent(new OrdersCreatedEvent(saved));
+        return saved;
+    }
+
+    /**
+     * Guarda los pedidos en una transacción. Si falla, repite pedido a pedido, cada uno en su
+     * transacción, para aislar los que no se pueden guardar (POST /orders/bulk y /orders/async)
+     *
+     * @param inTransaction se ejecuta en cada transacción con los pedidos que guarda, ya con sus IDs
+     *                      (por ejemplo, para registrar el resultado de cada envío junto al pedido)
+     * @return los pedidos que no se pudieron guardar, con su error
+     */
+    public <K> Map<K, SaveFailure> saveIsolating(Map<K, Order> orders, Consumer<Map<K, Order>> inTransaction) {
+        Map<K, SaveFailure> failures = new LinkedHashMap<>();
+        if (orders.isEmpty()) {
+            return failures;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                saveAll(orders.values());
+                inTransaction.accept(orders);
+            });
+            return failures;
+        } catch (DataAccessException e) {
+            log.warn("Batch of {} orders failed ({}), saving them one by one", orders.size(), e.getMessage());
+        }
+
+        orders.forEach((key, order) -> {
+            resetIds(order);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    save(order);
+                    inTransaction.accept(Map.of(key, order));
+                });
+            } catch (DataAccessException e) {
+                log.error("Order {} could not be saved: {}", key, e.getMessage());
+                failures.put(key, failure(e));
+            }
+        });
+        return failures;
+    }
+
+    /**
+     * Los IDs asignados en la transacción revertida no existen: se vuelven a generar
+     */
+    private void resetIds(Order order) {
+        order.setId(null);
+        order.getItems().forEach(item -> item.setId(null));
+    }
+
+    /**
+     * 409 (GENERIC-003) si el pedido viola una restricción de la base de datos, 500 (GENERIC-005) en otro caso
+     */
+    private SaveFailure failure(DataAccessException e) {
+        boolean conflict = e instanceof DataIntegrityViolationException;
+        String code = conflict ? "GENERIC-003" : "GENERIC-005";
+        return new SaveFailure(conflict ? HttpStatus.CONFLICT : HttpStatus.INTERNAL_SERVER_ERROR, code,
+                converterErrors.getMessage(code));
+    }
+
+    /**
+     * Error al guardar un pedido, con el mismo código que devolvería POST /orders
+     */
+    public record SaveFailure(HttpStatus status, String code, String description) {
+
+        public List<ErrorResponse.ErrorDetail> errors() {
+            return List.of(ErrorResponse.ErrorDetail.builder()
+                    .code(code)
+                    .description(description)
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.data.model.Order;
+
+import java.util.List;
+
+/**
+ * Evento de aplicación que publica {@link OrderWriter} al guardar pedidos. Los oyentes con
+ * {@code @TransactionalEventListener} lo reciben solo si la transacción se confirma
+ *
+ * @param orders pedidos guardados, con sus IDs e items
+ */
+public record OrdersCreatedEvent(List<Order> orders) {
+}
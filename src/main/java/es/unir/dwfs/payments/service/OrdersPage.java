@@ -0,0 +1,12 @@
+package es.unir.dwfs.payments.service;
+
+import java.util.List;
+
+/**
+ * Página de pedidos ordenada por (orderDate, id)
+ *
+ * @param orders     pedidos de la página (completos o solo cabeceras)
+ * @param nextCursor cursor para pedir la página siguiente, o null si no hay más
+ */
+public record OrdersPage<T>(List<T> orders, String nextCursor) {
+}
@@ -1,18 +1,56 @@
 package es.unir.dwfs.payments.service;
 
 import es.unir.dwfs.payments.controller.model.OrderRequest;
-import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.data.model.OrderRow;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interfaz del servicio de pedidos
  */
 public interface OrdersService {
 
-    Order createOrder(OrderRequest request);
+    OrderSnapshot createOrder(OrderRequest request);
 
-    Order getOrder(String id);
+    /**
+     * Pedido con sus items, desde la caché de pedidos o, si no está, desde la base de datos
+     *
+     * @return OrderSnapshot o null si no existe
+     */
+    OrderSnapshot getOrder(String id);
 
-    List<Order> getOrders();
+    /**
+     * Página de pedidos por clave (orderDate, id)
+     *
+     * @param limit número máximo de pedidos
+     * @param after cursor devuelto por la página anterior, o null para la primera
+     */
+    OrdersPage<OrderView> getOrders(int limit, String after);
+
+    /**
+     * Página de cabeceras de pedidos (fecha, número de items e importe), sin sus items
+     *
+     * @param limit número máximo de pedidos
+     * @param after cursor devuelto por la página anterior, o null para la primera
+     */
+    OrdersPage<OrderRow> getOrderSummaries(int limit, String after);
+
+    /**
+     * Pedidos con ID mayor que el indicado, con sus items y en orden de ID
+     *
+     * @param afterId último ID ya recibido
+     * @param limit   número máximo de pedidos
+     */
+    List<OrderView> getOrdersAfterId(long afterId, int limit);
+
+    /**
+     * Recorre todos los pedidos sin cargarlos a la vez en memoria
+     */
+    void streamOrders(Consumer<OrderView> consumer);
+
+    /**
+     * Recorre las cabeceras de todos los pedidos, sin sus items
+     */
+    void streamOrderSummaries(Consumer<OrderRow> consumer);
 }
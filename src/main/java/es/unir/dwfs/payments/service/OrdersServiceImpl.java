@@ -5,17 +5,40 @@ import es.unir.dwfs.payments.controller.model.OrderRequest;
 import es.unir.dwfs.payments.data.OrderJpaRepository;
 import es.unir.dwfs.payments.data.model.Order;
 import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.data.model.OrderItemRow;
+import es.unir.dwfs.payments.data.model.OrderRow;
+import es.unir.dwfs.payments.exception.CatalogueUnavailableException;
+import es.unir.dwfs.payments.exception.ConverterErrors;
 import es.unir.dwfs.payments.facade.BooksCatalogueFacade;
 import es.unir.dwfs.payments.facade.model.Book;
+import es.unir.dwfs.payments.metrics.OrderMetrics;
+import es.unir.dwfs.payments.metrics.OrderMetrics.Stage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import es.unir.dwfs.payments.exception.BusinessRuleViolationException;
-import es.unir.dwfs.payments.exception.ConverterErrors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Implementación del servicio de pedidos
@@ -27,70 +50,217 @@ public class OrdersServiceImpl implements OrdersService {
 
     private final BooksCatalogueFacade booksCatalogueFacade;
     private final OrderJpaRepository repository;
+    private final OrderWriter orderWriter;
+    private final OrderAssembler orderAssembler;
     private final ConverterErrors converterErrors;
+    private final OrderMetrics orderMetrics;
+    private final OrderCache orderCache;
+
+    @Value("${getBook.lookup-mode:sequential}")
+    private CatalogueLookupMode lookupMode;
+
+    @Value("${orders.page.max-size:500}")
+    private int maxPageSize;
 
     @Override
-    public Order createOrder(OrderRequest request) {
+    public OrderSnapshot createOrder(OrderRequest request) {
 
-        log.info("Creating order with {} items", request.getItems().size());
+        if (log.isDebugEnabled()) {
+            log.debug("Creating order with {} items", request.getItems().size());
+        }
 
         // 1. Validar y construir OrderItems
+        List<OrderItem> orderItems = switch (lookupMode) {
+            case SEQUENTIAL -> buildItemsSequentially(request);
+            case FAN_OUT -> buildItems(request, () -> booksCatalogueFacade.getBooks(orderAssembler.bookIds(request)));
+            case VIRTUAL_THREADS -> buildItems(request, () -> getBooksOnVirtualThreads(request));
+        };
+        orderMetrics.recordItems(orderItems.size());
+
+        // 2. Persistir order
+        Order savedOrder = orderMetrics.time(Stage.PERSISTENCE,
+                () -> orderWriter.save(orderAssembler.newOrder(orderItems)));
+        log.info("Order created successfully with ID: {}", savedOrder.getId());
+
+        // 3. Cachear el pedido con su JSON: la respuesta y las lecturas posteriores lo reutilizan
+        return orderCache.put(savedOrder);
+    }
+
+    /**
+     * Resuelve los libros del pedido y valida los items, midiendo cada etapa por separado
+     */
+    private List<OrderItem> buildItems(OrderRequest request, Supplier<Map<Long, Book>> lookup) {
+        Map<Long, Book> books = orderMetrics.time(Stage.CATALOGUE, lookup);
+        return orderMetrics.time(Stage.VALIDATION, () -> orderAssembler.buildItems(request, books));
+    }
+
+    /**
+     * Consulta el catálogo item a item y se detiene en el primer libro no válido
+     */
+    private List<OrderItem> buildItemsSequentially(OrderRequest request) {
         List<OrderItem> orderItems = new ArrayList<>();
+        long catalogueNanos = 0;
+        long validationNanos = 0;
+
+        try {
+            for (OrderItemRequest itemRequest : request.getItems()) {
+                // Obtener libro del catálogo
+                long start = System.nanoTime();
+                Book book = booksCatalogueFacade.getBook(itemRequest.getBookId().toString());
+                long fetched = System.nanoTime();
+                catalogueNanos += fetched - start;
 
-        for (OrderItemRequest itemRequest : request.getItems()) {
-            // Obtener libro del catálogo
-            Book book = booksCatalogueFacade.getBook(itemRequest.getBookId().toString());
-
-            // Validar que existe
-            if (book == null) {
-                log.error("Book with ID {} not found", itemRequest.getBookId());
-                throw new BusinessRuleViolationException(
-                        "Libro no encontrado",
-                        "ORDER_BUSINESS-001",
-                        converterErrors.getMessage("ORDER_BUSINESS-001", itemRequest.getBookId()));
+                orderItems.add(orderAssembler.buildItem(itemRequest, book));
+                validationNanos += System.nanoTime() - fetched;
             }
+        } finally {
+            orderMetrics.record(Stage.CATALOGUE, catalogueNanos);
+            orderMetrics.record(Stage.VALIDATION, validationNanos);
+        }
+        return orderItems;
+    }
 
-            // Validar que es visible
-            if (Boolean.FALSE.equals(book.getVisible())) {
-                log.error("Book '{}' is not visible", book.getTitle());
-                throw new BusinessRuleViolationException(
-                        "Libro no disponible",
-                        "ORDER_BUSINESS-002",
-                        converterErrors.getMessage("ORDER_BUSINESS-002", itemRequest.getBookId()));
+    /**
+     * Lanza una consulta bloqueante por bookId distinto, cada una en un hilo virtual. El
+     * executor se cierra al salir del bloque, de modo que ninguna subtarea sobrevive al pedido.
+     * Los libros que el catálogo no resuelve se acumulan en una sola CatalogueUnavailableException
+     */
+    private Map<Long, Book> getBooksOnVirtualThreads(OrderRequest request) {
+        try (ExecutorService subtasks = Executors.newVirtualThreadPerTaskExecutor()) {
+            Map<Long, Future<Book>> lookups = new LinkedHashMap<>();
+            for (Long bookId : new LinkedHashSet<>(orderAssembler.bookIds(request))) {
+                lookups.put(bookId, subtasks.submit(() -> booksCatalogueFacade.getBook(bookId.toString())));
             }
 
-            // Crear OrderItem con precio capturado del catálogo
-            OrderItem item = OrderItem.builder()
-                    .bookId(itemRequest.getBookId())
-                    .quantity(itemRequest.getQuantity())
-                    .capturedUnitPrice(book.getPrice())
-                    .build();
-            orderItems.add(item);
+            Map<Long, Book> books = new HashMap<>();
+            Set<Long> unavailable = new LinkedHashSet<>();
+            CatalogueUnavailableException lastUnavailable = null;
+            for (Map.Entry<Long, Future<Book>> lookup : lookups.entrySet()) {
+                try {
+                    Book book = lookup.getValue().get();
+                    if (book != null) {
+                        books.put(lookup.getKey(), book);
+                    }
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof CatalogueUnavailableException cause)) {
+                        throw e;
+                    }
+                    unavailable.addAll(cause.getBookIds());
+                    lastUnavailable = cause;
+                }
+            }
+            if (lastUnavailable != null) {
+                throw new CatalogueUnavailableException(unavailable, lastUnavailable.getRetryAfter());
+            }
+            return books;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while getting books from catalogue", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error getting books from catalogue", e.getCause());
+        }
+    }
+
+    @Override
+    public OrderSnapshot getOrder(String id) {
+        // Sin transacción propia: un acierto de caché no pide conexión. La consulta de un fallo
+        // se ejecuta en la transacción de solo lectura de findItemRowsByOrderId
+        return orderCache.get(Long.valueOf(id), this::findOrder);
+    }
 
-            log.info("Added item: Book '{}' (ID: {}), quantity: {}, price: {}",
-                    book.getTitle(), book.getId(), itemRequest.getQuantity(), book.getPrice());
+    private Optional<OrderView> findOrder(Long id) {
+        List<OrderItemRow> rows = repository.findItemRowsByOrderId(id);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(OrderView.fromRows(rows));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrdersPage<OrderView> getOrders(int limit, String after) {
+        OrdersPage<OrderRow> page = getOrderSummaries(limit, after);
+        return new OrdersPage<>(withItems(page.orders()), page.nextCursor());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrdersPage<OrderRow> getOrderSummaries(int limit, String after) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    converterErrors.getMessage("ORDER_PAGE-001", maxPageSize));
         }
 
-        // 2. Persistir order
-        Order order = Order.builder()
-                .items(orderItems)
-                .orderDate(Instant.now()) // Timestamp en UTC
-                .build();
+        List<OrderRow> orders;
+        if (after == null || after.isBlank()) {
+            orders = repository.findFirstPage(Limit.of(limit));
+        } else {
+            OrderCursor cursor = decodeCursor(after);
+            orders = repository.findPageAfter(cursor.orderDate(), cursor.id(), Limit.of(limit));
+        }
 
-        Order savedOrder = repository.save(order);
-        log.info("Order created successfully with ID: {}", savedOrder.getId());
+        String nextCursor = null;
+        if (orders.size() == limit) {
+            OrderRow last = orders.getLast();
+            nextCursor = new OrderCursor(last.orderDate(), last.id()).encode();
+        }
+        return new OrdersPage<>(orders, nextCursor);
+    }
 
-        return savedOrder;
+    @Override
+    @Transactional(readOnly = true)
+    public List<OrderView> getOrdersAfterId(long afterId, int limit) {
+        return withItems(repository.findRowsAfterId(afterId, Limit.of(limit)));
+    }
+
+    /**
+     * Completa las cabeceras de la página con sus items, leídos en una sola consulta
+     */
+    private List<OrderView> withItems(List<OrderRow> orders) {
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<OrderItemView>> items = repository.findItemRowsByOrderIds(orders.stream().map(OrderRow::id).toList())
+                .stream()
+                .collect(Collectors.groupingBy(OrderItemRow::orderId,
+                        Collectors.mapping(OrderItemView::of, Collectors.toList())));
+        return orders.stream()
+                .map(order -> OrderView.of(order, items.getOrDefault(order.id(), List.of())))
+                .toList();
     }
 
     @Override
-    public Order getOrder(String id) {
-        return repository.findById(Long.valueOf(id)).orElse(null);
+    @Transactional(readOnly = true)
+    public void streamOrders(Consumer<OrderView> consumer) {
+        // Las filas llegan agrupadas por pedido: se emite cada pedido al empezar el siguiente.
+        // Son proyecciones, así que el contexto de persistencia no crece durante el recorrido
+        try (Stream<OrderItemRow> rows = repository.streamAll()) {
+            List<OrderItemRow> current = new ArrayList<>();
+            Iterator<OrderItemRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                OrderItemRow row = iterator.next();
+                if (!current.isEmpty() && !current.getFirst().orderId().equals(row.orderId())) {
+                    consumer.accept(OrderView.fromRows(current));
+                    current = new ArrayList<>();
+                }
+                current.add(row);
+            }
+            if (!current.isEmpty()) {
+                consumer.accept(OrderView.fromRows(current));
+            }
+        }
     }
 
     @Override
-    public List<Order> getOrders() {
-        List<Order> orders = repository.findAll();
-        return orders.isEmpty() ? null : orders;
+    @Transactional(readOnly = true)
+    public void streamOrderSummaries(Consumer<OrderRow> consumer) {
+        try (Stream<OrderRow> rows = repository.streamAllRows()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    private OrderCursor decodeCursor(String after) {
+        try {
+            return OrderCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, converterErrors.getMessage("ORDER_PAGE-002"));
+        }
     }
 }
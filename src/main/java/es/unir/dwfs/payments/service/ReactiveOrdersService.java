@@ -0,0 +1,12 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import reactor.core.publisher.Mono;
+
+/**
+ * Interfaz del servicio reactivo de creación de pedidos
+ */
+public interface ReactiveOrdersService {
+
+    Mono<OrderSnapshot> createOrder(OrderRequest request);
+}
@@ -0,0 +1,76 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.facade.BookField;
+import es.unir.dwfs.payments.facade.BooksCatalogueFacade;
+import es.unir.dwfs.payments.metrics.OrderMetrics;
+import es.unir.dwfs.payments.metrics.OrderMetrics.Stage;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.EnumSet;
+
+/**
+ * Implementación reactiva de la creación de pedidos. Las consultas al catálogo se componen
+ * sin bloquear y solo el guardado JPA se ejecuta en un scheduler acotado
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "orders.execution-mode", havingValue = "reactive")
+public class ReactiveOrdersServiceImpl implements ReactiveOrdersService {
+
+    private final BooksCatalogueFacade booksCatalogueFacade;
+    private final OrderWriter orderWriter;
+    private final OrderAssembler orderAssembler;
+    private final OrderMetrics orderMetrics;
+    private final OrderCache orderCache;
+    private final Scheduler jpaScheduler;
+
+    public ReactiveOrdersServiceImpl(BooksCatalogueFacade booksCatalogueFacade,
+                                     OrderWriter orderWriter,
+                                     OrderAssembler orderAssembler,
+                                     OrderMetrics orderMetrics,
+                                     OrderCache orderCache,
+                                     @Value("${orders.reactive.jpa-threads:10}") int jpaThreads,
+                                     @Value("${orders.reactive.jpa-queue:1000}") int jpaQueue) {
+        this.booksCatalogueFacade = booksCatalogueFacade;
+        this.orderWriter = orderWriter;
+        this.orderAssembler = orderAssembler;
+        this.orderMetrics = orderMetrics;
+        this.orderCache = orderCache;
+        this.jpaScheduler = Schedulers.newBoundedElastic(jpaThreads, jpaQueue, "orders-jpa");
+    }
+
+    @Override
+    public Mono<OrderSnapshot> createOrder(OrderRequest request) {
+
+        if (log.isDebugEnabled()) {
+            log.debug("Creating order with {} items", request.getItems().size());
+        }
+
+        return Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return booksCatalogueFacade.findBooks(orderAssembler.bookIds(request), EnumSet.allOf(BookField.class))
+                            .doOnNext(books -> orderMetrics.record(Stage.CATALOGUE, System.nanoTime() - start));
+                })
+                .map(books -> orderMetrics.time(Stage.VALIDATION,
+                        () -> orderAssembler.newOrder(orderAssembler.buildItems(request, books))))
+                .doOnNext(order -> orderMetrics.recordItems(order.getItems().size()))
+                .publishOn(jpaScheduler)
+                .map(order -> orderMetrics.time(Stage.PERSISTENCE, () -> orderWriter.save(order)))
+                .doOnNext(savedOrder -> log.info("Order created successfully with ID: {}", savedOrder.getId()))
+                .map(orderCache::put);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jpaScheduler.dispose();
+    }
+}
@@ -0,0 +1,9 @@
+package es.unir.dwfs.payments.service;
+
+/**
+ * Periodo de agregación de las ventas (en UTC)
+ */
+public enum RevenueGranularity {
+    HOUR,
+    DAY
+}
@@ -0,0 +1,305 @@
+package es.unir.dwfs.payments.async;
+
+import es.unir.dwfs.payments.controller.model.OrderItemRequest;
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.data.OrderJpaRepository;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.facade.BooksCatalogueFacade;
+import es.unir.dwfs.payments.facade.model.Book;
+import es.unir.dwfs.payments.metrics.OrderMetrics;
+import es.unir.dwfs.payments.service.OrderAssembler;
+import es.unir.dwfs.payments.service.OrderWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tools.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que un envío con libros que el catálogo no resuelve sigue PENDING sin bloquear al
+ * resto del lote, que la cola lo reintenta hasta que el catálogo responde y que, agotados los
+ * reintentos, se rechaza con GENERIC-006 como el 503 de POST /orders. Un reintento tras un fallo
+ * posterior a confirmar el pedido no crea un segundo pedido, y un lote que ni siquiera se puede
+ * rechazar (base de datos caída) se vuelve a encolar en lugar de quedar PENDING hasta reiniciar
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:OrderSubmissionQueueTest"
+})
+class OrderSubmissionQueueTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    private OrderSubmissionStore store;
+
+    @Autowired
+    private OrderAssembler assembler;
+
+    @Autowired
+    private OrderWriter orderWriter;
+
+    @Autowired
+    private ConverterErrors converterErrors;
+
+    @Autowired
+    private OrderJpaRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void ordersWithUnavailableBooksStayPending() {
+        OrderSubmissionProcessor processor = processor(new FlakyCatalogue(Integer.MAX_VALUE));
+        QueuedOrder available = queued(1L);
+        QueuedOrder unavailable = queued(2L);
+
+        assertEquals(Map.of(unavailable, Set.of(2L)), processor.process(List.of(available, unavailable)));
+        assertEquals(SubmissionStatus.ACCEPTED, status(available.id()).status());
+        assertEquals(SubmissionStatus.PENDING, status(unavailable.id()).status());
+
+        processor.failUnavailable(Map.of(unavailable, Set.of(2L)));
+        OrderSubmission rejected = status(unavailable.id());
+        assertEquals(SubmissionStatus.REJECTED, rejected.status());
+        assertEquals("GENERIC-006", rejected.errors().getFirst().getCode());
+    }
+
+    @Test
+    void queueRetriesUntilTheCatalogueAnswers() throws Exception {
+        FlakyCatalogue catalogue = new FlakyCatalogue(2);
+        OrderSubmissionQueue queue = queue(catalogue);
+        queue.start();
+        try {
+            OrderSubmission submission = queue.submit(request(2L));
+            OrderSubmission done = await(queue, submission.id());
+            assertEquals(SubmissionStatus.ACCEPTED, done.status());
+            assertNotNull(done.orderId());
+            assertEquals(3, catalogue.lookups.get());
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void queueRejectsWithGeneric006AfterTheLastAttempt() throws Exception {
+        FlakyCatalogue catalogue = new FlakyCatalogue(Integer.MAX_VALUE);
+        OrderSubmissionQueue queue = queue(catalogue);
+        queue.start();
+        try {
+            OrderSubmission submission = queue.submit(request(2L));
+            OrderSubmission done = await(queue, submission.id());
+            assertEquals(SubmissionStatus.REJECTED, done.status());
+            assertEquals("GENERIC-006", done.errors().getFirst().getCode());
+            assertEquals(3, catalogue.lookups.get());
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void retryAfterACommittedSaveCreatesNoSecondOrder() throws Exception {
+        FailingAfterCommitStore failingStore = new FailingAfterCommitStore(jdbcTemplate, objectMapper);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OrderSubmissionQueue queue = new OrderSubmissionQueue(failingStore,
+                processor(new FlakyCatalogue(0), failingStore), converterErrors, registry,
+                100, 1, 50, 3, Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofSeconds(5), Duration.ofHours(24));
+        long orders = repository.count();
+        queue.start();
+        try {
+            OrderSubmission submission = queue.submit(request(1L));
+            OrderSubmission done = await(queue, submission.id());
+            awaitIdle(registry);
+
+            assertFalse(failingStore.fail.get());
+            assertEquals(SubmissionStatus.ACCEPTED, done.status());
+            assertEquals(SubmissionStatus.ACCEPTED, status(submission.id()).status());
+            assertEquals(orders + 1, repository.count());
+            assertTrue(repository.existsById(done.orderId()));
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void batchesThatCannotEvenBeRejectedAreRequeued() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // Los dos intentos y el rechazo fallan; el lote vuelve a la cola y se acepta
+        UnavailableDatabaseProcessor processor = new UnavailableDatabaseProcessor(3);
+        OrderSubmissionQueue queue = new OrderSubmissionQueue(store, processor, converterErrors, registry,
+                100, 1, 50, 2, Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofSeconds(5), Duration.ofHours(24));
+        queue.start();
+        try {
+            OrderSubmission submission = queue.submit(request(1L));
+            OrderSubmission done = await(queue, submission.id());
+            awaitIdle(registry);
+
+            assertEquals(SubmissionStatus.ACCEPTED, done.status());
+            assertTrue(repository.existsById(done.orderId()));
+            assertEquals(0, processor.failures.get());
+        } finally {
+            queue.stop();
+        }
+    }
+
+    private OrderSubmissionProcessor processor(BooksCatalogueFacade catalogue) {
+        return processor(catalogue, store);
+    }
+
+    private OrderSubmissionProcessor processor(BooksCatalogueFacade catalogue, OrderSubmissionStore submissions) {
+        return new OrderSubmissionProcessor(catalogue, assembler, orderWriter, submissions, converterErrors,
+                new OrderMetrics(new SimpleMeterRegistry()));
+    }
+
+    private OrderSubmissionQueue queue(BooksCatalogueFacade catalogue) {
+        return new OrderSubmissionQueue(store, processor(catalogue), converterErrors, new SimpleMeterRegistry(),
+                100, 1, 50, 3, Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofSeconds(5), Duration.ofHours(24));
+    }
+
+    /**
+     * Espera a que la cola no tenga envíos en cola ni en proceso
+     */
+    private static void awaitIdle(SimpleMeterRegistry registry) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (registry.get("orders.async.queue.depth").gauge().value() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0.0, registry.get("orders.async.queue.depth").gauge().value());
+    }
+
+    private QueuedOrder queued(long bookId) {
+        OrderRequest request = request(bookId);
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        return new QueuedOrder(store.insert(request, now), request, now);
+    }
+
+    private OrderSubmission status(long id) {
+        return store.find(id).orElseThrow();
+    }
+
+    private static OrderSubmission await(OrderSubmissionQueue queue, long id) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        OrderSubmission submission = queue.find(id).orElseThrow();
+        while (submission.status() == SubmissionStatus.PENDING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            submission = queue.find(id).orElseThrow();
+        }
+        return submission;
+    }
+
+    private static OrderRequest request(long bookId) {
+        return new OrderRequest(List.of(new OrderItemRequest(bookId, 1)));
+    }
+
+    /**
+     * Catálogo en memoria con los libros 1 y 2. El libro 2 no se resuelve en las primeras consultas
+     */
+    private static final class FlakyCatalogue extends BooksCatalogueFacade {
+
+        private final int failures;
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        FlakyCatalogue(int failures) {
+            super(null, null, null, null);
+            this.failures = failures;
+        }
+
+        @Override
+        public BookLookup lookupBooks(Collection<Long> ids) {
+            boolean down = lookups.incrementAndGet() <= failures;
+            Map<Long, Book> books = new HashMap<>();
+            Set<Long> unavailable = new LinkedHashSet<>();
+            for (Long id : ids) {
+                if (id == 2L && down) {
+                    unavailable.add(id);
+                } else {
+                    books.put(id, Book.builder().id(id).visible(true).price(new BigDecimal("10.50")).build());
+                }
+            }
+            return new BookLookup(books, unavailable);
+        }
+    }
+
+    /**
+     * Procesador cuya base de datos falla en las primeras llamadas, incluido el rechazo del lote
+     */
+    private final class UnavailableDatabaseProcessor extends OrderSubmissionProcessor {
+
+        private final AtomicInteger failures;
+
+        UnavailableDatabaseProcessor(int failures) {
+            super(new FlakyCatalogue(0), assembler, orderWriter, store, converterErrors,
+                    new OrderMetrics(new SimpleMeterRegistry()));
+            this.failures = new AtomicInteger(failures);
+        }
+
+        @Override
+        public Map<QueuedOrder, Set<Long>> process(List<QueuedOrder> batch) {
+            checkDatabase();
+            return super.process(batch);
+        }
+
+        @Override
+        public void fail(List<QueuedOrder> batch) {
+            checkDatabase();
+            super.fail(batch);
+        }
+
+        private void checkDatabase() {
+            if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+                throw new DataAccessResourceFailureException("Database down");
+            }
+        }
+    }
+
+    /**
+     * Store que falla una vez justo después de confirmarse la transacción que acepta un envío,
+     * como una conexión perdida tras el commit: el pedido y su ACCEPTED ya están guardados
+     */
+    private static final class FailingAfterCommitStore extends OrderSubmissionStore {
+
+        private final AtomicBoolean fail = new AtomicBoolean(true);
+
+        FailingAfterCommitStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+            super(jdbcTemplate, objectMapper);
+        }
+
+        @Override
+        public int complete(List<OrderSubmission> results) {
+            int updated = super.complete(results);
+            if (TransactionSynchronizationManager.isSynchronizationActive() && fail.compareAndSet(true, false)) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        throw new DataAccessResourceFailureException("Connection lost after commit");
+                    }
+                });
+            }
+            return updated;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package es.unir.dwfs.payments.benchmark;
+
+import es.MsBooksPaymentsApplication;
+import es.unir.dwfs.payments.data.OrderJpaRepository;
+import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.service.OrderAssembler;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sentencias SQL por pedido y pedidos por segundo al guardar pedidos grandes, en H2 y en H2
+ * con modo de compatibilidad PostgreSQL. Se ejecuta con: mvn test -Pbenchmark -Dtest=OrderInsertBenchmark
+ */
+@Tag("benchmark")
+class OrderInsertBenchmark {
+
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 2000);
+    private static final int ITEMS_PER_ORDER = Integer.getInteger("benchmark.items", 50);
+
+    @Test
+    void measureInserts() {
+        Result h2 = run("jdbc:h2:mem:insert-h2");
+        Result postgres = run("jdbc:h2:mem:insert-pg;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH");
+
+        System.out.printf("%nPedidos: %d, items por pedido: %d%n", ORDERS, ITEMS_PER_ORDER);
+        System.out.printf("%-12s %16s %12s%n", "base", "sentencias/ped", "pedidos/s");
+        h2.print("h2");
+        postgres.print("postgresql");
+
+        assertTrue(h2.throughput() > 0 && postgres.throughput() > 0);
+    }
+
+    private Result run(String url) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MsBooksPaymentsApplication.class).run(
+                "--server.port=0",
+                "--eureka.client.enabled=false",
+                "--spring.datasource.url=" + url,
+                "--spring.jpa.properties.hibernate.generate_statistics=true",
+                "--logging.level.root=WARN")) {
+            OrderJpaRepository repository = context.getBean(OrderJpaRepository.class);
+            OrderAssembler assembler = context.getBean(OrderAssembler.class);
+            Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+            // Calentamiento
+            for (int i = 0; i < ORDERS / 10; i++) {
+                repository.save(assembler.newOrder(items()));
+            }
+            statistics.clear();
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ORDERS; i++) {
+                repository.save(assembler.newOrder(items()));
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            return new Result(statistics.getPrepareStatementCount() / (double) ORDERS, ORDERS / seconds);
+        }
+    }
+
+    private List<OrderItem> items() {
+        List<OrderItem> items = new ArrayList<>(ITEMS_PER_ORDER);
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            items.add(OrderItem.builder()
+                    .bookId((long) i + 1)
+                    .quantity(1)
+                    .capturedUnitPrice(BigDecimal.TEN)
+                    .build());
+        }
+        return items;
+    }
+
+    private record Result(double statementsPerOrder, double throughput) {
+
+        void print(String database) {
+            System.out.printf("%-12s %16.1f %12.1f%n", database, statementsPerOrder, throughput);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package es.unir.dwfs.payments.benchmark;
+
+import es.unir.dwfs.payments.metrics.OrderMetrics;
+import es.unir.dwfs.payments.metrics.OrderMetrics.Stage;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Coste por pedido de las métricas de OrderMetrics sobre el registro Prometheus: cuatro etapas,
+ * la distribución de items y dos llamadas al catálogo. Se ejecuta con:
+ * mvn test -Pbenchmark -Dtest=OrderMetricsOverheadBenchmark
+ */
+@Tag("benchmark")
+class OrderMetricsOverheadBenchmark {
+
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 2_000_000;
+
+    @Test
+    void measureOverheadPerOrder() {
+        OrderMetrics metrics = new OrderMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        Mono<String> call = Mono.just("book");
+
+        // Misma composición reactiva sin métricas, para descontar el coste de block()
+        long baseline = measure(() -> {
+            Mono.defer(() -> call).hide().block();
+            Mono.defer(() -> call).hide().block();
+        });
+        long instrumented = measure(() -> {
+            metrics.time(Stage.CATALOGUE, () -> metrics.timeCatalogue("single", call.hide()).block());
+            metrics.timeCatalogue("single", call.hide()).block();
+            metrics.time(Stage.VALIDATION, () -> 1);
+            metrics.recordItems(3);
+            metrics.time(Stage.PERSISTENCE, () -> 1);
+            metrics.time(Stage.SERIALIZATION, () -> 1);
+        });
+
+        System.out.printf("%nSin métricas: %d ns/pedido, con métricas: %d ns/pedido, coste: %d ns/pedido%n",
+                baseline, instrumented, instrumented - baseline);
+        assertTrue(instrumented > 0);
+    }
+
+    private long measure(Runnable order) {
+        for (int i = 0; i < WARMUP; i++) {
+            order.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            order.run();
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
@@ -0,0 +1,191 @@
+package es.unir.dwfs.payments.benchmark;
+
+import es.MsBooksPaymentsApplication;
+import es.unir.dwfs.payments.support.CatalogueStub;
+import es.unir.dwfs.payments.support.LatencyDistribution;
+import es.unir.dwfs.payments.support.LoadReport;
+import es.unir.dwfs.payments.support.OpenLoadGenerator;
+import es.unir.dwfs.payments.support.OpenLoadGenerator.Operation;
+import es.unir.dwfs.payments.support.ZipfGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de carga de extremo a extremo: arranca la aplicación sin Eureka contra un stub del
+ * catálogo en proceso y lanza POST /orders y GET /orders a tasas crecientes (modelo abierto)
+ * hasta encontrar el punto de saturación: el primer escalón que incumple el p99 objetivo, supera
+ * el porcentaje de errores admitido o no alcanza la tasa pedida.
+ * <p>
+ * Se ejecuta con: mvn test -Pload -Dtest=OrdersLoadTest -Dload.rates=50,100,200 -Dload.seconds=20
+ * <p>
+ * Opciones (propiedades del sistema):
+ * <ul>
+ *     <li>load.rates: peticiones por segundo de cada escalón</li>
+ *     <li>load.seconds / load.warmup: duración de cada escalón y del calentamiento, en segundos</li>
+ *     <li>load.read-ratio: fracción de peticiones GET (mitad GET /orders/{id}, mitad GET /orders)</li>
+ *     <li>load.items: items por pedido</li>
+ *     <li>load.slo-p99 / load.max-error-ratio: criterio de saturación (ms y fracción)</li>
+ *     <li>load.profiles: perfiles de Spring de la aplicación (por ejemplo, virtual-threads o reactive)</li>
+ *     <li>load.catalogue.latency: fixed:20ms, uniform:5ms:50ms o lognormal:20ms:200ms</li>
+ *     <li>load.catalogue.error-rate: fracción de respuestas 503 del catálogo</li>
+ *     <li>load.catalogue.size / load.catalogue.skew: libros del catálogo y exponente Zipf de los bookIds</li>
+ *     <li>load.catalogue.batch: si el stub atiende GET /books?ids=</li>
+ * </ul>
+ */
+@Tag("load")
+class OrdersLoadTest {
+
+    private static final double[] RATES = Arrays.stream(System.getProperty("load.rates", "25,50,100,200,400").split(","))
+            .mapToDouble(Double::parseDouble).toArray();
+    private static final Duration STEP = Duration.ofSeconds(Long.getLong("load.seconds", 15));
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup", 10));
+    private static final double READ_RATIO = Double.parseDouble(System.getProperty("load.read-ratio", "0.3"));
+    private static final int ITEMS_PER_ORDER = Integer.getInteger("load.items", 3);
+    private static final double SLO_P99_MS = Double.parseDouble(System.getProperty("load.slo-p99", "500"));
+    private static final double MAX_ERROR_RATIO = Double.parseDouble(System.getProperty("load.max-error-ratio", "0.01"));
+    private static final String PROFILES = System.getProperty("load.profiles", "");
+    private static final String CATALOGUE_LATENCY = System.getProperty("load.catalogue.latency", "lognormal:10ms:100ms");
+    private static final double CATALOGUE_ERROR_RATE = Double.parseDouble(System.getProperty("load.catalogue.error-rate", "0.001"));
+    private static final int CATALOGUE_SIZE = Integer.getInteger("load.catalogue.size", 10_000);
+    private static final double CATALOGUE_SKEW = Double.parseDouble(System.getProperty("load.catalogue.skew", "1.0"));
+    private static final boolean CATALOGUE_BATCH = Boolean.parseBoolean(System.getProperty("load.catalogue.batch", "true"));
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("load.max-in-flight", 5000);
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * IDs de pedidos creados, para las lecturas GET /orders/{id}
+     */
+    private static final int CREATED_IDS = 10_000;
+    private static final Pattern ORDER_ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private final ZipfGenerator bookIds = new ZipfGenerator(CATALOGUE_SIZE, CATALOGUE_SKEW);
+    private final AtomicLongArray createdIds = new AtomicLongArray(CREATED_IDS);
+    private final AtomicLong created = new AtomicLong();
+
+    @Test
+    void findSaturationPoint() throws Exception {
+        try (CatalogueStub catalogue = CatalogueStub.builder()
+                .latency(LatencyDistribution.parse(CATALOGUE_LATENCY))
+                .errorRate(CATALOGUE_ERROR_RATE)
+                .size(CATALOGUE_SIZE)
+                .batch(CATALOGUE_BATCH)
+                .start();
+             ConfigurableApplicationContext context = start(catalogue)) {
+
+            URI base = URI.create("http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port"));
+            try (OpenLoadGenerator generator = new OpenLoadGenerator(operations(base), MAX_IN_FLIGHT, TIMEOUT)) {
+                generator.run(RATES[0], WARMUP);
+
+                System.out.printf("%nCatálogo: %s, errores %.3f, %d libros, skew %.2f (top 10: %.0f%% de los items)%n",
+                        CATALOGUE_LATENCY, CATALOGUE_ERROR_RATE, CATALOGUE_SIZE, CATALOGUE_SKEW, bookIds.share(10) * 100);
+                System.out.printf("Items por pedido: %d, lecturas: %.0f%%, objetivo: p99 <= %.0f ms y errores <= %.1f%%%n",
+                        ITEMS_PER_ORDER, READ_RATIO * 100, SLO_P99_MS, MAX_ERROR_RATIO * 100);
+
+                List<LoadReport> reports = new ArrayList<>();
+                LoadReport saturated = null;
+                LoadReport.printHeader();
+                for (double rate : RATES) {
+                    LoadReport report = generator.run(rate, STEP);
+                    report.print();
+                    reports.add(report);
+                    if (!meetsObjective(report)) {
+                        saturated = report;
+                        break;
+                    }
+                }
+                printSummary(reports, saturated, catalogue);
+
+                assertTrue(reports.getFirst().requests() > 0);
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext start(CatalogueStub catalogue) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(MsBooksPaymentsApplication.class);
+        if (!PROFILES.isBlank()) {
+            builder.profiles(PROFILES.split(","));
+        }
+        return builder.run(
+                "--server.port=0",
+                "--eureka.client.enabled=false",
+                "--spring.cloud.discovery.client.simple.instances.ms-books-catalogue[0].uri=" + catalogue.uri(),
+                "--getBook.batch-enabled=" + CATALOGUE_BATCH,
+                "--spring.datasource.url=jdbc:h2:mem:load",
+                // Todas las peticiones llegan desde la misma IP
+                "--orders.rate-limit.enabled=false",
+                "--logging.level.root=WARN",
+                // Los errores se resumen por código en el informe
+                "--logging.level.es.unir.dwfs.payments=OFF");
+    }
+
+    private List<Operation> operations(URI base) {
+        URI orders = base.resolve("/orders");
+        double reads = READ_RATIO / 2;
+        return List.of(
+                new Operation("POST /orders", 1 - READ_RATIO, () -> createOrder(orders), this::remember),
+                new Operation("GET /orders/{id}", reads, () -> getOrder(orders)),
+                new Operation("GET /orders", reads, () -> HttpRequest.newBuilder(base.resolve("/orders?limit=20")).GET().build()));
+    }
+
+    private HttpRequest createOrder(URI orders) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder body = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            body.append(i > 0 ? "," : "")
+                    .append("{\"bookId\":").append(bookIds.next(random)).append(",\"quantity\":1}");
+        }
+        body.append("]}");
+        return HttpRequest.newBuilder(orders)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    private HttpRequest getOrder(URI orders) {
+        long count = Math.min(created.get(), CREATED_IDS);
+        long id = count == 0 ? 1 : createdIds.get(ThreadLocalRandom.current().nextInt((int) count));
+        return HttpRequest.newBuilder(URI.create(orders + "/" + id)).GET().build();
+    }
+
+    private void remember(String body) {
+        Matcher id = ORDER_ID.matcher(body);
+        if (id.find()) {
+            createdIds.set((int) (created.getAndIncrement() % CREATED_IDS), Long.parseLong(id.group(1)));
+        }
+    }
+
+    private static boolean meetsObjective(LoadReport report) {
+        return report.percentile(99) <= SLO_P99_MS
+                && report.errorRatio() <= MAX_ERROR_RATIO
+                && report.throughput() >= report.targetRate() * 0.9;
+    }
+
+    private static void printSummary(List<LoadReport> reports, LoadReport saturated, CatalogueStub catalogue) {
+        System.out.printf("%nPeticiones al catálogo: %d (errores %d)%n", catalogue.requests(), catalogue.errors());
+        LoadReport sustained = reports.stream().filter(OrdersLoadTest::meetsObjective).reduce((a, b) -> b).orElse(null);
+        System.out.printf("Máxima tasa que cumple el objetivo: %s%n",
+                sustained != null ? String.format("%.0f peticiones/s", sustained.targetRate()) : "ninguna");
+        if (saturated != null) {
+            System.out.printf("Punto de saturación: %.0f peticiones/s (p99 %.1f ms, errores %.2f%%, %.1f ok/s)%n",
+                    saturated.targetRate(), saturated.percentile(99), saturated.errorRatio() * 100, saturated.throughput());
+        } else {
+            System.out.println("Punto de saturación: no alcanzado con las tasas indicadas");
+        }
+    }
+}
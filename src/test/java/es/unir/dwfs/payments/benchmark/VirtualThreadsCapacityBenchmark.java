@@ -0,0 +1,144 @@
+package es.unir.dwfs.payments.benchmark;
+
+import es.MsBooksPaymentsApplication;
+import es.unir.dwfs.payments.support.CatalogueStub;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Capacidad de pedidos concurrentes frente a un catálogo lento, con y sin el perfil
+ * virtual-threads. Se ejecuta con: mvn test -Pbenchmark -Dtest=VirtualThreadsCapacityBenchmark
+ */
+@Tag("benchmark")
+class VirtualThreadsCapacityBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 1000);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("benchmark.warmup", 5));
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("benchmark.seconds", 20));
+    private static final Duration CATALOGUE_LATENCY = Duration.ofMillis(Long.getLong("benchmark.catalogue-latency", 200));
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Test
+    void compareCapacityWithAndWithoutVirtualThreads() throws Exception {
+        try (CatalogueStub catalogue = new CatalogueStub(CATALOGUE_LATENCY)) {
+            Result platform = run(catalogue, false);
+            Result virtual = run(catalogue, true);
+
+            System.out.printf("%nClientes: %d, latencia del catálogo: %d ms, items por pedido: %d%n",
+                    CLIENTS, CATALOGUE_LATENCY.toMillis(), ITEMS_PER_ORDER);
+            System.out.printf("%-16s %10s %8s %10s %10s %10s%n", "modo", "pedidos/s", "errores", "p50 ms", "p99 ms", "max ms");
+            platform.print("platform");
+            virtual.print("virtual-threads");
+
+            assertTrue(platform.orders() > 0 && virtual.orders() > 0);
+        }
+    }
+
+    private Result run(CatalogueStub catalogue, boolean virtualThreads) throws InterruptedException {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(MsBooksPaymentsApplication.class);
+        if (virtualThreads) {
+            builder.profiles("virtual-threads");
+        }
+
+        try (ConfigurableApplicationContext context = builder.run(
+                "--server.port=0",
+                "--eureka.client.enabled=false",
+                "--spring.cloud.discovery.client.simple.instances.ms-books-catalogue[0].uri=" + catalogue.uri(),
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + virtualThreads,
+                "--getBook.cache.enabled=false",
+                // Se mide la capacidad, no la protección del circuit breaker
+                "--getBook.circuit-breaker.failure-rate-threshold=100",
+                "--getBook.circuit-breaker.slow-call-duration=60s",
+                "--logging.level.root=WARN")) {
+            URI orders = URI.create("http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port") + "/orders");
+            drive(orders, WARMUP);
+            return drive(orders, MEASUREMENT);
+        }
+    }
+
+    /**
+     * Modelo cerrado: cada cliente envía un pedido, espera la respuesta y vuelve a enviar
+     */
+    private Result drive(URI orders, Duration duration) throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        LongAdder errors = new LongAdder();
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = http.send(orderRequest(orders), HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200) {
+                                latencies.add(System.nanoTime() - start);
+                            } else {
+                                errors.increment();
+                            }
+                        } catch (Exception e) {
+                            errors.increment();
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+        return Result.of(new ArrayList<>(latencies), errors.sum(), duration);
+    }
+
+    private HttpRequest orderRequest(URI orders) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder body = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            body.append(i > 0 ? "," : "")
+                    .append("{\"bookId\":").append(random.nextLong(1, 1_000_000)).append(",\"quantity\":1}");
+        }
+        body.append("]}");
+        return HttpRequest.newBuilder(orders)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    private record Result(long orders, long errors, double throughput, long p50, long p99, long max) {
+
+        static Result of(List<Long> latencies, long errors, Duration duration) {
+            Collections.sort(latencies);
+            return new Result(latencies.size(), errors, latencies.size() / (double) duration.toSeconds(),
+                    percentile(latencies, 0.50), percentile(latencies, 0.99),
+                    latencies.isEmpty() ? 0 : latencies.getLast() / 1_000_000);
+        }
+
+        static long percentile(List<Long> sorted, double percentile) {
+            return sorted.isEmpty() ? 0 : sorted.get((int) Math.ceil(percentile * sorted.size()) - 1) / 1_000_000;
+        }
+
+        void print(String mode) {
+            System.out.printf("%-16s %10.1f %8d %10d %10d %10d%n", mode, throughput, errors, p50, p99, max);
+        }
+    }
+}
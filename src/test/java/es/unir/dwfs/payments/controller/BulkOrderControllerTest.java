@@ -0,0 +1,79 @@
+package es.unir.dwfs.payments.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba los cuerpos de lote no válidos: antes del primer pedido se responde 400 y, con la
+ * respuesta ya empezada, los pedidos leídos se procesan y la última línea es el error con el
+ * índice del primer pedido no procesado
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:BulkOrderControllerTest",
+        "orders.async.enabled=false",
+        "orders.rate-limit.enabled=false",
+        "orders.bulk.chunk-size=2",
+        "orders.bulk.max-orders=3"
+})
+class BulkOrderControllerTest {
+
+    private static final String ORDER = "{\"items\":[{\"bookId\":1,\"quantity\":1}]}";
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void rejectsAnEmptyOrMalformedBodyBeforeResponding() throws Exception {
+        HttpResponse<String> empty = post("");
+        assertEquals(400, empty.statusCode());
+        assertTrue(empty.body().contains("El lote debe contener entre 1 y 3 pedidos"), empty.body());
+
+        HttpResponse<String> malformed = post("{\"items\":[");
+        assertEquals(400, malformed.statusCode());
+        assertTrue(malformed.body().contains("El cuerpo debe ser un array JSON o un flujo NDJSON de pedidos"), malformed.body());
+    }
+
+    @Test
+    void endsWithAnErrorLineWhenTheBodyBreaksAfterTheFirstOrder() throws Exception {
+        HttpResponse<String> response = post(ORDER + "\n" + ORDER + "\n{\"items\":");
+
+        assertEquals(200, response.statusCode());
+        List<String> lines = response.body().lines().toList();
+        assertEquals(3, lines.size(), response.body());
+        for (int i = 0; i < 2; i++) {
+            assertTrue(lines.get(i).startsWith("{\"index\":" + i + ","), lines.get(i));
+        }
+        assertTrue(lines.getLast().startsWith("{\"index\":2,\"status\":400,"), lines.getLast());
+        assertTrue(lines.getLast().contains("\"code\":\"ORDER_BULK-001\""), lines.getLast());
+    }
+
+    @Test
+    void endsWithAnErrorLineAboveTheMaximumOfOrders() throws Exception {
+        HttpResponse<String> response = post(String.join("\n", ORDER, ORDER, ORDER, ORDER));
+
+        List<String> lines = response.body().lines().toList();
+        assertEquals(4, lines.size(), response.body());
+        assertTrue(lines.getLast().startsWith("{\"index\":3,\"status\":400,"), lines.getLast());
+        assertTrue(lines.getLast().contains("\"code\":\"ORDER_BULK-002\""), lines.getLast());
+    }
+
+    private HttpResponse<String> post(String body) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/orders/bulk"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
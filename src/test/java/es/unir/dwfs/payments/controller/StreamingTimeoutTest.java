@@ -0,0 +1,94 @@
+package es.unir.dwfs.payments.controller;
+
+import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.service.BulkOrdersService;
+import es.unir.dwfs.payments.service.OrderAssembler;
+import es.unir.dwfs.payments.service.OrderWriter;
+import es.unir.dwfs.payments.service.OrdersService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Comprueba que las respuestas en streaming usan su propio plazo y no el de las peticiones
+ * asíncronas del contenedor: con un plazo por defecto de 500 ms, una exportación o un lote que
+ * tardan más terminan completos
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:StreamingTimeoutTest",
+        "orders.async.enabled=false",
+        "spring.mvc.async.request-timeout=500ms",
+        "orders.rate-limit.enabled=false"
+})
+class StreamingTimeoutTest {
+
+    private static final long SLOW_MILLIS = 1500;
+
+    @LocalServerPort
+    private int port;
+
+    @MockitoSpyBean
+    private OrdersService ordersService;
+
+    @MockitoSpyBean
+    private BulkOrdersService bulkOrdersService;
+
+    @Autowired
+    private OrderWriter orderWriter;
+
+    @Autowired
+    private OrderAssembler assembler;
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void exportOutlastsTheDefaultAsyncTimeout() throws Exception {
+        long id = orderWriter.save(assembler.newOrder(new ArrayList<>(List.of(
+                OrderItem.builder().bookId(1L).quantity(1).capturedUnitPrice(BigDecimal.TEN).build())))).getId();
+        doAnswer(invocation -> {
+            Thread.sleep(SLOW_MILLIS);
+            return invocation.callRealMethod();
+        }).when(ordersService).streamOrders(any());
+
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/orders"))
+                .header("Accept", "application/x-ndjson")
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        List<String> lines = response.body().lines().toList();
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("{\"id\":" + id + ",")), response.body());
+    }
+
+    @Test
+    void bulkOutlastsTheDefaultAsyncTimeout() throws Exception {
+        doAnswer(invocation -> {
+            Thread.sleep(SLOW_MILLIS);
+            return invocation.callRealMethod();
+        }).when(bulkOrdersService).createOrders(any(), any());
+
+        String order = "{\"items\":[{\"bookId\":1,\"quantity\":1}]}";
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/orders/bulk"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(order + "\n" + order))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals(2, response.body().lines().count(), response.body());
+    }
+}
@@ -0,0 +1,153 @@
+package es.unir.dwfs.payments.data;
+
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.data.model.OrderItemRow;
+import es.unir.dwfs.payments.data.model.OrderRow;
+import es.unir.dwfs.payments.service.OrderAssembler;
+import es.unir.dwfs.payments.service.OrderView;
+import es.unir.dwfs.payments.service.OrdersPage;
+import es.unir.dwfs.payments.service.OrdersService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que la carga de pedidos con sus items usa un número acotado de sentencias SQL y
+ * que las lecturas no cargan entidades
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:OrderJpaRepositoryTest",
+        "orders.async.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional
+class OrderJpaRepositoryTest {
+
+    private static final int ORDERS = 30;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int LARGE_ORDER_ITEMS = 50;
+
+    @Autowired
+    private OrderJpaRepository repository;
+
+    @Autowired
+    private OrdersService ordersService;
+
+    @Autowired
+    private OrderAssembler assembler;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long firstId;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ORDERS; i++) {
+            Order saved = repository.save(assembler.newOrder(items(ITEMS_PER_ORDER)));
+            if (firstId == null) {
+                firstId = saved.getId();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void saveBatchesItemInserts() {
+        repository.save(assembler.newOrder(items(LARGE_ORDER_ITEMS)));
+        entityManager.flush();
+
+        // Como máximo: secuencias de pedidos e items, INSERT del pedido y un INSERT por lote de items
+        // (sin UPDATE posteriores de order_id)
+        assertTrue(statistics.getPrepareStatementCount() <= 4);
+    }
+
+    @Test
+    void findItemRowsByOrderIdUsesOneStatement() {
+        List<OrderItemRow> rows = repository.findItemRowsByOrderId(firstId);
+
+        assertEquals(ITEMS_PER_ORDER, rows.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        // Proyecciones: ninguna entidad cargada en el contexto de persistencia
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void pageLoadsItemsInOneQuery() {
+        OrdersPage<OrderView> page = ordersService.getOrders(ORDERS, null);
+
+        int items = page.orders().stream().mapToInt(order -> order.items().size()).sum();
+
+        assertEquals(ORDERS, page.orders().size());
+        assertEquals(ORDERS * ITEMS_PER_ORDER, items);
+        // Consulta de la página + una consulta IN para los items
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void summaryPageReadsOnlyOrderHeaders() {
+        OrdersPage<OrderRow> page = ordersService.getOrderSummaries(ORDERS, null);
+
+        assertEquals(ORDERS, page.orders().size());
+        page.orders().forEach(order -> {
+            assertEquals(ITEMS_PER_ORDER, order.itemCount());
+            assertEquals(0, BigDecimal.TEN.multiply(BigDecimal.valueOf(ITEMS_PER_ORDER)).compareTo(order.totalAmount()));
+        });
+        // Solo la consulta de la página: importe y número de items están en la cabecera
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void streamLoadsOrdersWithOneQuery() {
+        AtomicInteger orders = new AtomicInteger();
+        AtomicInteger items = new AtomicInteger();
+
+        ordersService.streamOrders(order -> {
+            orders.incrementAndGet();
+            items.addAndGet(order.items().size());
+        });
+
+        assertEquals(ORDERS, orders.get());
+        assertEquals(ORDERS * ITEMS_PER_ORDER, items.get());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    private List<OrderItem> items(int count) {
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(OrderItem.builder()
+                    .bookId((long) i + 1)
+                    .quantity(1)
+                    .capturedUnitPrice(BigDecimal.TEN)
+                    .build());
+        }
+        return items;
+    }
+}
@@ -0,0 +1,108 @@
+package es.unir.dwfs.payments.data;
+
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.service.OrderAssembler;
+import es.unir.dwfs.payments.service.OrderWriter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Comprueba que las tablas de ventas por hora dan los mismos resultados que las consultas de
+ * {@link OrderAnalyticsRepository} sobre orders y order_items, tanto con los pedidos sumados al
+ * guardarlos como con los rellenados al crear las tablas
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:OrderRollupTest",
+        "orders.async.enabled=false",
+        "orders.analytics.rollup.enabled=true"
+})
+class OrderRollupTest {
+
+    private static final Instant FROM = Instant.parse("2001-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2001-01-03T00:00:00Z");
+
+    @Autowired
+    private OrderRollup rollup;
+
+    @Autowired
+    private OrderAnalyticsRepository repository;
+
+    @Autowired
+    private OrderJpaRepository orderRepository;
+
+    @Autowired
+    private OrderWriter orderWriter;
+
+    @Autowired
+    private OrderAssembler assembler;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void incrementalRollupMatchesTheOrderTables() {
+        orderWriter.saveAll(orders(Instant.parse("2001-01-01T10:15:00Z"), 6));
+        for (Order order : orders(Instant.parse("2001-01-02T23:50:00Z"), 3)) {
+            orderWriter.save(order);
+        }
+
+        assertMatchesRepository();
+    }
+
+    @Test
+    void backfillsOrdersSavedBeforeTheTablesExist() {
+        // Pedidos guardados sin pasar por el rollup, como los anteriores a activarlo
+        orderRepository.saveAll(orders(Instant.parse("2001-01-02T08:05:00Z"), 5));
+        jdbcTemplate.execute("drop table order_revenue_hourly");
+        jdbcTemplate.execute("drop table book_sales_hourly");
+
+        rollup.createTables();
+
+        assertMatchesRepository();
+    }
+
+    private void assertMatchesRepository() {
+        assertFalse(repository.revenueByHour(FROM, TO).isEmpty());
+        assertEquals(repository.revenueByHour(FROM, TO), rollup.revenueByHour(FROM, TO));
+        assertEquals(repository.topBooksByUnits(FROM, TO, Limit.of(3)), rollup.topBooksByUnits(FROM, TO, 3));
+        assertEquals(repository.topBooksByRevenue(FROM, TO, Limit.of(3)), rollup.topBooksByRevenue(FROM, TO, 3));
+    }
+
+    /**
+     * Pedidos cada 10 minutos desde start, con libros y precios distintos
+     */
+    private List<Order> orders(Instant start, int count) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<OrderItem> items = List.of(
+                    item(1L + i % 4, 1 + i % 3, "10.50"),
+                    item(5L + i % 2, 2, "3.25"));
+            Order order = assembler.newOrder(items);
+            order.setOrderDate(start.plus(Duration.ofMinutes(10L * i)));
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    private static OrderItem item(Long bookId, int quantity, String price) {
+        return OrderItem.builder()
+                .bookId(bookId)
+                .quantity(quantity)
+                .capturedUnitPrice(new BigDecimal(price))
+                .build();
+    }
+}
@@ -0,0 +1,99 @@
+package es.unir.dwfs.payments.facade;
+
+import es.unir.dwfs.payments.facade.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba con un reloj simulado el TTL por campo, el refresco anticipado, la copia obsoleta
+ * dentro del presupuesto y la caché negativa
+ */
+class BookCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    /**
+     * TTL 5 min, precio 1 min, visibilidad 30 s, refresco a los 20 s, presupuesto 10 min, 404 30 s
+     */
+    private final BookCache cache = new BookCache(true, 1000, Duration.ofMinutes(5), Duration.ofMinutes(1),
+            Duration.ofSeconds(30), Duration.ofSeconds(20), Duration.ofMinutes(10), Duration.ofSeconds(30), now::get);
+
+    @Test
+    void eachFieldHasItsOwnTtl() {
+        cache.put(1L, book(1L));
+
+        advance(Duration.ofSeconds(40));
+        assertNotNull(cache.get(1L, Set.of()));
+        assertNotNull(cache.get(1L, Set.of(BookField.PRICE)));
+        assertNull(cache.get(1L, Set.of(BookField.VISIBLE)));
+        assertNull(cache.get(1L, Set.of(BookField.PRICE, BookField.VISIBLE)));
+
+        advance(Duration.ofSeconds(40));
+        assertNotNull(cache.get(1L, Set.of()));
+        assertNull(cache.get(1L, Set.of(BookField.PRICE)));
+
+        advance(Duration.ofMinutes(5));
+        assertNull(cache.get(1L, Set.of()));
+    }
+
+    @Test
+    void servesStaleCopiesWithinTheStaleBudget() {
+        cache.put(1L, book(1L));
+
+        advance(Duration.ofMinutes(14));
+        assertNull(cache.get(1L, Set.of()));
+        assertEquals(1L, cache.getStale(1L).getId());
+
+        advance(Duration.ofMinutes(2));
+        assertNull(cache.getStale(1L));
+        assertEquals(1, cache.stats().staleHits());
+    }
+
+    @Test
+    void needsRefreshDoesNotCountRefreshes() {
+        cache.put(1L, book(1L));
+        assertFalse(cache.needsRefresh(cache.get(1L, Set.of())));
+
+        advance(Duration.ofSeconds(21));
+        BookCache.CachedBook cached = cache.get(1L, Set.of());
+        assertTrue(cache.needsRefresh(cached));
+        assertTrue(cache.needsRefresh(cached));
+        assertEquals(0, cache.stats().refreshes());
+
+        cache.recordRefresh();
+        assertEquals(1, cache.stats().refreshes());
+    }
+
+    @Test
+    void remembersNotFoundBooksForTheirTtl() {
+        cache.put(1L, book(1L));
+        cache.putNotFound(1L);
+        assertTrue(cache.isNotFound(1L));
+        assertNull(cache.getStale(1L));
+
+        advance(Duration.ofSeconds(31));
+        assertFalse(cache.isNotFound(1L));
+
+        cache.putNotFound(2L);
+        cache.put(2L, book(2L));
+        assertFalse(cache.isNotFound(2L));
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+
+    private static Book book(Long id) {
+        return Book.builder().id(id).price(BigDecimal.TEN).visible(true).build();
+    }
+}
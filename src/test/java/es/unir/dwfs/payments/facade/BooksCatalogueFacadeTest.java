@@ -0,0 +1,229 @@
+package es.unir.dwfs.payments.facade;
+
+import es.unir.dwfs.payments.exception.CatalogueUnavailableException;
+import es.unir.dwfs.payments.facade.model.Book;
+import es.unir.dwfs.payments.metrics.OrderMetrics;
+import es.unir.dwfs.payments.support.CatalogueStub;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba contra un stub del catálogo que las consultas concurrentes de un mismo libro se
+ * agrupan, que las peticiones en curso se retiran tras un error o el plazo máximo, que un
+ * catálogo caído no se confunde con un libro inexistente y que la consulta por lotes recurre a
+ * las individuales cuando el catálogo no la soporta
+ */
+class BooksCatalogueFacadeTest {
+
+    private static final Duration DEADLINE = Duration.ofSeconds(2);
+
+    @Test
+    void concurrentLookupsOfTheSameBookShareOneRequest() throws Exception {
+        try (CatalogueStub catalogue = new CatalogueStub(Duration.ofMillis(200));
+             ExecutorService executor = Executors.newFixedThreadPool(20)) {
+            BooksCatalogueFacade facade = facade(catalogue, false, DEADLINE);
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Map<Long, Book>>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return facade.getBooks(List.of(7L, 7L));
+                }));
+            }
+            start.countDown();
+
+            for (Future<Map<Long, Book>> result : results) {
+                assertEquals(7L, result.get().get(7L).getId());
+            }
+            assertEquals(1, catalogue.requests());
+            awaitNoInFlight(facade);
+        }
+    }
+
+    @Test
+    void releasesInFlightLookupsWhenTheCatalogueFails() throws Exception {
+        try (CatalogueStub catalogue = CatalogueStub.builder().errorRate(1.0).start()) {
+            BooksCatalogueFacade facade = facade(catalogue, false, DEADLINE);
+
+            CatalogueUnavailableException e = assertThrows(CatalogueUnavailableException.class,
+                    () -> facade.getBooks(List.of(1L, 2L)));
+            assertEquals(Set.of(1L, 2L), e.getBookIds());
+            awaitNoInFlight(facade);
+        }
+    }
+
+    @Test
+    void releasesInFlightLookupsAfterTheDeadline() throws Exception {
+        try (CatalogueStub catalogue = new CatalogueStub(Duration.ofSeconds(1))) {
+            BooksCatalogueFacade facade = facade(catalogue, false, Duration.ofMillis(100));
+
+            assertThrows(CatalogueUnavailableException.class, () -> facade.getBooks(List.of(1L)));
+            awaitNoInFlight(facade);
+        }
+    }
+
+    @Test
+    void missingBooksAreNotReportedAsUnavailable() throws Exception {
+        try (CatalogueStub catalogue = CatalogueStub.builder().size(5).start()) {
+            BooksCatalogueFacade facade = facade(catalogue, false, DEADLINE);
+
+            assertEquals(Set.of(1L), facade.getBooks(List.of(1L, 6L)).keySet());
+            assertEquals(Set.of(1L), facade.getBooks(List.of(1L, 6L)).keySet());
+        }
+    }
+
+    @Test
+    void servesStaleCopiesWhenTheCatalogueFails() throws Exception {
+        try (CatalogueStub healthy = new CatalogueStub(Duration.ZERO);
+             CatalogueStub failing = CatalogueStub.builder().errorRate(1.0).start()) {
+            AtomicLong now = new AtomicLong();
+            BookCache cache = new BookCache(true, 1000, Duration.ofMinutes(5), Duration.ofMinutes(1),
+                    Duration.ofSeconds(30), Duration.ofSeconds(20), Duration.ofMinutes(10), Duration.ofSeconds(30),
+                    now::get);
+            BooksCatalogueFacade facade = facade(healthy, false, DEADLINE, cache);
+            facade.getBooks(List.of(1L));
+
+            now.addAndGet(Duration.ofMinutes(6).toNanos());
+            ReflectionTestUtils.setField(facade, "getBookUrl", failing.uri() + "/books/%s");
+
+            assertEquals(1L, facade.getBooks(List.of(1L)).get(1L).getId());
+            CatalogueUnavailableException e = assertThrows(CatalogueUnavailableException.class,
+                    () -> facade.getBooks(List.of(1L, 2L)));
+            assertEquals(Set.of(2L), e.getBookIds());
+
+            BooksCatalogueFacade.BookLookup lookup = facade.lookupBooks(List.of(1L, 2L));
+            assertEquals(Set.of(1L), lookup.books().keySet());
+            assertEquals(Set.of(2L), lookup.unavailable());
+        }
+    }
+
+    @Test
+    void countsARefreshOnlyWhenItIsStarted() throws Exception {
+        try (CatalogueStub catalogue = new CatalogueStub(Duration.ofMillis(200))) {
+            AtomicLong now = new AtomicLong();
+            BookCache cache = new BookCache(true, 1000, Duration.ofMinutes(5), Duration.ofMinutes(1),
+                    Duration.ofSeconds(30), Duration.ofSeconds(20), Duration.ofMinutes(10), Duration.ofSeconds(30),
+                    now::get);
+            BooksCatalogueFacade facade = facade(catalogue, false, DEADLINE, cache);
+            facade.getBooks(List.of(1L));
+            awaitNoInFlight(facade);
+
+            // Entrada para refrescar: el primer pedido lanza el refresco y el segundo lo encuentra en curso
+            now.addAndGet(Duration.ofSeconds(21).toNanos());
+            facade.getBooks(List.of(1L));
+            facade.getBooks(List.of(1L));
+            assertEquals(1, cache.stats().refreshes());
+            awaitNoInFlight(facade);
+            assertEquals(2, catalogue.requests());
+        }
+    }
+
+    @Test
+    void usesOneBatchRequestWhenTheCatalogueSupportsIt() throws Exception {
+        try (CatalogueStub catalogue = CatalogueStub.builder().batch(true).start()) {
+            BooksCatalogueFacade facade = facade(catalogue, true, DEADLINE);
+
+            assertEquals(3, facade.getBooks(List.of(1L, 2L, 3L)).size());
+            assertEquals(1, catalogue.requests());
+        }
+    }
+
+    @Test
+    void fallsBackToSingleLookupsWhenBatchIsNotSupported() throws Exception {
+        try (CatalogueStub catalogue = CatalogueStub.builder().batch(false).start()) {
+            BooksCatalogueFacade facade = facade(catalogue, true, DEADLINE);
+
+            assertEquals(3, facade.getBooks(List.of(1L, 2L, 3L)).size());
+            assertEquals(1, catalogue.batchRequests());
+
+            // Desactivada durante getBook.batch-retry-after
+            assertEquals(2, facade.getBooks(List.of(4L, 5L)).size());
+            assertEquals(1, catalogue.batchRequests());
+            assertEquals(6, catalogue.requests());
+        }
+    }
+
+    @Test
+    void fallsBackToSingleLookupsWhenTheBatchResponseIgnoresTheIds() throws Exception {
+        try (CatalogueStub catalogue = CatalogueStub.builder().batch(true).ignoreIds(true).start()) {
+            BooksCatalogueFacade facade = facade(catalogue, true, DEADLINE);
+
+            Map<Long, Book> books = facade.getBooks(List.of(11L, 12L));
+            assertEquals(List.of(11L, 12L), books.keySet().stream().sorted().toList());
+
+            facade.getBooks(List.of(13L, 14L));
+            assertEquals(1, catalogue.batchRequests());
+        }
+    }
+
+    @Test
+    void retriesBatchLookupsAfterTheRetryDelay() throws Exception {
+        try (CatalogueStub catalogue = CatalogueStub.builder().batch(false).start()) {
+            BooksCatalogueFacade facade = facade(catalogue, true, DEADLINE);
+            ReflectionTestUtils.setField(facade, "batchRetryAfter", Duration.ZERO);
+
+            facade.getBooks(List.of(1L, 2L));
+            facade.getBooks(List.of(3L, 4L));
+            assertEquals(2, catalogue.batchRequests());
+        }
+    }
+
+    /**
+     * Fachada contra el stub, sin ventana de agrupación (las peticiones se retiran al completarse)
+     */
+    private static BooksCatalogueFacade facade(CatalogueStub catalogue, boolean batch, Duration deadline) {
+        return facade(catalogue, batch, deadline, new BookCache(true, 1000, Duration.ofMinutes(5),
+                Duration.ofMinutes(1), Duration.ofSeconds(30), Duration.ofSeconds(20), Duration.ofMinutes(10),
+                Duration.ofSeconds(30)));
+    }
+
+    private static BooksCatalogueFacade facade(CatalogueStub catalogue, boolean batch, Duration deadline,
+                                               BookCache cache) {
+        BooksCatalogueFacade facade = new BooksCatalogueFacade(WebClient.create(), cache,
+                CircuitBreaker.ofDefaults("catalogue"), new OrderMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(facade, "getBookUrl", catalogue.uri() + "/books/%s");
+        ReflectionTestUtils.setField(facade, "getBooksUrl", catalogue.uri() + "/books?ids=%s");
+        ReflectionTestUtils.setField(facade, "batchEnabled", batch);
+        ReflectionTestUtils.setField(facade, "batchRetryAfter", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(facade, "batchMaxIds", 100);
+        ReflectionTestUtils.setField(facade, "concurrency", 8);
+        ReflectionTestUtils.setField(facade, "deadline", deadline);
+        ReflectionTestUtils.setField(facade, "unavailableRetryAfter", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(facade, "coalesceWindow", Duration.ZERO);
+        return facade;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Long, ?> inFlight(BooksCatalogueFacade facade) {
+        return (Map<Long, ?>) ReflectionTestUtils.getField(facade, "inFlight");
+    }
+
+    /**
+     * La petición se retira justo después de notificar a quienes la esperan
+     */
+    private static void awaitNoInFlight(BooksCatalogueFacade facade) throws InterruptedException {
+        for (int i = 0; i < 100 && !inFlight(facade).isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(inFlight(facade).isEmpty());
+    }
+}
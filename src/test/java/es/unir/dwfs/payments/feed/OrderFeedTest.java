@@ -0,0 +1,209 @@
+package es.unir.dwfs.payments.feed;
+
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.service.OrderAssembler;
+import es.unir.dwfs.payments.service.OrderWriter;
+import es.unir.dwfs.payments.service.OrdersCreatedEvent;
+import es.unir.dwfs.payments.service.OrdersService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import tools.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que la reanudación con Last-Event-ID entrega cada pedido posterior una sola vez
+ * (incluidos los creados mientras se leen las páginas), que un suscriptor lento pierde eventos o
+ * se desconecta según orders.feed.overflow-policy y que el feed lo olvida al cancelar
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:OrderFeedTest",
+        "orders.async.enabled=false"
+})
+class OrderFeedTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    private OrdersService ordersService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ConverterErrors converterErrors;
+
+    @Autowired
+    private OrderWriter orderWriter;
+
+    @Autowired
+    private OrderAssembler assembler;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void replayDeliversEveryLaterOrderOnce() {
+        // Páginas de 2 para que la reanudación lea varias
+        OrderFeed feed = feed(256, FeedOverflowPolicy.DISCONNECT, 2);
+        long after = save().getId();
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            expected.add(save().getId());
+        }
+
+        Flux<ServerSentEvent<String>> events = feed.subscribe(after);
+
+        // Confirmados después de suscribirse y antes de leer la base de datos: llegan por la
+        // reanudación y por el buffer en directo, y solo deben entregarse una vez
+        List<Order> concurrent = List.of(save(), save());
+        feed.onOrdersCreated(new OrdersCreatedEvent(concurrent));
+        concurrent.forEach(order -> expected.add(order.getId()));
+
+        List<Long> received = new CopyOnWriteArrayList<>();
+        events.map(event -> Long.parseLong(event.id()))
+                .doOnNext(received::add)
+                .subscribe();
+        awaitSize(received, expected.size());
+
+        // Los siguientes llegan solo en directo
+        Order next = save();
+        feed.onOrdersCreated(new OrdersCreatedEvent(List.of(next)));
+        expected.add(next.getId());
+        awaitSize(received, expected.size());
+
+        assertEquals(expected, received);
+    }
+
+    @Test
+    void slowSubscriberLosesEventsWithDropPolicy() {
+        OrderFeed feed = feed(2, FeedOverflowPolicy.DROP, 500);
+        SlowSubscriber subscriber = new SlowSubscriber();
+        feed.subscribe(null).subscribe(subscriber);
+
+        feed.onOrdersCreated(new OrdersCreatedEvent(orders(1, 5)));
+        double dropped = registry.get("orders.feed.dropped").counter().count();
+        assertTrue(dropped > 0);
+
+        // Sigue suscrito: al consumir recibe lo que cabía en su buffer y los eventos siguientes
+        subscriber.requestUnbounded();
+        feed.onOrdersCreated(new OrdersCreatedEvent(orders(6, 6)));
+        awaitSize(subscriber.ids, 5 - (int) dropped + 1);
+        assertEquals(6L, subscriber.ids.getLast());
+        assertFalse(subscriber.completed);
+        assertEquals(1, subscribers());
+    }
+
+    @Test
+    void slowSubscriberIsDisconnectedWithDisconnectPolicy() {
+        OrderFeed feed = feed(2, FeedOverflowPolicy.DISCONNECT, 500);
+        SlowSubscriber subscriber = new SlowSubscriber();
+        feed.subscribe(null).subscribe(subscriber);
+
+        feed.onOrdersCreated(new OrdersCreatedEvent(orders(1, 5)));
+        assertEquals(1, registry.get("orders.feed.disconnected").counter().count());
+        assertEquals(0, subscribers());
+
+        // Recibe lo que tenía en el buffer, en orden, y después el fin del stream
+        subscriber.requestUnbounded();
+        feed.onOrdersCreated(new OrdersCreatedEvent(orders(6, 6)));
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!subscriber.completed && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertTrue(subscriber.completed);
+        assertFalse(subscriber.ids.isEmpty());
+        assertEquals(LongStream.rangeClosed(1, subscriber.ids.size()).boxed().toList(), subscriber.ids);
+    }
+
+    @Test
+    void cancelledSubscriberIsReleased() {
+        OrderFeed feed = feed(256, FeedOverflowPolicy.DISCONNECT, 500);
+        SlowSubscriber subscriber = new SlowSubscriber();
+        feed.subscribe(null).subscribe(subscriber);
+        assertEquals(1, subscribers());
+
+        subscriber.dispose();
+        assertEquals(0, subscribers());
+        feed.onOrdersCreated(new OrdersCreatedEvent(orders(1, 1)));
+        assertTrue(subscriber.ids.isEmpty());
+    }
+
+    private OrderFeed feed(int bufferSize, FeedOverflowPolicy policy, int replayPageSize) {
+        return new OrderFeed(ordersService, objectMapper, converterErrors, registry,
+                bufferSize, 10, replayPageSize, policy, Duration.ofHours(1));
+    }
+
+    private double subscribers() {
+        return registry.get("orders.feed.subscribers").gauge().value();
+    }
+
+    private Order save() {
+        return orderWriter.save(assembler.newOrder(new ArrayList<>(List.of(
+                OrderItem.builder().bookId(1L).quantity(1).capturedUnitPrice(BigDecimal.TEN).build()))));
+    }
+
+    /**
+     * Pedidos sin persistir con IDs de from a to, solo para entregarlos al feed
+     */
+    private static List<Order> orders(long from, long to) {
+        return LongStream.rangeClosed(from, to)
+                .mapToObj(id -> {
+                    Order order = Order.builder().id(id).orderDate(Instant.now())
+                            .totalAmount(BigDecimal.ZERO).itemCount(0).build();
+                    order.setItems(new ArrayList<>());
+                    return order;
+                })
+                .toList();
+    }
+
+    private static void awaitSize(List<Long> ids, int size) {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (ids.size() < size && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(size, ids.size(), ids::toString);
+    }
+
+    /**
+     * Suscriptor que no pide eventos hasta que se le indica, como un cliente que no lee la conexión
+     */
+    private static final class SlowSubscriber extends BaseSubscriber<ServerSentEvent<String>> {
+
+        private final List<Long> ids = new CopyOnWriteArrayList<>();
+        private volatile boolean completed;
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            // Sin petición inicial
+        }
+
+        @Override
+        protected void hookOnNext(ServerSentEvent<String> event) {
+            ids.add(Long.parseLong(event.id()));
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            completed = true;
+        }
+    }
+}
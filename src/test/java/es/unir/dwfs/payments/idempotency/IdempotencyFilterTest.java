@@ -0,0 +1,162 @@
+package es.unir.dwfs.payments.idempotency;
+
+import es.unir.dwfs.payments.data.OrderJpaRepository;
+import es.unir.dwfs.payments.exception.CatalogueUnavailableException;
+import es.unir.dwfs.payments.exception.RetryLaterException;
+import es.unir.dwfs.payments.service.OrdersService;
+import es.unir.dwfs.payments.support.CatalogueStub;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+
+/**
+ * Comprueba el filtro de Idempotency-Key en POST /orders (modo bloqueante) contra un catálogo
+ * en proceso: un reintento recibe la respuesta original con Idempotent-Replayed sin crear otro
+ * pedido, reutilizar la clave con otro cuerpo es un 422, las claves de dos clientes no se
+ * mezclan y las respuestas de fallos transitorios (5xx, 429, Retry-After) liberan la clave
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:IdempotencyFilterTest",
+        "orders.async.enabled=false",
+        "orders.rate-limit.enabled=false",
+        "orders.idempotency.store=memory"
+})
+class IdempotencyFilterTest {
+
+    private static final String ORDER = "{\"items\":[{\"bookId\":1,\"quantity\":2}]}";
+    private static final String OTHER_ORDER = "{\"items\":[{\"bookId\":2,\"quantity\":1}]}";
+
+    private static CatalogueStub catalogue;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private OrderJpaRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoSpyBean
+    private OrdersService ordersService;
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @DynamicPropertySource
+    static void catalogue(DynamicPropertyRegistry registry) throws IOException {
+        catalogue = new CatalogueStub(Duration.ZERO);
+        registry.add("spring.cloud.discovery.client.simple.instances.ms-books-catalogue[0].uri", catalogue::uri);
+    }
+
+    @AfterAll
+    static void stopCatalogue() {
+        catalogue.close();
+    }
+
+    @Test
+    void replaysTheOriginalResponseWithoutCreatingAnotherOrder() throws Exception {
+        String key = UUID.randomUUID().toString();
+        long orders = repository.count();
+
+        HttpResponse<String> created = post("client", key, ORDER);
+        HttpResponse<String> replayed = post("client", key, ORDER);
+
+        assertEquals(200, created.statusCode(), created.body());
+        assertFalse(created.headers().firstValue(IdempotencyFilter.REPLAYED_HEADER).isPresent());
+        assertEquals(200, replayed.statusCode());
+        assertEquals("true", replayed.headers().firstValue(IdempotencyFilter.REPLAYED_HEADER).orElse(null));
+        assertEquals(created.body(), replayed.body());
+        assertEquals(orders + 1, repository.count());
+    }
+
+    @Test
+    void rejectsTheSameKeyWithAnotherBody() throws Exception {
+        String key = UUID.randomUUID().toString();
+        assertEquals(200, post("client", key, ORDER).statusCode());
+        long orders = repository.count();
+
+        HttpResponse<String> reused = post("client", key, OTHER_ORDER);
+
+        assertEquals(422, reused.statusCode());
+        assertTrue(reused.body().contains("ya se ha usado con otro cuerpo de petición"), reused.body());
+        assertEquals(orders, repository.count());
+    }
+
+    @Test
+    void isolatesTheKeysOfEachClient() throws Exception {
+        String key = UUID.randomUUID().toString();
+
+        HttpResponse<String> first = post("client-a", key, ORDER);
+        HttpResponse<String> second = post("client-b", key, ORDER);
+        HttpResponse<String> otherBody = post("client-c", key, OTHER_ORDER);
+
+        for (HttpResponse<String> response : List.of(first, second, otherBody)) {
+            assertEquals(200, response.statusCode(), response.body());
+            assertFalse(response.headers().firstValue(IdempotencyFilter.REPLAYED_HEADER).isPresent());
+        }
+        assertNotEquals(id(first), id(second));
+        assertEquals(id(first), id(post("client-a", key, ORDER)));
+    }
+
+    @Test
+    void transientFailuresReleaseTheKey() throws Exception {
+        List<RuntimeException> failures = List.of(
+                new IllegalStateException("database down"),
+                new RetryLaterException(HttpStatus.TOO_MANY_REQUESTS, "ORDER_RATE-001", "Too many requests", Duration.ofSeconds(1)),
+                new CatalogueUnavailableException(Set.of(1L), Duration.ofSeconds(1)));
+        List<Integer> statuses = List.of(500, 429, 503);
+
+        for (int i = 0; i < failures.size(); i++) {
+            reset(ordersService);
+            doThrow(failures.get(i)).doCallRealMethod().when(ordersService).createOrder(any());
+            String key = UUID.randomUUID().toString();
+
+            HttpResponse<String> failed = post("client", key, ORDER);
+            HttpResponse<String> retried = post("client", key, ORDER);
+
+            assertEquals(statuses.get(i), failed.statusCode(), failed.body());
+            assertEquals(200, retried.statusCode(), retried.body());
+            assertFalse(retried.headers().firstValue(IdempotencyFilter.REPLAYED_HEADER).isPresent());
+        }
+    }
+
+    private long id(HttpResponse<String> response) {
+        return objectMapper.readTree(response.body()).get("id").asLong();
+    }
+
+    private HttpResponse<String> post(String apiKey, String idempotencyKey, String body) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/orders"))
+                .header("Content-Type", "application/json")
+                .header("X-API-Key", apiKey)
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,87 @@
+package es.unir.dwfs.payments.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que el límite de entradas solo desaloja respuestas guardadas, nunca reservas en
+ * curso, que las reservas caducan antes que las respuestas y que cada reserva conserva la huella
+ * del cuerpo. El mantenimiento de la caché se ejecuta en el hilo del test para que los desalojos
+ * sean inmediatos, con un reloj que avanza el test
+ */
+class InMemoryIdempotencyStoreTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(2, Duration.ofHours(1),
+            Duration.ofMinutes(1), Runnable::run, nanos::get);
+
+    @Test
+    void neverEvictsReservationsInProgress() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(store.tryAcquire("in-flight-" + i, "hash-" + i));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertTrue(store.tryAcquire("done-" + i, "hash"));
+            store.complete("done-" + i, response());
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertFalse(store.tryAcquire("in-flight-" + i, "hash-" + i));
+            assertEquals("hash-" + i, store.fingerprint("in-flight-" + i));
+        }
+        int completed = 0;
+        for (int i = 0; i < 10; i++) {
+            completed += store.fingerprint("done-" + i) != null ? 1 : 0;
+        }
+        assertTrue(completed <= 2, "completed entries kept: " + completed);
+    }
+
+    @Test
+    void duplicatesGetTheStoredResponse() throws Exception {
+        assertTrue(store.tryAcquire("key", "hash"));
+        store.complete("key", response());
+
+        assertFalse(store.tryAcquire("key", "other"));
+        assertEquals("hash", store.fingerprint("key"));
+        assertArrayEquals(response().body(), store.await("key", Duration.ofSeconds(1)).body());
+    }
+
+    @Test
+    void releasedKeysCanBeAcquiredAgain() throws Exception {
+        assertTrue(store.tryAcquire("key", "hash"));
+        store.release("key");
+
+        assertNull(store.fingerprint("key"));
+        assertNull(store.await("key", Duration.ofSeconds(1)));
+        assertTrue(store.tryAcquire("key", "other"));
+    }
+
+    @Test
+    void abandonedReservationsExpireBeforeStoredResponses() throws Exception {
+        assertTrue(store.tryAcquire("abandoned", "hash"));
+        assertTrue(store.tryAcquire("done", "hash"));
+        store.complete("done", response());
+
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        assertNull(store.await("abandoned", Duration.ofSeconds(1)));
+        assertTrue(store.tryAcquire("abandoned", "hash"));
+        assertFalse(store.tryAcquire("done", "hash"));
+        assertArrayEquals(response().body(), store.await("done", Duration.ofSeconds(1)).body());
+
+        nanos.addAndGet(Duration.ofHours(1).toNanos());
+        assertTrue(store.tryAcquire("done", "hash"));
+    }
+
+    private static StoredResponse response() {
+        return new StoredResponse(200, "application/json", "{\"id\":1}".getBytes());
+    }
+}
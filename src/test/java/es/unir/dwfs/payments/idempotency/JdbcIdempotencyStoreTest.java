@@ -0,0 +1,138 @@
+package es.unir.dwfs.payments.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba el almacén en la tabla idempotency_keys (H2): reserva, respuesta guardada y
+ * esperada por los duplicados, liberación, y caducidad de la reserva (corta) y de la respuesta
+ * (orders.idempotency.ttl). Las caducidades se provocan adelantando expires_at en la tabla
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:JdbcIdempotencyStoreTest",
+        "orders.async.enabled=false",
+        "orders.idempotency.store=jdbc",
+        "orders.idempotency.ttl=24h",
+        "orders.idempotency.in-progress-timeout=1m",
+        "orders.idempotency.poll-interval=10ms"
+})
+class JdbcIdempotencyStoreTest {
+
+    @Autowired
+    private JdbcIdempotencyStore store;
+
+    @Autowired
+    private JdbcClient jdbcClient;
+
+    @Test
+    void duplicatesWaitForTheStoredResponse() throws Exception {
+        String key = key();
+        assertTrue(store.tryAcquire(key, "hash"));
+        assertFalse(store.tryAcquire(key, "other"));
+        assertEquals("hash", store.fingerprint(key));
+        assertThrows(TimeoutException.class, () -> store.await(key, Duration.ofMillis(50)));
+
+        CompletableFuture<StoredResponse> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return store.await(key, Duration.ofSeconds(5));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        store.complete(key, response());
+
+        assertArrayEquals(response().body(), waiting.get(5, TimeUnit.SECONDS).body());
+        assertEquals(201, store.await(key, Duration.ofSeconds(1)).status());
+        assertFalse(store.tryAcquire(key, "hash"));
+    }
+
+    @Test
+    void reservationsLastTheInProgressTimeoutAndResponsesTheTtl() {
+        String key = key();
+        Instant before = Instant.now();
+        assertTrue(store.tryAcquire(key, "hash"));
+        Instant reserved = expiresAt(key);
+        assertTrue(reserved.isBefore(before.plus(Duration.ofMinutes(2))), reserved.toString());
+
+        store.complete(key, response());
+        Instant completed = expiresAt(key);
+        assertTrue(completed.isAfter(before.plus(Duration.ofHours(23))), completed.toString());
+    }
+
+    @Test
+    void releasedKeysCanBeAcquiredAgain() throws Exception {
+        String key = key();
+        assertTrue(store.tryAcquire(key, "hash"));
+        store.release(key);
+
+        assertNull(store.fingerprint(key));
+        assertNull(store.await(key, Duration.ofSeconds(1)));
+        assertTrue(store.tryAcquire(key, "other"));
+
+        store.complete(key, response());
+        store.release(key);
+        assertEquals("other", store.fingerprint(key));
+    }
+
+    @Test
+    void expiredReservationsAreTakenOver() throws Exception {
+        String key = key();
+        assertTrue(store.tryAcquire(key, "hash"));
+        expire(key);
+
+        assertNull(store.await(key, Duration.ofSeconds(5)));
+        assertTrue(store.tryAcquire(key, "hash"));
+        assertFalse(store.tryAcquire(key, "hash"));
+    }
+
+    @Test
+    void expiredResponsesAreForgotten() {
+        String key = key();
+        assertTrue(store.tryAcquire(key, "hash"));
+        store.complete(key, response());
+        expire(key);
+
+        assertTrue(store.tryAcquire(key, "other"));
+        assertEquals("other", store.fingerprint(key));
+    }
+
+    private void expire(String key) {
+        jdbcClient.sql("update idempotency_keys set expires_at = ? where idem_key = ?")
+                .params(Timestamp.from(Instant.now().minusSeconds(1)), key)
+                .update();
+    }
+
+    private Instant expiresAt(String key) {
+        return jdbcClient.sql("select expires_at from idempotency_keys where idem_key = ?")
+                .param(key)
+                .query(Timestamp.class)
+                .single()
+                .toInstant();
+    }
+
+    private static String key() {
+        return "/orders test " + UUID.randomUUID();
+    }
+
+    private static StoredResponse response() {
+        return new StoredResponse(201, "application/json", "{\"id\":1}".getBytes());
+    }
+}
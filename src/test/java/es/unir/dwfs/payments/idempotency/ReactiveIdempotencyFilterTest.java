@@ -0,0 +1,109 @@
+package es.unir.dwfs.payments.idempotency;
+
+import es.unir.dwfs.payments.data.OrderJpaRepository;
+import es.unir.dwfs.payments.exception.CatalogueUnavailableException;
+import es.unir.dwfs.payments.service.ReactiveOrdersService;
+import es.unir.dwfs.payments.support.CatalogueStub;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * Comprueba el filtro de Idempotency-Key con orders.execution-mode=reactive: la respuesta se
+ * completa en el despacho asíncrono, donde se guarda para los reintentos o, si es un fallo
+ * transitorio, se libera la clave
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:ReactiveIdempotencyFilterTest",
+        "orders.async.enabled=false",
+        "orders.rate-limit.enabled=false",
+        "orders.idempotency.store=memory",
+        "orders.execution-mode=reactive"
+})
+class ReactiveIdempotencyFilterTest {
+
+    private static final String ORDER = "{\"items\":[{\"bookId\":1,\"quantity\":2}]}";
+
+    private static CatalogueStub catalogue;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private OrderJpaRepository repository;
+
+    @MockitoSpyBean
+    private ReactiveOrdersService ordersService;
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @DynamicPropertySource
+    static void catalogue(DynamicPropertyRegistry registry) throws IOException {
+        catalogue = new CatalogueStub(Duration.ZERO);
+        registry.add("spring.cloud.discovery.client.simple.instances.ms-books-catalogue[0].uri", catalogue::uri);
+    }
+
+    @AfterAll
+    static void stopCatalogue() {
+        catalogue.close();
+    }
+
+    @Test
+    void replaysTheResponseCompletedInTheAsyncDispatch() throws Exception {
+        String key = UUID.randomUUID().toString();
+        long orders = repository.count();
+
+        HttpResponse<String> created = post(key);
+        HttpResponse<String> replayed = post(key);
+
+        assertEquals(200, created.statusCode(), created.body());
+        assertEquals(200, replayed.statusCode());
+        assertEquals("true", replayed.headers().firstValue(IdempotencyFilter.REPLAYED_HEADER).orElse(null));
+        assertEquals(created.body(), replayed.body());
+        assertEquals(orders + 1, repository.count());
+    }
+
+    @Test
+    void asyncTransientFailuresReleaseTheKey() throws Exception {
+        doReturn(Mono.error(new CatalogueUnavailableException(Set.of(1L), Duration.ofSeconds(1))))
+                .doCallRealMethod()
+                .when(ordersService).createOrder(any());
+        String key = UUID.randomUUID().toString();
+
+        HttpResponse<String> failed = post(key);
+        HttpResponse<String> retried = post(key);
+
+        assertEquals(503, failed.statusCode(), failed.body());
+        assertEquals(200, retried.statusCode(), retried.body());
+        assertFalse(retried.headers().firstValue(IdempotencyFilter.REPLAYED_HEADER).isPresent());
+    }
+
+    private HttpResponse<String> post(String idempotencyKey) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/orders"))
+                .header("Content-Type", "application/json")
+                .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .POST(HttpRequest.BodyPublishers.ofString(ORDER))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,119 @@
+package es.unir.dwfs.payments.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba la admisión del limitador, cómo ajustan el límite los algoritmos con la latencia y que
+ * las muestras concurrentes cierran cada ventana una sola vez
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void rejectsAboveLimitUntilAPermitIsReleased() {
+        AdaptiveConcurrencyLimiter limiter = limiter(new AimdLimit(Duration.ofSeconds(1), 0.9), 2);
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(limiter.tryAcquire());
+        assertNull(limiter.tryAcquire());
+
+        first.release(false);
+        first.release(false);
+        assertEquals(1, limiter.getInflight());
+        assertNotNull(limiter.tryAcquire());
+        assertEquals(1.0, registry.get("orders.limiter.rejected").counter().count());
+    }
+
+    @Test
+    void gradientGrowsWhileLatencyIsStableAndBacksOffWhenItRises() {
+        AdaptiveConcurrencyLimiter limiter = limiter(new GradientLimit(1.5, 0.2, 100), 20);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.onSample(FAST, limiter.getLimit(), false);
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 20, "límite tras latencia estable: " + grown);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.onSample(SLOW, limiter.getLimit(), false);
+        }
+        assertTrue(limiter.getLimit() < grown, "límite tras subir la latencia: " + limiter.getLimit());
+    }
+
+    @Test
+    void gradientIgnoresLatencyWhenTheLimitIsUnderused() {
+        AdaptiveConcurrencyLimiter limiter = limiter(new GradientLimit(1.5, 0.2, 100), 20);
+
+        limiter.onSample(FAST, 20, false);
+        limiter.onSample(SLOW, 1, false);
+        limiter.onSample(FAST, 1, false);
+
+        assertEquals((int) (20 * 0.8 + (20 + Math.sqrt(20)) * 0.2), limiter.getLimit());
+    }
+
+    @Test
+    void aimdBacksOffOnServerErrorsAndStaysWithinBounds() {
+        AdaptiveConcurrencyLimiter limiter = limiter(new AimdLimit(Duration.ofSeconds(1), 0.5), 8);
+
+        limiter.onSample(FAST, 8, false);
+        assertEquals(9, limiter.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            limiter.onSample(FAST, 8, true);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void concurrentSamplesCloseEveryWindowOnce() throws Exception {
+        // AIMD suma uno por ventana: 8 hilos x 100 muestras en ventanas de 10 son 80 ventanas
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(LimitGroup.WRITE,
+                new AimdLimit(Duration.ofSeconds(1), 0.9), 2, 2, 1000, 10, registry);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        limiter.onSample(FAST, 1000, false);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+        assertEquals(82, limiter.getLimit());
+    }
+
+    /**
+     * Limitador con ventanas de una muestra, límite entre 2 y 100
+     */
+    private AdaptiveConcurrencyLimiter limiter(LimitAlgorithm algorithm, int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(LimitGroup.WRITE, algorithm, initialLimit, 2, 100, 1, registry);
+    }
+}
@@ -0,0 +1,92 @@
+package es.unir.dwfs.payments.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba el token bucket por cliente con un reloj simulado: ráfaga, recarga, independencia
+ * entre clientes y olvido de los clientes inactivos
+ */
+class ClientRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    /**
+     * 10 peticiones por segundo (una cada 100 ms) con ráfagas de 3
+     */
+    private final ClientRateLimiter limiter = new ClientRateLimiter("create-order", 10, Duration.ofSeconds(1), 3,
+            Duration.ofMinutes(1), 1000, now::get, registry);
+
+    @Test
+    void allowsABurstAndThenOneRequestPerInterval() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("ip:10.0.0.1"));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), limiter.tryAcquire("ip:10.0.0.1"));
+
+        advance(60);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(40), limiter.tryAcquire("ip:10.0.0.1"));
+        advance(40);
+        assertEquals(0, limiter.tryAcquire("ip:10.0.0.1"));
+        assertTrue(limiter.tryAcquire("ip:10.0.0.1") > 0);
+        assertEquals(3.0, registry.get("orders.rate-limit.rejected").counter().count());
+    }
+
+    @Test
+    void clientsHaveIndependentBuckets() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("key:partner-a");
+        }
+        assertTrue(limiter.tryAcquire("key:partner-a") > 0);
+        assertEquals(0, limiter.tryAcquire("key:partner-b"));
+    }
+
+    @Test
+    void forgetsIdleClients() {
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire("ip:10.0.1." + i);
+        }
+        assertEquals(100, limiter.clients());
+
+        advance(TimeUnit.SECONDS.toMillis(30));
+        limiter.tryAcquire("ip:10.0.1.0");
+        assertEquals(0, limiter.evictIdle());
+
+        advance(TimeUnit.SECONDS.toMillis(45));
+        assertEquals(99, limiter.evictIdle());
+        assertEquals(1, limiter.clients());
+        assertEquals(1.0, clientsGauge("create-order"));
+    }
+
+    @Test
+    void newClientsShareABucketWhileTheStoreIsFull() {
+        // Ruta propia: cada ruta registra su propio gauge de clientes
+        ClientRateLimiter small = new ClientRateLimiter("bulk-orders", 10, Duration.ofSeconds(1), 3,
+                Duration.ofMinutes(1), 2, now::get, registry);
+        small.tryAcquire("ip:10.0.0.1");
+        small.tryAcquire("ip:10.0.0.2");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, small.tryAcquire("ip:10.0.0." + (10 + i)));
+        }
+        assertTrue(small.tryAcquire("ip:10.0.0.20") > 0);
+        assertEquals(2, small.clients());
+        assertEquals(2.0, clientsGauge("bulk-orders"));
+    }
+
+    private double clientsGauge(String route) {
+        return registry.get("orders.rate-limit.clients").tag("route", route).gauge().value();
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,48 @@
+package es.unir.dwfs.payments.limit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Comprueba que, detrás del gateway (conexiones desde 127.0.0.1), los clientes anónimos se
+ * identifican por su X-Forwarded-For y no comparten el cubo de la IP del gateway
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:ForwardedClientRateLimitTest",
+        "orders.async.enabled=false",
+        "orders.rate-limit.routes.read-orders.limit=1",
+        "orders.rate-limit.routes.read-orders.period=1h",
+        "orders.rate-limit.routes.read-orders.burst=1"
+})
+class ForwardedClientRateLimitTest {
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void forwardedClientsHaveSeparateBuckets() throws Exception {
+        assertEquals(404, get("203.0.113.10").statusCode());
+        assertEquals(429, get("203.0.113.10").statusCode());
+
+        assertEquals(404, get("203.0.113.20").statusCode());
+        assertEquals(429, get("203.0.113.20").statusCode());
+    }
+
+    private HttpResponse<String> get(String clientAddress) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/orders/999999"))
+                .header("X-Forwarded-For", clientAddress)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
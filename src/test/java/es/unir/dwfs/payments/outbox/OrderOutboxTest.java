@@ -0,0 +1,145 @@
+package es.unir.dwfs.payments.outbox;
+
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.service.OrderAssembler;
+import es.unir.dwfs.payments.service.OrderWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que cada alta escribe su evento en la misma transacción, que el relay lo entrega al
+ * menos una vez y en orden y que solo publica el relay que tiene el arrendamiento
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:OrderOutboxTest",
+        "orders.async.enabled=false",
+        "orders.outbox.enabled=true",
+        "orders.outbox.publisher=memory",
+        // Las pruebas vacían la outbox explícitamente
+        "orders.outbox.poll-interval=1h"
+})
+class OrderOutboxTest {
+
+    @Autowired
+    private OrderWriter orderWriter;
+
+    @Autowired
+    private OrderAssembler assembler;
+
+    @Autowired
+    private OrderOutbox outbox;
+
+    @Autowired
+    private OutboxRelay relay;
+
+    @Autowired
+    private InMemoryOrderEventPublisher publisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        relay.drain();
+        relay.releaseLease();
+        publisher.clear();
+    }
+
+    @Test
+    void relayPublishesEventsInOrderAndEmptiesOutbox() {
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orderIds.add(orderWriter.save(assembler.newOrder(items())).getId());
+        }
+        orderIds.addAll(orderWriter.saveAll(List.of(assembler.newOrder(items()), assembler.newOrder(items())))
+                .stream().map(Order::getId).toList());
+
+        assertEquals(orderIds.size(), relay.drain());
+
+        List<OrderEvent> events = publisher.events();
+        assertEquals(orderIds, events.stream().map(OrderEvent::orderId).toList());
+        events.forEach(event -> {
+            assertEquals(OrderEvent.ORDER_CREATED, event.type());
+            assertTrue(event.payload().contains("\"totalAmount\":20.00"));
+        });
+        assertTrue(outbox.nextBatch(10).isEmpty());
+    }
+
+    @Test
+    void failedBatchIsRetained() {
+        for (int i = 0; i < 3; i++) {
+            orderWriter.save(assembler.newOrder(items()));
+        }
+        OutboxRelay failing = new OutboxRelay(outbox, events -> {
+            throw new IOException("publisher down");
+        }, new SimpleMeterRegistry(), 2, Duration.ofSeconds(30));
+
+        assertEquals(0, failing.drain());
+        assertEquals(3, outbox.nextBatch(10).size());
+        failing.releaseLease();
+
+        // Lotes de 2: el relay sigue leyendo hasta vaciar la outbox
+        OutboxRelay recovered = new OutboxRelay(outbox, publisher, new SimpleMeterRegistry(), 2, Duration.ofSeconds(30));
+        assertEquals(3, recovered.drain());
+        assertEquals(3, publisher.events().size());
+    }
+
+    @Test
+    void onlyTheLeaseHolderPublishes() {
+        OutboxRelay other = new OutboxRelay(outbox, publisher, new SimpleMeterRegistry(), 100, Duration.ofSeconds(30));
+        orderWriter.save(assembler.newOrder(items()));
+        assertEquals(1, relay.drain());
+
+        // El arrendamiento sigue siendo del primer relay hasta que lo libera o expira
+        orderWriter.save(assembler.newOrder(items()));
+        assertEquals(0, other.drain());
+        assertEquals(1, outbox.nextBatch(10).size());
+
+        relay.releaseLease();
+        assertEquals(1, other.drain());
+        assertEquals(2, publisher.events().size());
+        other.releaseLease();
+    }
+
+    @Test
+    void expiredLeaseIsTakenOver() {
+        OutboxRelay stalled = new OutboxRelay(outbox, publisher, new SimpleMeterRegistry(), 100, Duration.ZERO);
+        OutboxRelay other = new OutboxRelay(outbox, publisher, new SimpleMeterRegistry(), 100, Duration.ofSeconds(30));
+        assertEquals(0, stalled.drain());
+
+        orderWriter.save(assembler.newOrder(items()));
+        assertEquals(1, other.drain());
+        other.releaseLease();
+    }
+
+    @Test
+    void rolledBackOrderLeavesNoEvent() {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderWriter.save(assembler.newOrder(items()));
+            status.setRollbackOnly();
+        });
+
+        assertTrue(outbox.nextBatch(10).isEmpty());
+    }
+
+    private List<OrderItem> items() {
+        return new ArrayList<>(List.of(
+                OrderItem.builder().bookId(1L).quantity(1).capturedUnitPrice(BigDecimal.TEN).build(),
+                OrderItem.builder().bookId(2L).quantity(1).capturedUnitPrice(BigDecimal.TEN).build()));
+    }
+}
@@ -0,0 +1,213 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.controller.model.OrderItemRequest;
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.data.OrderJpaRepository;
+import es.unir.dwfs.payments.data.OrderRollup;
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.facade.BooksCatalogueFacade;
+import es.unir.dwfs.payments.facade.model.Book;
+import es.unir.dwfs.payments.metrics.OrderMetrics;
+import es.unir.dwfs.payments.outbox.OrderOutbox;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Comprueba que el lote se procesa por bloques (una consulta al catálogo por bloque y sus
+ * resultados antes de leer el siguiente) y el resultado de cada pedido: creado, 400 de
+ * validación, 422 de negocio, 409 al guardar, 503 (GENERIC-006) si el catálogo no resuelve sus
+ * libros, y que un cuerpo que falla a mitad procesa los pedidos leídos antes del error
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:BulkOrdersServiceImplTest",
+        "orders.async.enabled=false"
+})
+class BulkOrdersServiceImplTest {
+
+    /**
+     * Libro cuyo pedido viola una restricción de la base de datos al guardarse
+     */
+    private static final long CONFLICT_BOOK = 3L;
+    private static final long UNAVAILABLE_BOOK = 4L;
+    private static final long MISSING_BOOK = 5L;
+
+    @Autowired
+    private OrderJpaRepository repository;
+
+    @Autowired
+    private OrderRollup orderRollup;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ConverterErrors converterErrors;
+
+    @Autowired
+    private OrderAssembler assembler;
+
+    @Autowired
+    private Validator validator;
+
+    private final List<String> events = new ArrayList<>();
+
+    @Test
+    void processesTheBatchChunkByChunk() {
+        List<BulkOrderResult> results = new ArrayList<>();
+        service(2).createOrders(List.of(request(1L), request(2L), request(1L), request(2L), request(1L)).iterator(),
+                result -> {
+                    events.add("result " + result.index());
+                    results.add(result);
+                });
+
+        assertEquals(List.of("lookup [1, 2]", "result 0", "result 1", "lookup [1, 2]", "result 2", "result 3",
+                "lookup [1]", "result 4"), events);
+        results.forEach(result -> {
+            assertEquals(200, result.status());
+            assertNotNull(result.id());
+        });
+    }
+
+    @Test
+    void reportsEachOrderWithItsOwnStatus() {
+        List<BulkOrderResult> results = new ArrayList<>();
+        service(10).createOrders(List.of(request(1L), request(0L), request(MISSING_BOOK), request(CONFLICT_BOOK),
+                request(UNAVAILABLE_BOOK), request(2L)).iterator(), results::add);
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), results.stream().map(BulkOrderResult::index).toList());
+        assertEquals(List.of(200, 400, 422, 409, 503, 200), results.stream().map(BulkOrderResult::status).toList());
+        assertEquals("ORDER_ITEM-002", code(results.get(1)));
+        assertEquals("ORDER_BUSINESS-001", code(results.get(2)));
+        assertEquals("GENERIC-003", code(results.get(3)));
+        assertEquals("GENERIC-006", code(results.get(4)));
+        assertEquals("El catálogo de libros no está disponible (libros 4). Reinténtelo más tarde",
+                results.get(4).errors().getFirst().getDescription());
+        assertNotNull(results.get(5).id());
+    }
+
+    @Test
+    void processesTheOrdersReadBeforeAnInvalidBody() {
+        IllegalArgumentException invalid = new IllegalArgumentException("truncated body");
+        Iterator<OrderRequest> truncated = new Iterator<>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                if (read == 3) {
+                    throw invalid;
+                }
+                return true;
+            }
+
+            @Override
+            public OrderRequest next() {
+                read++;
+                return request(1L);
+            }
+        };
+
+        List<BulkOrderResult> results = new ArrayList<>();
+        assertSame(invalid, assertThrows(IllegalArgumentException.class,
+                () -> service(2).createOrders(truncated, results::add)));
+        assertEquals(List.of(0, 1, 2), results.stream().map(BulkOrderResult::index).toList());
+        results.forEach(result -> assertEquals(200, result.status()));
+    }
+
+    private BulkOrdersServiceImpl service(int chunkSize) {
+        BulkOrdersServiceImpl service = new BulkOrdersServiceImpl(new Catalogue(), new ConflictingWriter(),
+                assembler, validator, converterErrors, new OrderMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "chunkSize", chunkSize);
+        return service;
+    }
+
+    private static OrderRequest request(long bookId) {
+        return new OrderRequest(List.of(new OrderItemRequest(bookId, 1)));
+    }
+
+    private static String code(BulkOrderResult result) {
+        return result.errors().getFirst().getCode();
+    }
+
+    /**
+     * Catálogo en memoria que anota cada consulta. MISSING_BOOK no existe y UNAVAILABLE_BOOK no se resuelve
+     */
+    private final class Catalogue extends BooksCatalogueFacade {
+
+        Catalogue() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public BookLookup lookupBooks(Collection<Long> ids) {
+            events.add("lookup " + ids);
+            Map<Long, Book> books = new HashMap<>();
+            Set<Long> unavailable = new LinkedHashSet<>();
+            for (Long id : ids) {
+                if (id == UNAVAILABLE_BOOK) {
+                    unavailable.add(id);
+                } else if (id != MISSING_BOOK) {
+                    books.put(id, Book.builder().id(id).visible(true).price(new BigDecimal("10.50")).build());
+                }
+            }
+            return new BookLookup(books, unavailable);
+        }
+    }
+
+    /**
+     * Escritor que falla con una violación de restricción al guardar un pedido de CONFLICT_BOOK
+     */
+    private final class ConflictingWriter extends OrderWriter {
+
+        ConflictingWriter() {
+            super(repository, orderRollup, orderOutbox, eventPublisher, transactionTemplate, converterErrors);
+        }
+
+        @Override
+        public Order save(Order order) {
+            check(List.of(order));
+            return super.save(order);
+        }
+
+        @Override
+        public List<Order> saveAll(Collection<Order> orders) {
+            check(orders);
+            return super.saveAll(orders);
+        }
+
+        private void check(Collection<Order> orders) {
+            if (orders.stream().flatMap(order -> order.getItems().stream()).anyMatch(item -> item.getBookId() == CONFLICT_BOOK)) {
+                throw new DataIntegrityViolationException("duplicate key");
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.config.MessageSourceConfig;
+import es.unir.dwfs.payments.controller.model.OrderItemRequest;
+import es.unir.dwfs.payments.controller.model.OrderRequest;
+import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.exception.BusinessRuleViolationException;
+import es.unir.dwfs.payments.exception.ConverterErrors;
+import es.unir.dwfs.payments.exception.ErrorResponse;
+import es.unir.dwfs.payments.facade.model.Book;
+import es.unir.dwfs.payments.logging.LogSampler;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Comprueba que un libro sin precio en el catálogo se rechaza como error de negocio (422) y que
+ * un item sin precio capturado no llega a calcularse el importe con un NullPointerException
+ */
+class OrderAssemblerTest {
+
+    private final OrderAssembler assembler =
+            new OrderAssembler(new ConverterErrors(new MessageSourceConfig().messageSource()), new LogSampler(0));
+
+    @Test
+    void rejectsBooksWithoutPrice() {
+        OrderRequest request = new OrderRequest(List.of(new OrderItemRequest(1L, 2), new OrderItemRequest(2L, 1)));
+        Map<Long, Book> books = Map.of(
+                1L, Book.builder().id(1L).visible(true).price(new BigDecimal("10.50")).build(),
+                2L, Book.builder().id(2L).visible(true).build());
+
+        BusinessRuleViolationException e =
+                assertThrows(BusinessRuleViolationException.class, () -> assembler.buildItems(request, books));
+        assertEquals(List.of("ORDER_BUSINESS-003"), e.getErrors().stream().map(ErrorResponse.ErrorDetail::getCode).toList());
+        assertEquals("El libro con ID 2 no tiene precio en el catálogo", e.getErrors().getFirst().getDescription());
+    }
+
+    @Test
+    void rejectsItemsWithoutCapturedPrice() {
+        OrderItem item = OrderItem.builder().bookId(7L).quantity(1).build();
+        assertThrows(IllegalArgumentException.class, () -> assembler.newOrder(List.of(item)));
+    }
+}
@@ -0,0 +1,133 @@
+package es.unir.dwfs.payments.service;
+
+import es.unir.dwfs.payments.data.model.Order;
+import es.unir.dwfs.payments.data.model.OrderItem;
+import es.unir.dwfs.payments.metrics.OrderMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que los pedidos creados se sirven sin cargarlos, que un fallo de lectura carga el
+ * pedido y lo guarda (salvo si no existe), el límite por peso, la caché desactivada y las
+ * estadísticas. El mantenimiento de la caché se ejecuta en el hilo del test para que los
+ * desalojos sean inmediatos
+ */
+class OrderCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void createdOrdersAreServedWithoutLoading() {
+        OrderCache cache = cache(true, DataSize.ofMegabytes(1));
+        OrderSnapshot created = cache.put(order(1L));
+
+        OrderSnapshot read = cache.get(1L, loader(Optional.empty()));
+
+        assertSame(created, read);
+        assertEquals(0, loads.get());
+        assertTrue(new String(read.json()).startsWith("{\"id\":1,"), new String(read.json()));
+    }
+
+    @Test
+    void readMissesLoadAndStoreTheOrder() {
+        OrderCache cache = cache(true, DataSize.ofMegabytes(1));
+        Function<Long, Optional<OrderView>> loader = loader(Optional.of(OrderView.of(order(2L))));
+
+        OrderSnapshot loaded = cache.get(2L, loader);
+        OrderSnapshot cached = cache.get(2L, loader);
+
+        assertEquals(2L, loaded.view().id());
+        assertSame(loaded, cached);
+        assertEquals(1, loads.get());
+        OrderCache.Stats stats = cache.stats();
+        assertEquals(1, stats.size());
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(0.5, stats.hitRate());
+    }
+
+    @Test
+    void missingOrdersAreNotCached() {
+        OrderCache cache = cache(true, DataSize.ofMegabytes(1));
+
+        assertNull(cache.get(3L, loader(Optional.empty())));
+        assertNull(cache.get(3L, loader(Optional.empty())));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void evictsByWeightAboveTheMaximumSize() {
+        DataSize maxSize = DataSize.ofKilobytes(4);
+        OrderCache cache = cache(true, maxSize);
+
+        for (long id = 1; id <= 50; id++) {
+            cache.put(order(id));
+        }
+
+        OrderCache.Stats stats = cache.stats();
+        assertTrue(stats.weightBytes() <= maxSize.toBytes(), "weight: " + stats.weightBytes());
+        assertTrue(stats.size() < 50, "size: " + stats.size());
+        assertTrue(stats.evictions() > 0);
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        OrderCache cache = cache(false, DataSize.ofMegabytes(1));
+        OrderSnapshot created = cache.put(order(4L));
+        Function<Long, Optional<OrderView>> loader = loader(Optional.of(OrderView.of(order(4L))));
+
+        OrderSnapshot first = cache.get(4L, loader);
+        cache.get(4L, loader);
+
+        assertEquals(2, loads.get());
+        assertArrayEquals(created.json(), first.json());
+        assertEquals(0, cache.stats().size());
+    }
+
+    private OrderCache cache(boolean enabled, DataSize maxSize) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new OrderCache(JsonMapper.builder().build(), new OrderMetrics(registry), registry, enabled, maxSize,
+                Runnable::run);
+    }
+
+    private Function<Long, Optional<OrderView>> loader(Optional<OrderView> order) {
+        return id -> {
+            loads.incrementAndGet();
+            return order;
+        };
+    }
+
+    private static Order order(long id) {
+        OrderItem item = OrderItem.builder()
+                .id(id * 10)
+                .bookId(1L)
+                .quantity(2)
+                .capturedUnitPrice(new BigDecimal("10.00"))
+                .build();
+        Order order = Order.builder()
+                .id(id)
+                .orderDate(Instant.parse("2025-01-01T00:00:00Z"))
+                .totalAmount(new BigDecimal("20.00"))
+                .itemCount(1)
+                .build();
+        order.setItems(List.of(item));
+        return order;
+    }
+}
@@ -0,0 +1,33 @@
+package es.unir.dwfs.payments.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Comprueba que el cursor se decodifica tal como se codificó y que cualquier cursor manipulado
+ * se rechaza con IllegalArgumentException (400), incluidas fechas fuera del rango de Instant
+ */
+class OrderCursorTest {
+
+    @Test
+    void decodesWhatItEncodes() {
+        OrderCursor cursor = new OrderCursor(Instant.parse("2026-01-02T03:04:05.123456Z"), 42L);
+        assertEquals(cursor, OrderCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        for (String raw : new String[]{"1:2", "a:0:1", "1:0:x", Long.MAX_VALUE + ":0:1",
+                "-" + Long.MAX_VALUE + ":0:1", Long.MAX_VALUE + ":" + Long.MAX_VALUE + ":1"}) {
+            String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+            assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode(cursor), raw);
+        }
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode("not base64!"));
+    }
+}
@@ -0,0 +1,179 @@
+package es.unir.dwfs.payments.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stub HTTP en proceso del microservicio de catálogo (GET /books/{id} y, opcionalmente,
+ * GET /books?ids=1,2,3). Atiende cada petición en un hilo virtual para que el propio stub no
+ * limite la concurrencia. La latencia sigue una {@link LatencyDistribution}, una fracción de
+ * las peticiones puede fallar con 503 y los IDs mayores que el tamaño del catálogo devuelven 404.
+ * Con ignoreIds, la consulta por lotes devuelve los libros 1 a 10 sea cual sea el parámetro ids,
+ * como un catálogo que no lo interpreta
+ */
+public class CatalogueStub implements AutoCloseable {
+
+    private final HttpServer server;
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final long size;
+    private final boolean batch;
+    private final boolean ignoreIds;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batchRequests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public CatalogueStub(Duration latency) throws IOException {
+        this(builder().latency(LatencyDistribution.fixed(latency)));
+    }
+
+    private CatalogueStub(Builder builder) throws IOException {
+        this.latency = builder.latency;
+        this.errorRate = builder.errorRate;
+        this.size = builder.size;
+        this.batch = builder.batch;
+        this.ignoreIds = builder.ignoreIds;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/books", this::handle);
+        this.server.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String uri() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    /**
+     * Peticiones GET /books?ids= recibidas (atendidas o no)
+     */
+    public long batchRequests() {
+        return batchRequests.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            Thread.sleep(latency.sample(random));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null && query.startsWith("ids=")) {
+            batchRequests.increment();
+        }
+        if (random.nextDouble() < errorRate) {
+            errors.increment();
+            send(exchange, 503, "{\"error\":\"Service Unavailable\"}");
+        } else if (path.startsWith("/books/")) {
+            long id = Long.parseLong(path.substring("/books/".length()));
+            if (id > size) {
+                send(exchange, 404, "{\"error\":\"Not Found\"}");
+            } else {
+                send(exchange, 200, book(id));
+            }
+        } else if (batch && query != null && query.startsWith("ids=")) {
+            StringBuilder body = new StringBuilder("[");
+            String ids = ignoreIds ? "1,2,3,4,5,6,7,8,9,10" : query.substring("ids=".length());
+            for (String id : ids.split(",")) {
+                if (!id.isEmpty() && Long.parseLong(id) <= size) {
+                    body.append(body.length() > 1 ? "," : "").append(book(Long.parseLong(id)));
+                }
+            }
+            send(exchange, 200, body.append(']').toString());
+        } else {
+            send(exchange, 404, "{\"error\":\"Not Found\"}");
+        }
+    }
+
+    private static String book(long id) {
+        return "{\"id\":" + id + ",\"title\":\"Libro " + id + "\",\"price\":19.95,\"visible\":true}";
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    public static class Builder {
+
+        private LatencyDistribution latency = LatencyDistribution.fixed(Duration.ZERO);
+        private double errorRate;
+        private long size = Long.MAX_VALUE;
+        private boolean batch;
+        private boolean ignoreIds;
+
+        public Builder latency(LatencyDistribution latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * Fracción de peticiones que responden 503
+         */
+        public Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Número de libros del catálogo: los IDs mayores devuelven 404
+         */
+        public Builder size(long size) {
+            this.size = size;
+            return this;
+        }
+
+        /**
+         * Atiende también la consulta por lotes GET /books?ids=
+         */
+        public Builder batch(boolean batch) {
+            this.batch = batch;
+            return this;
+        }
+
+        /**
+         * La consulta por lotes ignora el parámetro ids
+         */
+        public Builder ignoreIds(boolean ignoreIds) {
+            this.ignoreIds = ignoreIds;
+            return this;
+        }
+
+        public CatalogueStub start() throws IOException {
+            return new CatalogueStub(this);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package es.unir.dwfs.payments.support;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Distribución de latencias simuladas por el stub del catálogo
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * Cuantil 0.99 de la normal estándar, para ajustar la lognormal a partir de su p99
+     */
+    double Z_99 = 2.326;
+
+    Duration sample(ThreadLocalRandom random);
+
+    static LatencyDistribution fixed(Duration latency) {
+        return random -> latency;
+    }
+
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        return random -> Duration.ofNanos(random.nextLong(min.toNanos(), max.toNanos() + 1));
+    }
+
+    /**
+     * Lognormal con la mediana y el p99 indicados: la mayoría de respuestas rápidas y una cola larga
+     */
+    static LatencyDistribution logNormal(Duration median, Duration p99) {
+        double mu = Math.log(median.toNanos());
+        double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / Z_99;
+        return random -> Duration.ofNanos((long) Math.exp(mu + sigma * random.nextGaussian()));
+    }
+
+    /**
+     * Interpreta "fixed:20ms", "uniform:5ms:50ms" o "lognormal:20ms:200ms"
+     */
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(":");
+        return switch (parts[0]) {
+            case "fixed" -> fixed(millis(parts[1]));
+            case "uniform" -> uniform(millis(parts[1]), millis(parts[2]));
+            case "lognormal" -> logNormal(millis(parts[1]), millis(parts[2]));
+            default -> throw new IllegalArgumentException("Distribución de latencia desconocida: " + spec);
+        };
+    }
+
+    private static Duration millis(String value) {
+        return Duration.ofMillis(Long.parseLong(value.replace("ms", "")));
+    }
+}
@@ -0,0 +1,93 @@
+package es.unir.dwfs.payments.support;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resultado de un escalón de carga de {@link OpenLoadGenerator}: percentiles de latencia
+ * (HdrHistogram) y resultados agrupados por estado HTTP y código de error
+ */
+public class LoadReport {
+
+    static final String OK = "ok";
+
+    private final double targetRate;
+    private final double seconds;
+    private final Map<String, OpenLoadGenerator.Stats> operations;
+    private final Histogram latency = new Histogram(3);
+    private final Map<String, Long> outcomes = new TreeMap<>();
+
+    LoadReport(double targetRate, long sentNanos, Map<String, OpenLoadGenerator.Stats> operations) {
+        this.targetRate = targetRate;
+        this.seconds = sentNanos / 1e9;
+        this.operations = operations;
+        operations.values().forEach(stats -> {
+            latency.add(stats.latency);
+            stats.outcomes.forEach((outcome, count) -> outcomes.merge(outcome, count.sum(), Long::sum));
+        });
+    }
+
+    public double targetRate() {
+        return targetRate;
+    }
+
+    /**
+     * Respuestas 2xx por segundo
+     */
+    public double throughput() {
+        return outcomes.getOrDefault(OK, 0L) / seconds;
+    }
+
+    public long requests() {
+        return outcomes.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public long errors() {
+        return requests() - outcomes.getOrDefault(OK, 0L);
+    }
+
+    public double errorRatio() {
+        long requests = requests();
+        return requests == 0 ? 0 : (double) errors() / requests;
+    }
+
+    /**
+     * Percentil de latencia de todas las operaciones, en milisegundos
+     */
+    public double percentile(double percentile) {
+        return latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    public static void printHeader() {
+        System.out.printf("%n%-10s %-14s %9s %9s %9s %9s %9s %9s %9s%n",
+                "tasa", "operación", "ok/s", "errores", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+    }
+
+    public void print() {
+        operations.forEach((name, stats) -> row(name, stats.latency, stats.outcomes.get(OK), count(stats)));
+        row("total", latency, null, requests());
+        outcomes.forEach((outcome, count) -> {
+            if (!outcome.equals(OK)) {
+                System.out.printf("%-10s   %-40s %9d%n", "", outcome, count);
+            }
+        });
+    }
+
+    private void row(String name, Histogram histogram, LongAdder ok, long requests) {
+        long okCount = ok != null ? ok.sum() : outcomes.getOrDefault(OK, 0L);
+        System.out.printf("%-10.0f %-14s %9.1f %9d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                targetRate, name, okCount / seconds, requests - okCount,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static long count(OpenLoadGenerator.Stats stats) {
+        return stats.outcomes.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+}
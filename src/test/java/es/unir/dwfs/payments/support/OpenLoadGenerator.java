@@ -0,0 +1,186 @@
+package es.unir.dwfs.payments.support;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generador de carga de modelo abierto: lanza peticiones a una tasa fija, independientemente de
+ * cuánto tarden en responder las anteriores. La latencia se mide desde el instante en que la
+ * petición debía enviarse según la tasa, no desde que se envió, para no ocultar la cola que se
+ * forma cuando el servicio se satura (coordinated omission)
+ */
+public class OpenLoadGenerator implements AutoCloseable {
+
+    private static final Pattern ERROR_CODE = Pattern.compile("\"code\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final List<Operation> operations;
+    private final double totalWeight;
+    private final int maxInFlight;
+    private final Duration timeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(executor)
+            .build();
+
+    /**
+     * @param operations  operaciones a lanzar, elegidas al azar según su peso
+     * @param maxInFlight peticiones pendientes máximas; por encima se descartan y cuentan como error
+     * @param timeout     plazo de cada petición
+     */
+    public OpenLoadGenerator(List<Operation> operations, int maxInFlight, Duration timeout) {
+        this.operations = operations;
+        this.totalWeight = operations.stream().mapToDouble(Operation::weight).sum();
+        this.maxInFlight = maxInFlight;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Lanza peticiones a la tasa indicada durante el tiempo indicado y espera a que terminen
+     */
+    public LoadReport run(double rate, Duration duration) throws InterruptedException {
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        operations.forEach(operation -> stats.put(operation.name(), new Stats()));
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger pending = new AtomicInteger();
+        long interval = (long) (1_000_000_000L / rate);
+        long total = (long) (rate * duration.toNanos() / 1e9);
+        long start = System.nanoTime();
+
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * interval;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Operation operation = pick();
+            Stats operationStats = stats.get(operation.name());
+            if (inFlight.get() >= maxInFlight) {
+                operationStats.outcome("client-saturated");
+                continue;
+            }
+            inFlight.incrementAndGet();
+            pending.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    call(operation, operationStats, intended);
+                } finally {
+                    inFlight.decrementAndGet();
+                    synchronized (pending) {
+                        if (pending.decrementAndGet() == 0) {
+                            pending.notifyAll();
+                        }
+                    }
+                }
+            });
+        }
+        long sent = System.nanoTime() - start;
+
+        synchronized (pending) {
+            while (pending.get() > 0) {
+                pending.wait();
+            }
+        }
+        return new LoadReport(rate, sent, stats);
+    }
+
+    private Operation pick() {
+        double choice = ThreadLocalRandom.current().nextDouble(totalWeight);
+        for (Operation operation : operations) {
+            choice -= operation.weight();
+            if (choice < 0) {
+                return operation;
+            }
+        }
+        return operations.getLast();
+    }
+
+    private void call(Operation operation, Stats stats, long intended) {
+        String outcome;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(operation.request().get(), (name, value) -> true)
+                    .timeout(timeout)
+                    .build();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            outcome = classify(response);
+            if (outcome.equals(LoadReport.OK)) {
+                operation.onSuccess().accept(response.body());
+            }
+        } catch (HttpTimeoutException e) {
+            outcome = "timeout";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = "interrupted";
+        } catch (Exception e) {
+            outcome = e.getClass().getSimpleName();
+        }
+        stats.latency.recordValue(Math.max(0, (System.nanoTime() - intended) / 1000));
+        stats.outcome(outcome);
+    }
+
+    /**
+     * "ok" para respuestas 2xx; si no, el estado HTTP y el primer código de error de la respuesta
+     */
+    private static String classify(HttpResponse<String> response) {
+        if (response.statusCode() / 100 == 2) {
+            return LoadReport.OK;
+        }
+        Matcher code = ERROR_CODE.matcher(response.body());
+        return code.find() ? response.statusCode() + " " + code.group(1) : String.valueOf(response.statusCode());
+    }
+
+    @Override
+    public void close() {
+        http.close();
+        executor.close();
+    }
+
+    /**
+     * Tipo de petición de un escenario
+     *
+     * @param name      nombre en el informe
+     * @param weight    peso relativo frente al resto de operaciones
+     * @param request   genera cada petición
+     * @param onSuccess recibe el cuerpo de las respuestas 2xx (por ejemplo, para guardar IDs creados)
+     */
+    public record Operation(String name, double weight, Supplier<HttpRequest> request, Consumer<String> onSuccess) {
+
+        public Operation(String name, double weight, Supplier<HttpRequest> request) {
+            this(name, weight, request, body -> { });
+        }
+    }
+
+    /**
+     * Latencias (en microsegundos) y resultados de una operación
+     */
+    static class Stats {
+
+        final Histogram latency = new ConcurrentHistogram(3);
+        final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+        void outcome(String outcome) {
+            outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        }
+    }
+}
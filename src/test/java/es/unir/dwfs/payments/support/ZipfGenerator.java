@@ -0,0 +1,38 @@
+package es.unir.dwfs.payments.support;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Genera IDs de libro en [1, n] con distribución Zipf: con exponente 0 todos los libros son
+ * igual de probables y cuanto mayor es el exponente más se concentran las peticiones en unos
+ * pocos libros "calientes"
+ */
+public class ZipfGenerator {
+
+    private final double[] cumulative;
+
+    public ZipfGenerator(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    public long next(ThreadLocalRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1) + 1L;
+    }
+
+    /**
+     * Fracción de peticiones que reciben los k libros más populares
+     */
+    public double share(int k) {
+        return cumulative[Math.min(k, cumulative.length) - 1];
+    }
+}